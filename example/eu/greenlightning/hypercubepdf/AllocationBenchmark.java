@@ -0,0 +1,68 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.align.HCPAligned;
+import eu.greenlightning.hypercubepdf.align.HCPAlignment;
+import eu.greenlightning.hypercubepdf.border.HCPEmptyBorder;
+import eu.greenlightning.hypercubepdf.container.HCPTableContainer;
+import eu.greenlightning.hypercubepdf.layout.HCPStretchLayout;
+
+/**
+ * Measures how many bytes are allocated while painting a table with 20,000 cells repeatedly through the same
+ * {@link HCPRenderContext}. The cells do not write to the content stream, so that only the allocations of the layout
+ * and paint path are counted.
+ * <p>
+ * Requires a JVM which supports {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ */
+public class AllocationBenchmark {
+
+	private static final int COLUMNS = 100, ROWS = 200, CELLS = COLUMNS * ROWS;
+	private static final int WARMUP_ITERATIONS = 20, ITERATIONS = 50;
+
+	public static void main(String[] args) throws IOException {
+		HCPElement table = createTable();
+		try (PDDocument document = new PDDocument()) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				HCPRenderContext context = new HCPRenderContext(content);
+				for (int i = 0; i < WARMUP_ITERATIONS; i++)
+					context.paint(table, page.getMediaBox());
+
+				long before = getAllocatedBytes();
+				for (int i = 0; i < ITERATIONS; i++)
+					context.paint(table, 0, 0, 612, 792);
+				long allocated = getAllocatedBytes() - before;
+
+				System.out.printf("Measured elements:    %d%n", context.getMeasureContext().size());
+				System.out.printf("Bytes per paint:      %d%n", allocated / ITERATIONS);
+				System.out.printf("Bytes per cell:       %.3f%n", (double) allocated / ITERATIONS / CELLS);
+			}
+		}
+	}
+
+	private static HCPElement createTable() {
+		HCPTableContainer.Builder builder = HCPTableContainer.create(HCPStretchLayout.getInstance(1));
+		for (int y = 0; y < ROWS; y++) {
+			for (int x = 0; x < COLUMNS; x++) {
+				HCPElement cell = HCPSized.withSize(HCPEmpty.INSTANCE, 1 + x % 3, 1 + y % 2);
+				cell = HCPAligned.withAlignment(cell, HCPAlignment.CENTER);
+				cell = HCPEmptyBorder.getAllSidesInstance(cell, 0.5f);
+				builder.addPosition(cell, x, y);
+			}
+		}
+		return builder.build();
+	}
+
+	private static long getAllocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
@@ -4,11 +4,13 @@ import static eu.greenlightning.hypercubepdf.container.HCPTablePosition.*;
 
 import java.awt.Color;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.apache.pdfbox.exceptions.COSVisitorException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
 import eu.greenlightning.hypercubepdf.border.HCPEmptyBorder;
 import eu.greenlightning.hypercubepdf.container.*;
 import eu.greenlightning.hypercubepdf.layout.*;
@@ -23,6 +25,8 @@ public class ContainerExample {
 			demoBorderContainer(document);
 			demoGridContainer(document);
 			demoTableContainer(document);
+			demoWrapContainer(document);
+			demoTransformed(document);
 			document.save("examples/containers.pdf");
 		}
 	}
@@ -47,6 +51,12 @@ public class ContainerExample {
 		horizontal = HCPContainers.getHorizontalStretch(a, b, c);
 		vertical = HCPContainers.getVerticalStretch(10, a, b, c);
 		Examples.paintOnNewPage(document, "Stretch", horizontal, vertical);
+
+		HCPLayout flex = HCPFlexLayout.create().spacing(10).fixed(30).fill().item(HCPFlexLayout.USE_ELEMENT_SIZE, 1, 1)
+			.build();
+		horizontal = HCPContainers.getHorizontalContainer(flex, a, b, c);
+		vertical = HCPContainers.getVerticalContainer(flex, a, b, c);
+		Examples.paintOnNewPage(document, "Flex", horizontal, vertical);
 	}
 
 	private static void demoBorderContainer(PDDocument document) throws IOException {
@@ -117,6 +127,29 @@ public class ContainerExample {
 		Examples.paintOnNewPage(document, "Table", left, right);
 	}
 
+	private static void demoWrapContainer(PDDocument document) throws IOException {
+		Color[] colors = { Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN, Color.CYAN, Color.BLUE, Color.MAGENTA };
+		HCPWrapContainer.Builder builder = HCPWrapContainer.create().spacing(10).lineSpacing(10);
+		for (int i = 0; i < 20; i++)
+			builder.add(createBox(String.join("", Collections.nCopies(1 + i % 4, "W")), Color.BLACK,
+				colors[i % colors.length]));
+		HCPElement left = builder.build();
+		HCPElement right = builder.alignment(HCPHorizontalAlignment.CENTER).build();
+		Examples.paintOnNewPage(document, "Wrap", left, right);
+	}
+
+	private static void demoTransformed(PDDocument document) throws IOException {
+		HCPElement box = createBox("ROTATED", Color.BLACK, Color.CYAN);
+		HCPElement[] rotated = new HCPElement[3];
+		for (int i = 0; i < rotated.length; i++)
+			rotated[i] = new HCPStack(new HCPArea(null, Color.GRAY), HCPTransformed.withRotation(box, 45 * i));
+		HCPElement left = HCPContainers.getVerticalFlow(10, rotated);
+		HCPElement scaled = HCPTransformed.withTransform(createBox("SCALED", Color.BLACK, Color.ORANGE), -45, 1.5f,
+			0.75f);
+		HCPElement right = new HCPStack(new HCPArea(null, Color.GRAY), scaled);
+		Examples.paintOnNewPage(document, "Transformed", left, right);
+	}
+
 	private static HCPElement createBox(String label, Color stroking, Color nonStroking) {
 		HCPElement background = new HCPArea(nonStroking, stroking);
 		HCPStyle style = new HCPStyle(PDType1Font.HELVETICA_BOLD, 24, stroking);
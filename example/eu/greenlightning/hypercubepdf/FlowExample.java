@@ -0,0 +1,93 @@
+package eu.greenlightning.hypercubepdf;
+
+import static eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment.JUSTIFY;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import eu.greenlightning.hypercubepdf.border.HCPEmptyBorder;
+import eu.greenlightning.hypercubepdf.border.HCPLineBorder;
+import eu.greenlightning.hypercubepdf.container.HCPContainers;
+import eu.greenlightning.hypercubepdf.container.HCPStreamingTable;
+import eu.greenlightning.hypercubepdf.container.HCPTableContainer;
+import eu.greenlightning.hypercubepdf.layout.HCPFlowLayout;
+import eu.greenlightning.hypercubepdf.layout.HCPStretchLayout;
+import eu.greenlightning.hypercubepdf.page.HCPDocumentFlow;
+import eu.greenlightning.hypercubepdf.page.HCPPages;
+import eu.greenlightning.hypercubepdf.text.HCPNormalText;
+import eu.greenlightning.hypercubepdf.text.HCPParagraph;
+import eu.greenlightning.hypercubepdf.text.HCPStyle;
+
+public class FlowExample {
+
+	private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do "
+		+ "eiusmod tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud "
+		+ "exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat. Duis aute irure dolor in "
+		+ "reprehenderit in voluptate velit esse cillum dolore eu fugiat nulla pariatur. Excepteur sint occaecat "
+		+ "cupidatat non proident, sunt in culpa qui officia deserunt mollit anim id est laborum.";
+
+	public static void main(String[] args) throws IOException, COSVisitorException {
+		HCPStyle titleStyle = new HCPStyle(PDType1Font.HELVETICA_BOLD, 24);
+		HCPStyle style = new HCPStyle(PDType1Font.TIMES_ROMAN, 12);
+
+		List<HCPElement> elements = new ArrayList<>();
+		elements.add(new HCPNormalText("Document Flow", titleStyle));
+		for (int i = 0; i < 8; i++)
+			elements.add(HCPParagraph.create(LOREM_IPSUM, style).alignment(JUSTIFY).build());
+		elements.add(createTable(style));
+		for (int i = 0; i < 4; i++)
+			elements.add(HCPParagraph.create(LOREM_IPSUM, style).alignment(JUSTIFY).build());
+
+		try (PDDocument document = new PDDocument()) {
+			HCPDocumentFlow flow = HCPDocumentFlow.create()
+				.pages(pdDocument -> HCPPages.addPortraitPage(pdDocument, PDPage.PAGE_SIZE_A4)).margin(50).build();
+			flow.paint(document, HCPContainers.getVerticalFlow(15, elements));
+			flow.paint(document, createLedger(style));
+			document.save("examples/flow.pdf");
+		}
+	}
+
+	// Every group spans five rows, which are therefore kept together on one page.
+	private static HCPElement createTable(HCPStyle style) {
+		HCPTableContainer.Builder builder = HCPTableContainer.create(HCPStretchLayout.getInstance(), HCPFlowLayout
+			.getInstance());
+		for (int row = 0; row < 60; row++) {
+			if (row % 5 == 0)
+				builder.addPosition(createCell("Group " + (row / 5 + 1), style), 0, row, 1, 5);
+			builder.addPosition(createCell("Row " + (row + 1), style), 1, row);
+			builder.addPosition(createCell(String.format("%.2f", Math.sqrt(row + 1)), style), 2, row);
+		}
+		return builder.build();
+	}
+
+	// The rows are created while the table is painted and released after each page.
+	private static HCPElement createLedger(HCPStyle style) {
+		HCPStyle headerStyle = new HCPStyle(PDType1Font.TIMES_BOLD, 12);
+		return HCPStreamingTable.create(HCPStretchLayout.getInstance())
+			.header(createCell("Entry", headerStyle), createCell("Description", headerStyle), createCell("Amount",
+				headerStyle))
+			.rows(() -> IntStream.rangeClosed(1, 250).mapToObj(entry -> new HCPElement[] {
+				createCell(Integer.toString(entry), style),
+				createCell(HCPParagraph.create(entry % 25 == 0 ? LOREM_IPSUM : "Item " + entry, style).build()),
+				createCell(String.format("%.2f", entry * 1.25), style) }))
+			.build();
+	}
+
+	private static HCPElement createCell(String text, HCPStyle style) {
+		return createCell(new HCPNormalText(text, style));
+	}
+
+	private static HCPElement createCell(HCPElement content) {
+		HCPElement cell = HCPEmptyBorder.getHorizontalVerticalInstance(content, 10, 4);
+		return new HCPLineBorder(cell, Color.GRAY, 0.5f);
+	}
+
+}
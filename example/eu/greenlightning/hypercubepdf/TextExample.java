@@ -0,0 +1,123 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.awt.Color;
+import java.io.IOException;
+
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+import eu.greenlightning.hypercubepdf.border.HCPEmptyBorder;
+import eu.greenlightning.hypercubepdf.border.HCPLineBorder;
+import eu.greenlightning.hypercubepdf.container.HCPContainers;
+import eu.greenlightning.hypercubepdf.container.HCPTableContainer;
+import eu.greenlightning.hypercubepdf.layout.HCPFlexLayout;
+import eu.greenlightning.hypercubepdf.layout.HCPFlowLayout;
+import eu.greenlightning.hypercubepdf.layout.HCPLayout;
+import eu.greenlightning.hypercubepdf.text.HCPAutoFitText;
+import eu.greenlightning.hypercubepdf.text.HCPNormalText;
+import eu.greenlightning.hypercubepdf.text.HCPParagraph;
+import eu.greenlightning.hypercubepdf.text.HCPParagraph.HCPLineBreaking;
+import eu.greenlightning.hypercubepdf.text.HCPRichText;
+import eu.greenlightning.hypercubepdf.text.HCPStyle;
+import eu.greenlightning.hypercubepdf.text.HCPTruncatedText;
+
+public class TextExample {
+
+	private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do "
+		+ "eiusmod tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud "
+		+ "exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat.\nDuis aute irure dolor in "
+		+ "reprehenderit in voluptate velit esse cillum dolore eu fugiat nulla pariatur.";
+
+	public static void main(String[] args) throws IOException, COSVisitorException {
+		try (PDDocument document = new PDDocument()) {
+			demoParagraph(document);
+			demoTruncatedText(document);
+			demoRichText(document);
+			demoAutoFitText(document);
+			demoKerning(document);
+			demoFallbacks(document);
+			document.save("examples/text.pdf");
+		}
+	}
+
+	private static void demoParagraph(PDDocument document) throws IOException {
+		HCPStyle headerStyle = new HCPStyle(PDType1Font.HELVETICA_BOLD, 14);
+		HCPStyle style = new HCPStyle(PDType1Font.TIMES_ROMAN, 12);
+		HCPLayout columns = HCPFlexLayout.create().spacing(20).defaultItem(220, 0, 0).build();
+		HCPTableContainer.Builder builder = HCPTableContainer.create(columns, HCPFlowLayout.getInstance(10));
+		HCPLineBreaking[] strategies = HCPLineBreaking.values();
+		for (int x = 0; x < strategies.length; x++) {
+			builder.addPosition(new HCPNormalText(strategies[x].toString(), headerStyle), x, 0);
+			HCPElement paragraph = HCPParagraph.create(LOREM_IPSUM, style).breaking(strategies[x]).build();
+			paragraph = HCPEmptyBorder.getAllSidesInstance(paragraph, 5);
+			paragraph = new HCPLineBorder(paragraph, Color.GRAY, 1);
+			builder.addPosition(paragraph, x, 1);
+		}
+		builder.addPosition(new HCPNormalText("JUSTIFY", headerStyle), strategies.length, 0);
+		HCPElement justified = HCPParagraph.create(LOREM_IPSUM, style).alignment(HCPHorizontalAlignment.JUSTIFY)
+			.build();
+		justified = HCPEmptyBorder.getAllSidesInstance(justified, 5);
+		builder.addPosition(new HCPLineBorder(justified, Color.GRAY, 1), strategies.length, 1);
+		Examples.paintOnNewPage(document, "Paragraph", builder.build());
+	}
+
+	private static void demoTruncatedText(PDDocument document) throws IOException {
+		HCPStyle style = new HCPStyle(PDType1Font.HELVETICA, 14);
+		HCPElement[] rows = new HCPElement[6];
+		for (int i = 0; i < rows.length; i++) {
+			HCPLayout layout = HCPFlexLayout.create().fixed(400 - 70 * i).build();
+			HCPElement text = new HCPTruncatedText("The quick brown fox jumps over the lazy dog", style);
+			rows[i] = HCPContainers.getHorizontalContainer(layout, new HCPLineBorder(text, Color.GRAY, 1));
+		}
+		Examples.paintOnNewPage(document, "Truncated Text", HCPContainers.getVerticalFlow(10, rows));
+	}
+
+	private static void demoRichText(PDDocument document) throws IOException {
+		HCPStyle regular = new HCPStyle(PDType1Font.HELVETICA, 14);
+		HCPStyle bold = new HCPStyle(PDType1Font.HELVETICA_BOLD, 14);
+		HCPStyle red = regular.withColor(Color.RED);
+		HCPStyle large = bold.withSize(24);
+		HCPElement first = HCPRichText.create().add("Total: ", bold).add("1,234.56", red).add(" EUR", regular).build();
+		HCPElement second = HCPRichText.create().add("Mixed ", regular).add("sizes", large).add(" share a ", regular)
+			.add("baseline", bold).add(".", regular).build();
+		HCPElement[] rows = { new HCPLineBorder(first, Color.GRAY, 1), new HCPLineBorder(second, Color.GRAY, 1) };
+		Examples.paintOnNewPage(document, "Rich Text", HCPContainers.getVerticalFlow(10, rows));
+	}
+
+	private static void demoAutoFitText(PDDocument document) throws IOException {
+		HCPStyle style = new HCPStyle(PDType1Font.HELVETICA_BOLD, 12);
+		HCPElement[] rows = new HCPElement[6];
+		for (int i = 0; i < rows.length; i++) {
+			HCPLayout layout = HCPFlexLayout.create().fixed(400 - 60 * i).build();
+			HCPElement text = HCPAutoFitText.create("Auto-Fit", style).minSize(8).maxSize(60).build();
+			text = HCPContainers.getVerticalContainer(HCPFlexLayout.create().fixed(50).build(), text);
+			rows[i] = HCPContainers.getHorizontalContainer(layout, new HCPLineBorder(text, Color.GRAY, 1));
+		}
+		Examples.paintOnNewPage(document, "Auto-Fit Text", HCPContainers.getVerticalFlow(10, rows));
+	}
+
+	private static void demoKerning(PDDocument document) throws IOException {
+		HCPStyle style = new HCPStyle(PDType1Font.TIMES_ROMAN, 36);
+		HCPElement[] rows = new HCPElement[2];
+		for (int i = 0; i < rows.length; i++) {
+			HCPElement text = new HCPNormalText("AVATAR, Toyota, WAVE", style.withKerning(i == 1));
+			rows[i] = new HCPLineBorder(text, Color.GRAY, 1);
+		}
+		Examples.paintOnNewPage(document, "Kerning", HCPContainers.getVerticalFlow(10, rows));
+	}
+
+	// The first row shows the characters without fallbacks, the second one with Symbol and ZapfDingbats as fallbacks.
+	private static void demoFallbacks(PDDocument document) throws IOException {
+		HCPStyle style = new HCPStyle(PDType1Font.HELVETICA, 18);
+		String text = "\u03A9 = 2\u03C0r \u2264 \u221E, 5 \u20AC \u2713 \u2708 \u2605 \u6F22";
+		HCPElement[] rows = new HCPElement[2];
+		for (int i = 0; i < rows.length; i++) {
+			HCPStyle rowStyle = i == 0 ? style : style.withFallbacks(PDType1Font.SYMBOL, PDType1Font.ZAPF_DINGBATS);
+			rows[i] = new HCPLineBorder(new HCPNormalText(text, rowStyle), Color.GRAY, 1);
+		}
+		Examples.paintOnNewPage(document, "Fallback Fonts", HCPContainers.getVerticalFlow(10, rows));
+	}
+
+}
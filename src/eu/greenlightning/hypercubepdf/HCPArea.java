@@ -146,34 +146,38 @@ public class HCPArea implements HCPElement {
 
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		paintContent(content, shape);
-		paintBorder(content, shape);
+		paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
 	}
 
-	private void paintContent(PDPageContentStream content, PDRectangle shape) throws IOException {
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		paintContent(content, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+		paintBorder(content, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+	}
+
+	private void paintContent(PDPageContentStream content, float leftX, float lowerY, float rightX, float upperY)
+		throws IOException {
 		if (contentColor != null) {
 			content.setNonStrokingColor(contentColor);
-			content.fillRect(shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getWidth(), shape.getHeight());
+			content.fillRect(leftX, lowerY, rightX - leftX, upperY - lowerY);
 		}
 	}
 
-	private void paintBorder(PDPageContentStream content, PDRectangle shape) throws IOException {
+	private void paintBorder(PDPageContentStream content, float leftX, float lowerY, float rightX, float upperY)
+		throws IOException {
 		if (borderColor != null && border != HCPBorderType.NO_BORDER) {
 			content.setStrokingColor(borderColor);
 			content.setLineWidth(LINE_WIDTH);
-			addBorder(content, shape);
+			addBorder(content, leftX, lowerY, rightX, upperY);
 			content.stroke();
 		}
 	}
 
-	private void addBorder(PDPageContentStream content, PDRectangle shape) throws IOException {
-		float leftX = shape.getLowerLeftX();
-		float rightX = shape.getUpperRightX();
-		float lowerY = shape.getLowerLeftY();
-		float upperY = shape.getUpperRightY();
-
+	private void addBorder(PDPageContentStream content, float leftX, float lowerY, float rightX, float upperY)
+		throws IOException {
 		if (border == HCPBorderType.FULL_BORDER) {
-			content.addRect(leftX, lowerY, shape.getWidth(), shape.getHeight());
+			content.addRect(leftX, lowerY, rightX - leftX, upperY - lowerY);
 			return;
 		}
 
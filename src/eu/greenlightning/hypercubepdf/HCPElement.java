@@ -1,12 +1,24 @@
 package eu.greenlightning.hypercubepdf;
 
 import java.io.IOException;
+import java.util.Objects;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 /**
  * General purpose element which has a size and can paint itself onto a page.
+ * <p>
+ * Besides the basic methods, each element has context-aware variants of them, which receive an
+ * {@link HCPMeasureContext} or an {@link HCPRenderContext}. Containers should override these variants and request the
+ * sizes of their children through the context, so that every element is only measured once per render, no matter how
+ * deeply it is nested. By default the context-aware variants delegate to the basic methods, which is the correct
+ * behavior for simple elements that do not contain other elements.
+ * <p>
+ * Elements whose height depends on the width they are given (for example text which wraps into multiple lines) can
+ * override {@link #getMinWidth(HCPMeasureContext)}, {@link #getMaxWidth(HCPMeasureContext)} and
+ * {@link #getHeight(HCPMeasureContext, float)}. Containers which know the width of a child before they lay out their
+ * children vertically use these methods to determine the height of the child.
  *
  * @author Green Lightning
  */
@@ -46,4 +58,164 @@ public interface HCPElement {
 	 */
 	void paint(PDPageContentStream content, PDRectangle shape) throws IOException;
 
+	/**
+	 * Paints this element to the specified {@link PDPageContentStream} inside the shape defined by the specified
+	 * coordinates.
+	 * <p>
+	 * This method is called by {@link HCPRenderContext#paintLeaf(HCPElement, float, float, float, float)} to paint
+	 * leaves. Elements which can paint themselves directly from the coordinates should override it, so that no
+	 * {@link PDRectangle} has to be created.
+	 * <p>
+	 * The default implementation creates a {@link PDRectangle} and calls
+	 * {@link #paint(PDPageContentStream, PDRectangle)}.
+	 * 
+	 * @param content not {@code null}
+	 * @param lowerLeftX the smaller x-coordinate of the shape
+	 * @param lowerLeftY the smaller y-coordinate of the shape
+	 * @param upperRightX the larger x-coordinate of the shape
+	 * @param upperRightY the larger y-coordinate of the shape
+	 * @throws NullPointerException if content is {@code null}
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	default void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		paint(content, HCPRenderContext.createShape(lowerLeftX, lowerLeftY, upperRightX, upperRightY));
+	}
+
+	/**
+	 * Returns a hierarchy in which every occurrence of the target element has been replaced with the replacement.
+	 * Elements are compared by identity.
+	 * <p>
+	 * Because elements are immutable, containers have to create new instances to replace their children. Containers
+	 * return {@code this} if the target does not occur in their hierarchy and otherwise only create new instances along
+	 * the paths to the occurrences of the target. All other elements are shared between the old and the new hierarchy,
+	 * so an {@link HCPMeasureContext} or an {@link HCPLayoutPlan} made for the old hierarchy can be reused for the new
+	 * one and only the new containers have to be measured again.
+	 * <p>
+	 * The default implementation returns the replacement if this element is the target and {@code this} otherwise,
+	 * which is the correct behavior for elements that do not contain other elements.
+	 * 
+	 * @param target the element to replace; not {@code null}
+	 * @param replacement the element to use instead; not {@code null}
+	 * @return the new hierarchy or {@code this} if the target does not occur in this hierarchy
+	 * @throws NullPointerException if target or replacement is {@code null}
+	 * @see HCPLayoutPlan#update(HCPElement, PDRectangle, HCPMeasureContext)
+	 */
+	default HCPElement replace(HCPElement target, HCPElement replacement) {
+		Objects.requireNonNull(target, "Target must not be null.");
+		Objects.requireNonNull(replacement, "Replacement must not be null.");
+		return this == target ? replacement : this;
+	}
+
+	/**
+	 * Returns the width of this element, requesting the sizes of all contained elements from the specified context.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#getWidth(HCPElement)} should be used,
+	 * which calls this method at most once per element.
+	 * <p>
+	 * The default implementation returns {@link #getWidth()}.
+	 * 
+	 * @param context not {@code null}
+	 * @return the width of this element
+	 * @throws IOException if an error occurs
+	 */
+	default float getWidth(HCPMeasureContext context) throws IOException {
+		return getWidth();
+	}
+
+	/**
+	 * Returns the height of this element, requesting the sizes of all contained elements from the specified context.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#getHeight(HCPElement)} should be
+	 * used, which calls this method at most once per element.
+	 * <p>
+	 * The default implementation returns {@link #getHeight()}.
+	 * 
+	 * @param context not {@code null}
+	 * @return the height of this element
+	 * @throws IOException if an error occurs
+	 */
+	default float getHeight(HCPMeasureContext context) throws IOException {
+		return getHeight();
+	}
+
+	/**
+	 * Returns the smallest width at which this element can be painted correctly, requesting the sizes of all contained
+	 * elements from the specified context.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#getMinWidth(HCPElement)} should be
+	 * used, which calls this method at most once per element.
+	 * <p>
+	 * The default implementation returns the width of this element.
+	 * 
+	 * @param context not {@code null}
+	 * @return the minimum width of this element
+	 * @throws IOException if an error occurs
+	 */
+	default float getMinWidth(HCPMeasureContext context) throws IOException {
+		return context.getWidth(this);
+	}
+
+	/**
+	 * Returns the largest width which this element can make use of, requesting the sizes of all contained elements
+	 * from the specified context.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#getMaxWidth(HCPElement)} should be
+	 * used, which calls this method at most once per element.
+	 * <p>
+	 * The default implementation returns the width of this element.
+	 * 
+	 * @param context not {@code null}
+	 * @return the maximum width of this element
+	 * @throws IOException if an error occurs
+	 */
+	default float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return context.getWidth(this);
+	}
+
+	/**
+	 * Returns the height of this element if it is painted with the specified width, requesting the sizes of all
+	 * contained elements from the specified context.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#getHeight(HCPElement, float)} should
+	 * be used, which calls this method at most once per element and width.
+	 * <p>
+	 * The default implementation returns the height of this element regardless of the width.
+	 * 
+	 * @param context not {@code null}
+	 * @param width the width available to this element; {@literal >= 0}
+	 * @return the height of this element at the specified width
+	 * @throws IOException if an error occurs
+	 */
+	default float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return context.getHeight(this);
+	}
+
+	/**
+	 * Paints this element using the specified context. The shape is passed as coordinates, so that containers can
+	 * paint their children without creating a {@link PDRectangle} for each one of them.
+	 * <p>
+	 * Containers should request the sizes of their children from the context and paint them using
+	 * {@link HCPRenderContext#paint(HCPElement, float, float, float, float)}. Containers must not write to the content
+	 * stream of the context themselves, because the context might be recording an {@link HCPLayoutPlan} instead of
+	 * painting. If a container needs to paint something in addition to its children, it should paint a separate element
+	 * which does the painting.
+	 * <p>
+	 * The default implementation treats this element as a leaf and passes it to
+	 * {@link HCPRenderContext#paintLeaf(HCPElement, float, float, float, float)}, which eventually calls
+	 * {@link #paint(PDPageContentStream, float, float, float, float)}.
+	 * 
+	 * @param context not {@code null}
+	 * @param lowerLeftX the smaller x-coordinate of the shape
+	 * @param lowerLeftY the smaller y-coordinate of the shape
+	 * @param upperRightX the larger x-coordinate of the shape
+	 * @param upperRightY the larger y-coordinate of the shape
+	 * @throws IOException if there is an error writing to the stream
+	 * @see #paint(PDPageContentStream, PDRectangle)
+	 */
+	default void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		context.paintLeaf(this, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+	}
+
 }
@@ -28,6 +28,10 @@ public enum HCPEmpty implements HCPElement {
 
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) {}
+
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) {}
 	
 	@Override
 	public String toString() {
@@ -0,0 +1,354 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+/**
+ * The precomputed result of laying out an {@link HCPElement} hierarchy inside a fixed shape.
+ * <p>
+ * Painting an element normally measures the hierarchy and applies the layouts of all containers, before the leaves are
+ * finally painted. A layout plan separates these steps: {@link #create(HCPElement, PDRectangle)} walks the hierarchy
+ * once and records every leaf together with the shape it should be painted in. The plan can then be painted any number
+ * of times (for example onto many pages or into many documents) without doing any layout work again. It can also be
+ * used to inspect the geometry of a hierarchy without painting it.
+ * <p>
+ * Leaves are elements which do not paint other elements through an {@link HCPRenderContext}. The leaves are stored in
+ * the order in which they would have been painted.
+ * <p>
+ * A plan also remembers which parts of the hierarchy produced which leaves. When the hierarchy changes, for example
+ * because a text has been replaced using {@link HCPElement#replace(HCPElement, HCPElement)},
+ * {@link #update(HCPElement, PDRectangle, HCPMeasureContext)} only lays out the elements which have changed or moved
+ * and copies the leaves of all other elements from the previous plan.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ * @see HCPRenderContext#paintLeaf(HCPElement, float, float, float, float)
+ */
+public final class HCPLayoutPlan {
+
+	/**
+	 * Lays out the element inside the specified shape and records the results.
+	 * 
+	 * @param element not {@code null}
+	 * @param shape not {@code null}
+	 * @return the layout plan for the element
+	 * @throws NullPointerException if element or shape is {@code null}
+	 * @throws IOException if an error occurs while measuring an element
+	 */
+	public static HCPLayoutPlan create(HCPElement element, PDRectangle shape) throws IOException {
+		return create(element, shape, new HCPMeasureContext());
+	}
+
+	/**
+	 * Lays out the element inside the specified shape using the specified measure context and records the results.
+	 * 
+	 * @param element not {@code null}
+	 * @param shape not {@code null}
+	 * @param measureContext not {@code null}
+	 * @return the layout plan for the element
+	 * @throws NullPointerException if element, shape or measureContext is {@code null}
+	 * @throws IOException if an error occurs while measuring an element
+	 */
+	public static HCPLayoutPlan create(HCPElement element, PDRectangle shape, HCPMeasureContext measureContext)
+		throws IOException {
+		return record(element, shape, measureContext, null);
+	}
+
+	private static HCPLayoutPlan record(HCPElement element, PDRectangle shape, HCPMeasureContext measureContext,
+		HCPLayoutPlan previous) throws IOException {
+		Recorder recorder = new Recorder(previous);
+		new HCPRenderContext(recorder, measureContext).paint(element, shape);
+		return recorder.build();
+	}
+
+	private static final int COORDINATES = 4;
+
+	// Each segment consists of the index of its first leaf, the index after its last leaf and the index after its last
+	// nested segment.
+	private static final int SEGMENT_INDICES = 3;
+
+	private final HCPElement[] elements;
+	private final float[] coordinates;
+
+	// Segments describe all elements that have been painted (not only the leaves) in pre-order.
+	private final HCPElement[] segmentElements;
+	private final float[] segmentCoordinates;
+	private final int[] segmentIndices;
+
+	private HCPLayoutPlan(HCPElement[] elements, float[] coordinates, HCPElement[] segmentElements,
+		float[] segmentCoordinates, int[] segmentIndices) {
+		this.elements = elements;
+		this.coordinates = coordinates;
+		this.segmentElements = segmentElements;
+		this.segmentCoordinates = segmentCoordinates;
+		this.segmentIndices = segmentIndices;
+	}
+
+	/**
+	 * Lays out the element inside the specified shape like {@link #create(HCPElement, PDRectangle, HCPMeasureContext)},
+	 * but reuses the results of this plan wherever possible.
+	 * <p>
+	 * Whenever an element is about to be painted in exactly the same shape in which it has been painted when this plan
+	 * was created, its leaves are copied from this plan instead of laying it out again. This plan is not modified.
+	 * <p>
+	 * Together with {@link HCPElement#replace(HCPElement, HCPElement)} and a measure context which is kept between
+	 * updates, this allows to change a single leaf of a large hierarchy cheaply: only the new ancestors of the leaf are
+	 * measured again and only the elements whose shapes have changed are laid out again.
+	 * 
+	 * @param element not {@code null}
+	 * @param shape not {@code null}
+	 * @param measureContext not {@code null}
+	 * @return the layout plan for the element
+	 * @throws NullPointerException if element, shape or measureContext is {@code null}
+	 * @throws IOException if an error occurs while measuring an element
+	 */
+	public HCPLayoutPlan update(HCPElement element, PDRectangle shape, HCPMeasureContext measureContext)
+		throws IOException {
+		return record(element, shape, measureContext, this);
+	}
+
+	/**
+	 * Returns the number of leaves in this plan.
+	 * 
+	 * @return the number of leaves
+	 */
+	public int size() {
+		return elements.length;
+	}
+
+	/**
+	 * Returns the leaf at the specified index.
+	 * 
+	 * @param index must be {@literal >= 0 and <} {@link #size()}
+	 * @return the leaf at {@code index}
+	 * @throws ArrayIndexOutOfBoundsException if index is out of bounds
+	 */
+	public HCPElement getElement(int index) {
+		return elements[index];
+	}
+
+	/**
+	 * Returns the smaller x-coordinate of the shape of the leaf at the specified index.
+	 * 
+	 * @param index must be {@literal >= 0 and <} {@link #size()}
+	 * @return the lower left x-coordinate
+	 * @throws ArrayIndexOutOfBoundsException if index is out of bounds
+	 */
+	public float getLowerLeftX(int index) {
+		checkIndex(index);
+		return coordinates[index * COORDINATES];
+	}
+
+	/**
+	 * Returns the smaller y-coordinate of the shape of the leaf at the specified index.
+	 * 
+	 * @param index must be {@literal >= 0 and <} {@link #size()}
+	 * @return the lower left y-coordinate
+	 * @throws ArrayIndexOutOfBoundsException if index is out of bounds
+	 */
+	public float getLowerLeftY(int index) {
+		checkIndex(index);
+		return coordinates[index * COORDINATES + 1];
+	}
+
+	/**
+	 * Returns the larger x-coordinate of the shape of the leaf at the specified index.
+	 * 
+	 * @param index must be {@literal >= 0 and <} {@link #size()}
+	 * @return the upper right x-coordinate
+	 * @throws ArrayIndexOutOfBoundsException if index is out of bounds
+	 */
+	public float getUpperRightX(int index) {
+		checkIndex(index);
+		return coordinates[index * COORDINATES + 2];
+	}
+
+	/**
+	 * Returns the larger y-coordinate of the shape of the leaf at the specified index.
+	 * 
+	 * @param index must be {@literal >= 0 and <} {@link #size()}
+	 * @return the upper right y-coordinate
+	 * @throws ArrayIndexOutOfBoundsException if index is out of bounds
+	 */
+	public float getUpperRightY(int index) {
+		checkIndex(index);
+		return coordinates[index * COORDINATES + 3];
+	}
+
+	/**
+	 * Returns a new {@link PDRectangle} describing the shape of the leaf at the specified index.
+	 * 
+	 * @param index must be {@literal >= 0 and <} {@link #size()}
+	 * @return the shape of the leaf at {@code index}
+	 * @throws ArrayIndexOutOfBoundsException if index is out of bounds
+	 */
+	public PDRectangle getShape(int index) {
+		return HCPRenderContext.createShape(getLowerLeftX(index), getLowerLeftY(index), getUpperRightX(index),
+			getUpperRightY(index));
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= elements.length)
+			throw new ArrayIndexOutOfBoundsException(index);
+	}
+
+	/**
+	 * Paints all leaves of this plan to the specified stream.
+	 * 
+	 * @param content not {@code null}
+	 * @throws NullPointerException if content is {@code null}
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	public void paint(PDPageContentStream content) throws IOException {
+		paint(new HCPRenderContext(content));
+	}
+
+	/**
+	 * Paints all leaves of this plan using the specified context. If the context records another layout plan, the
+	 * leaves of this plan are added to it.
+	 * 
+	 * @param context not {@code null}
+	 * @throws NullPointerException if context is {@code null}
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	public void paint(HCPRenderContext context) throws IOException {
+		Objects.requireNonNull(context, "Context must not be null.");
+		for (int index = 0, offset = 0; index < elements.length; index++, offset += COORDINATES)
+			context.paintLeaf(elements[index], coordinates[offset], coordinates[offset + 1], coordinates[offset + 2],
+				coordinates[offset + 3]);
+	}
+
+	static final class Recorder {
+
+		private final HCPLayoutPlan previous;
+		private Map<HCPElement, Integer> previousFirstSegments;
+		private int[] previousNextSegments;
+
+		private HCPElement[] elements = new HCPElement[16];
+		private float[] coordinates = new float[16 * COORDINATES];
+		private int size = 0;
+
+		private HCPElement[] segmentElements = new HCPElement[16];
+		private float[] segmentCoordinates = new float[16 * COORDINATES];
+		private int[] segmentIndices = new int[16 * SEGMENT_INDICES];
+		private int segmentCount = 0;
+
+		Recorder(HCPLayoutPlan previous) {
+			this.previous = previous;
+		}
+
+		void add(HCPElement element, float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, 2 * size);
+				coordinates = Arrays.copyOf(coordinates, 2 * size * COORDINATES);
+			}
+			elements[size] = element;
+			setCoordinates(coordinates, size, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			size++;
+		}
+
+		int begin(HCPElement element, float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY) {
+			ensureSegmentCapacity(segmentCount + 1);
+			segmentElements[segmentCount] = element;
+			setCoordinates(segmentCoordinates, segmentCount, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			segmentIndices[segmentCount * SEGMENT_INDICES] = size;
+			return segmentCount++;
+		}
+
+		void end(int segment) {
+			segmentIndices[segment * SEGMENT_INDICES + 1] = size;
+			segmentIndices[segment * SEGMENT_INDICES + 2] = segmentCount;
+		}
+
+		boolean reuse(HCPElement element, float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY,
+			HCPMeasureContext measureContext) {
+			if (previous == null)
+				return false;
+			int segment = findPreviousSegment(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			if (segment == -1)
+				return false;
+
+			int firstLeaf = previous.segmentIndices[segment * SEGMENT_INDICES];
+			int endLeaf = previous.segmentIndices[segment * SEGMENT_INDICES + 1];
+			int endSegment = previous.segmentIndices[segment * SEGMENT_INDICES + 2];
+
+			for (int leaf = firstLeaf, offset = firstLeaf * COORDINATES; leaf < endLeaf; leaf++, offset += COORDINATES)
+				add(previous.elements[leaf], previous.coordinates[offset], previous.coordinates[offset + 1],
+					previous.coordinates[offset + 2], previous.coordinates[offset + 3]);
+
+			int leafShift = size - endLeaf;
+			int segmentShift = segmentCount - segment;
+			ensureSegmentCapacity(segmentCount + endSegment - segment);
+			for (int index = segment; index < endSegment; index++) {
+				measureContext.touch(previous.segmentElements[index]);
+				segmentElements[segmentCount] = previous.segmentElements[index];
+				System.arraycopy(previous.segmentCoordinates, index * COORDINATES, segmentCoordinates, segmentCount
+					* COORDINATES, COORDINATES);
+				int offset = index * SEGMENT_INDICES, newOffset = segmentCount * SEGMENT_INDICES;
+				segmentIndices[newOffset] = previous.segmentIndices[offset] + leafShift;
+				segmentIndices[newOffset + 1] = previous.segmentIndices[offset + 1] + leafShift;
+				segmentIndices[newOffset + 2] = previous.segmentIndices[offset + 2] + segmentShift;
+				segmentCount++;
+			}
+			return true;
+		}
+
+		private int findPreviousSegment(HCPElement element, float lowerLeftX, float lowerLeftY, float upperRightX,
+			float upperRightY) {
+			if (previousFirstSegments == null)
+				indexPreviousSegments();
+			Integer first = previousFirstSegments.get(element);
+			for (int segment = first == null ? -1 : first; segment != -1; segment = previousNextSegments[segment]) {
+				int offset = segment * COORDINATES;
+				float[] previousCoordinates = previous.segmentCoordinates;
+				if (previousCoordinates[offset] == lowerLeftX && previousCoordinates[offset + 1] == lowerLeftY
+					&& previousCoordinates[offset + 2] == upperRightX && previousCoordinates[offset + 3] == upperRightY)
+					return segment;
+			}
+			return -1;
+		}
+
+		private void indexPreviousSegments() {
+			int count = previous.segmentElements.length;
+			previousFirstSegments = new IdentityHashMap<>();
+			previousNextSegments = new int[count];
+			for (int segment = count - 1; segment >= 0; segment--) {
+				Integer next = previousFirstSegments.put(previous.segmentElements[segment], segment);
+				previousNextSegments[segment] = next == null ? -1 : next;
+			}
+		}
+
+		private void ensureSegmentCapacity(int capacity) {
+			if (capacity > segmentElements.length) {
+				int length = Math.max(capacity, 2 * segmentElements.length);
+				segmentElements = Arrays.copyOf(segmentElements, length);
+				segmentCoordinates = Arrays.copyOf(segmentCoordinates, length * COORDINATES);
+				segmentIndices = Arrays.copyOf(segmentIndices, length * SEGMENT_INDICES);
+			}
+		}
+
+		private static void setCoordinates(float[] coordinates, int index, float lowerLeftX, float lowerLeftY,
+			float upperRightX, float upperRightY) {
+			int offset = index * COORDINATES;
+			coordinates[offset] = lowerLeftX;
+			coordinates[offset + 1] = lowerLeftY;
+			coordinates[offset + 2] = upperRightX;
+			coordinates[offset + 3] = upperRightY;
+		}
+
+		HCPLayoutPlan build() {
+			return new HCPLayoutPlan(Arrays.copyOf(elements, size), Arrays.copyOf(coordinates, size * COORDINATES),
+				Arrays.copyOf(segmentElements, segmentCount), Arrays.copyOf(segmentCoordinates, segmentCount
+					* COORDINATES), Arrays.copyOf(segmentIndices, segmentCount * SEGMENT_INDICES));
+		}
+
+	}
+
+}
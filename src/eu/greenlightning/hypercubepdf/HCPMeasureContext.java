@@ -0,0 +1,475 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Remembers the sizes of {@link HCPElement}s, so that each element is measured at most once.
+ * <p>
+ * Containers ask their children for their sizes while they are measured themselves and again while they are painted.
+ * In deeply nested element hierarchies this leads to the same elements being measured over and over again. If all sizes
+ * are requested through the same {@link HCPMeasureContext}, the {@link HCPElement#getWidth(HCPMeasureContext)} and
+ * {@link HCPElement#getHeight(HCPMeasureContext)} methods of each element are called at most once and measuring a
+ * hierarchy takes time linear in the number of elements.
+ * <p>
+ * Elements are identified by identity. Because elements are immutable, their sizes cannot change and it is safe to keep
+ * a context for as long as the elements it has measured are in use.
+ * <p>
+ * A context also provides reusable scratch buffers for the elements (see {@link #getBuffer(HCPElement, int, int)}).
+ * When the same hierarchy is painted repeatedly through the same context, containers do not need to create any new
+ * objects.
+ * <p>
+ * A context can be configured to measure the children of large containers in parallel (see
+ * {@link #HCPMeasureContext(ForkJoinPool, int)}). The results are the same as if the children were measured one after
+ * another.
+ * <p>
+ * This class is <b>not</b> thread-safe.
+ *
+ * @author Green Lightning
+ * @see HCPRenderContext
+ */
+public final class HCPMeasureContext {
+
+	// The number of widths for which the height of an element is remembered.
+	private static final int HEIGHT_CACHE_SIZE = 4;
+
+	private final Map<HCPElement, Measurement> measurements = new IdentityHashMap<>();
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+	private int generation = 0;
+
+	/**
+	 * Creates a context which measures all elements in the calling thread.
+	 */
+	public HCPMeasureContext() {
+		this.pool = null;
+		this.parallelThreshold = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates a context which measures the children of a container in parallel using the specified pool, if at least
+	 * {@code parallelThreshold} of them have not been measured yet. Smaller numbers of children are measured in the
+	 * calling thread, because the overhead of parallel measurement would outweigh its benefits.
+	 * <p>
+	 * The elements of a hierarchy which is measured in parallel must support being measured from multiple threads at
+	 * the same time. This is true for all elements provided by this library.
+	 * 
+	 * @param pool the pool used to measure elements in parallel; not {@code null}
+	 * @param parallelThreshold the minimum number of elements to measure in parallel; must be {@literal >= 1}
+	 * @throws NullPointerException if pool is {@code null}
+	 * @throws IllegalArgumentException if parallelThreshold is {@literal < 1}
+	 * @see #measureWidths(HCPElement[])
+	 * @see #measureHeights(HCPElement[])
+	 * @see #measureHeights(HCPElement[], float[])
+	 */
+	public HCPMeasureContext(ForkJoinPool pool, int parallelThreshold) {
+		this.pool = Objects.requireNonNull(pool, "Pool must not be null.");
+		if (parallelThreshold < 1)
+			throw new IllegalArgumentException("Parallel threshold must be greater than zero, but was "
+				+ parallelThreshold + ".");
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * Returns the width of the specified element. The element is only measured the first time this method or
+	 * {@link #getHeight(HCPElement)} is called for it.
+	 * 
+	 * @param element not {@code null}
+	 * @return the width of the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 */
+	public float getWidth(HCPElement element) throws IOException {
+		Measurement measurement = getMeasurement(element);
+		if (Float.isNaN(measurement.width))
+			measurement.width = element.getWidth(this);
+		return measurement.width;
+	}
+
+	/**
+	 * Returns the height of the specified element. The element is only measured the first time this method or
+	 * {@link #getWidth(HCPElement)} is called for it.
+	 * 
+	 * @param element not {@code null}
+	 * @return the height of the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 */
+	public float getHeight(HCPElement element) throws IOException {
+		Measurement measurement = getMeasurement(element);
+		if (Float.isNaN(measurement.height))
+			measurement.height = element.getHeight(this);
+		return measurement.height;
+	}
+
+	/**
+	 * Returns the minimum width of the specified element. The element is only measured the first time this method is
+	 * called for it.
+	 * 
+	 * @param element not {@code null}
+	 * @return the minimum width of the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 * @see HCPElement#getMinWidth(HCPMeasureContext)
+	 */
+	public float getMinWidth(HCPElement element) throws IOException {
+		Measurement measurement = getMeasurement(element);
+		if (Float.isNaN(measurement.minWidth))
+			measurement.minWidth = element.getMinWidth(this);
+		return measurement.minWidth;
+	}
+
+	/**
+	 * Returns the maximum width of the specified element. The element is only measured the first time this method is
+	 * called for it.
+	 * 
+	 * @param element not {@code null}
+	 * @return the maximum width of the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 * @see HCPElement#getMaxWidth(HCPMeasureContext)
+	 */
+	public float getMaxWidth(HCPElement element) throws IOException {
+		Measurement measurement = getMeasurement(element);
+		if (Float.isNaN(measurement.maxWidth))
+			measurement.maxWidth = element.getMaxWidth(this);
+		return measurement.maxWidth;
+	}
+
+	/**
+	 * Returns the height of the specified element if it is painted with the specified width. The element is only
+	 * measured the first time this method is called for it with a given width. Negative widths are treated as zero.
+	 * <p>
+	 * The heights of each element are remembered for the last four widths it has been measured at, so that looking up
+	 * a height takes constant time and the memory used per element is bounded. This covers the widths a layout usually
+	 * measures an element at (for example its preferred width and the width assigned to it). An element measured at
+	 * more widths, for example while the columns of a table are shrunk step by step, is measured again when one of the
+	 * older widths is requested.
+	 * 
+	 * @param element not {@code null}
+	 * @param width the width available to the element
+	 * @return the height of the element at the specified width
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 * @see HCPElement#getHeight(HCPMeasureContext, float)
+	 */
+	public float getHeight(HCPElement element, float width) throws IOException {
+		width = Math.max(width, 0);
+		Measurement measurement = getMeasurement(element);
+		int index = measurement.findHeight(width);
+		if (index >= 0)
+			return measurement.heights[index];
+		float height = element.getHeight(this, width);
+		measurement.putHeight(width, height);
+		return height;
+	}
+
+	/**
+	 * Splits the specified element into a part which fits into the specified height if it is painted with the
+	 * specified width and the remainder. Elements which are {@link HCPSplittable} are split using
+	 * {@link HCPSplittable#split(HCPMeasureContext, float, float)}. All other elements either fit as a whole or not at
+	 * all, depending on their height at the specified width. Negative widths are treated as zero.
+	 *
+	 * @param element not {@code null}
+	 * @param width the width available to the element
+	 * @param height the height available to the fitting part
+	 * @return the split of the element; not {@code null}
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 */
+	public HCPSplit split(HCPElement element, float width, float height) throws IOException {
+		width = Math.max(width, 0);
+		if (element instanceof HCPSplittable)
+			return ((HCPSplittable) element).split(this, width, height);
+		return getHeight(element, width) <= height ? HCPSplit.fitting(element) : HCPSplit.notFitting(element);
+	}
+
+	/**
+	 * Splits the specified element like {@link #split(HCPElement, float, float)}, but always returns a head, even if it
+	 * does not fit into the specified height. Elements which are {@link HCPSplittable} are split using
+	 * {@link HCPSplittable#forceSplit(HCPMeasureContext, float, float)}, so that only their smallest part is returned
+	 * as the head. All other elements are returned as a whole as the head. Negative widths are treated as zero.
+	 *
+	 * @param element not {@code null}
+	 * @param width the width available to the element
+	 * @param height the height available to the fitting part
+	 * @return the split of the element with a head; not {@code null}
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 */
+	public HCPSplit forceSplit(HCPElement element, float width, float height) throws IOException {
+		width = Math.max(width, 0);
+		if (element instanceof HCPSplittable)
+			return ((HCPSplittable) element).forceSplit(this, width, height);
+		return HCPSplit.fitting(element);
+	}
+
+	/**
+	 * Measures the widths of all specified elements, so that subsequent calls to {@link #getWidth(HCPElement)} for
+	 * these elements return immediately. Containers should call this method before requesting the widths of their
+	 * children one after another.
+	 * <p>
+	 * If this context has been configured for parallel measurement and enough elements have not been measured yet,
+	 * they are measured in parallel. Otherwise this method does nothing and the elements are measured when their widths
+	 * are requested.
+	 * 
+	 * @param elements not {@code null}; must not contain {@code null}
+	 * @throws NullPointerException if elements is {@code null} or contains {@code null}
+	 * @throws IOException if an error occurs while measuring an element
+	 */
+	public void measureWidths(HCPElement[] elements) throws IOException {
+		measure(elements, true);
+	}
+
+	/**
+	 * Measures the heights of all specified elements, so that subsequent calls to {@link #getHeight(HCPElement)} for
+	 * these elements return immediately. Containers should call this method before requesting the heights of their
+	 * children one after another.
+	 * <p>
+	 * If this context has been configured for parallel measurement and enough elements have not been measured yet,
+	 * they are measured in parallel. Otherwise this method does nothing and the elements are measured when their
+	 * heights are requested.
+	 * 
+	 * @param elements not {@code null}; must not contain {@code null}
+	 * @throws NullPointerException if elements is {@code null} or contains {@code null}
+	 * @throws IOException if an error occurs while measuring an element
+	 */
+	public void measureHeights(HCPElement[] elements) throws IOException {
+		measure(elements, false);
+	}
+
+	/**
+	 * Measures the heights of all specified elements at the widths at the same indices, so that subsequent calls to
+	 * {@link #getHeight(HCPElement, float)} for these elements and widths return immediately. If a width is
+	 * {@link Float#NaN}, the height of the element is measured without a width instead (see
+	 * {@link #getHeight(HCPElement)}). Containers which request the heights of their children at the widths they
+	 * assign to them should call this method instead of {@link #measureHeights(HCPElement[])}.
+	 * <p>
+	 * If this context has been configured for parallel measurement and enough elements have not been measured yet,
+	 * they are measured in parallel. Otherwise this method does nothing and the elements are measured when their
+	 * heights are requested.
+	 * 
+	 * @param elements not {@code null}; must not contain {@code null}
+	 * @param widths the widths available to the elements; not {@code null}; must be at least as long as elements
+	 * @throws NullPointerException if elements or widths is {@code null} or elements contains {@code null}
+	 * @throws ArrayIndexOutOfBoundsException if widths is shorter than elements
+	 * @throws IOException if an error occurs while measuring an element
+	 */
+	public void measureHeights(HCPElement[] elements, float[] widths) throws IOException {
+		Objects.requireNonNull(widths, "Widths must not be null.");
+		measure(elements, index -> {
+			float width = widths[index];
+			if (Float.isNaN(width))
+				return isMeasured(elements[index], false);
+			Measurement measurement = measurements.get(Objects.requireNonNull(elements[index],
+				"Element must not be null."));
+			return measurement != null && measurement.findHeight(Math.max(width, 0)) >= 0;
+		}, (context, index) -> {
+			float width = widths[index];
+			if (Float.isNaN(width))
+				context.getHeight(elements[index]);
+			else
+				context.getHeight(elements[index], width);
+		});
+	}
+
+	private void measure(HCPElement[] elements, boolean widths) throws IOException {
+		measure(elements, index -> isMeasured(elements[index], widths), (context, index) -> {
+			if (widths)
+				context.getWidth(elements[index]);
+			else
+				context.getHeight(elements[index]);
+		});
+	}
+
+	private void measure(HCPElement[] elements, IntPredicate measured, IndexMeasurer measurer) throws IOException {
+		if (elements.length < parallelThreshold)
+			return;
+		int count = 0;
+		for (int index = 0; index < elements.length; index++)
+			if (!measured.test(index))
+				count++;
+		if (count < parallelThreshold)
+			return;
+
+		int[] unmeasured = new int[count];
+		for (int index = 0, next = 0; index < elements.length; index++)
+			if (!measured.test(index))
+				unmeasured[next++] = index;
+		int chunkSize = Math.max(1, (count + 4 * pool.getParallelism() - 1) / (4 * pool.getParallelism()));
+		List<Callable<HCPMeasureContext>> tasks = new ArrayList<>();
+		for (int start = 0; start < count; start += chunkSize) {
+			int chunkStart = start, chunkEnd = Math.min(start + chunkSize, count);
+			tasks.add(() -> {
+				HCPMeasureContext context = new HCPMeasureContext();
+				for (int index = chunkStart; index < chunkEnd; index++)
+					measurer.measure(context, unmeasured[index]);
+				return context;
+			});
+		}
+		for (Future<HCPMeasureContext> result : pool.invokeAll(tasks))
+			merge(getResult(result));
+	}
+
+	@FunctionalInterface
+	private static interface IndexMeasurer {
+		void measure(HCPMeasureContext context, int index) throws IOException;
+	}
+
+	private boolean isMeasured(HCPElement element, boolean width) {
+		Measurement measurement = measurements.get(Objects.requireNonNull(element, "Element must not be null."));
+		return measurement != null && !Float.isNaN(width ? measurement.width : measurement.height);
+	}
+
+	private static HCPMeasureContext getResult(Future<HCPMeasureContext> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while measuring elements in parallel.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	private void merge(HCPMeasureContext context) {
+		for (Map.Entry<HCPElement, Measurement> entry : context.measurements.entrySet()) {
+			Measurement measurement = getMeasurement(entry.getKey());
+			if (Float.isNaN(measurement.width))
+				measurement.width = entry.getValue().width;
+			if (Float.isNaN(measurement.height))
+				measurement.height = entry.getValue().height;
+			if (Float.isNaN(measurement.minWidth))
+				measurement.minWidth = entry.getValue().minWidth;
+			if (Float.isNaN(measurement.maxWidth))
+				measurement.maxWidth = entry.getValue().maxWidth;
+			Measurement merged = entry.getValue();
+			for (int index = 0; index < merged.heightCount; index++)
+				if (measurement.findHeight(merged.heightWidths[index]) < 0)
+					measurement.putHeight(merged.heightWidths[index], merged.heights[index]);
+		}
+	}
+
+	/**
+	 * Returns a reusable array which the specified element can use as scratch space, for example to store the results
+	 * of an {@link eu.greenlightning.hypercubepdf.layout.HCPLayout} while it is painted. The same array is returned
+	 * every time this method is called with the same element, index and length, so painting an element repeatedly
+	 * through the same context does not create new arrays.
+	 * <p>
+	 * The contents of the array are undefined. Because an element cannot contain itself, an element can use its buffers
+	 * until it has finished painting, but must not expect their contents to be retained afterwards.
+	 * 
+	 * @param element not {@code null}
+	 * @param index the index of the buffer; must be {@literal >= 0}
+	 * @param length the length of the buffer; must be {@literal >= 0}
+	 * @return an array of the requested length with undefined contents
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IllegalArgumentException if index or length is {@literal < 0}
+	 */
+	public float[] getBuffer(HCPElement element, int index, int length) {
+		if (index < 0)
+			throw new IllegalArgumentException("Index must be equal to or greater than zero, but was " + index + ".");
+		if (length < 0)
+			throw new IllegalArgumentException("Length must be equal to or greater than zero, but was " + length + ".");
+		Measurement measurement = getMeasurement(element);
+		if (measurement.buffers == null)
+			measurement.buffers = new float[index + 1][];
+		else if (measurement.buffers.length <= index)
+			measurement.buffers = Arrays.copyOf(measurement.buffers, index + 1);
+		float[] buffer = measurement.buffers[index];
+		if (buffer == null || buffer.length != length)
+			measurement.buffers[index] = buffer = new float[length];
+		return buffer;
+	}
+
+	private Measurement getMeasurement(HCPElement element) {
+		Objects.requireNonNull(element, "Element must not be null.");
+		Measurement measurement = measurements.get(element);
+		if (measurement == null) {
+			measurement = new Measurement();
+			measurements.put(element, measurement);
+		}
+		measurement.generation = generation;
+		return measurement;
+	}
+
+	void touch(HCPElement element) {
+		getMeasurement(element);
+	}
+
+	/**
+	 * Returns the number of elements for which this context holds measurements.
+	 * 
+	 * @return the number of measured elements
+	 */
+	public int size() {
+		return measurements.size();
+	}
+
+	/**
+	 * Forgets all measurements.
+	 */
+	public void clear() {
+		measurements.clear();
+	}
+
+	/**
+	 * Forgets the measurements of all elements which have not been used since the last call to this method (or since
+	 * this context has been created). An element is used if it is measured, if its size or one of its buffers is
+	 * requested or if it is painted through an {@link HCPRenderContext} using this context.
+	 * <p>
+	 * This method allows to keep a context for a hierarchy which changes over time (see
+	 * {@link HCPElement#replace(HCPElement, HCPElement)}) without keeping the elements which have been replaced. Call
+	 * it after each paint, to keep only the measurements of the elements in the current hierarchy.
+	 * 
+	 * @return the number of elements whose measurements have been removed
+	 */
+	public int sweep() {
+		int size = measurements.size();
+		measurements.values().removeIf(measurement -> measurement.generation != generation);
+		generation++;
+		return size - measurements.size();
+	}
+
+	private static final class Measurement {
+		private float width = Float.NaN;
+		private float height = Float.NaN;
+		private float minWidth = Float.NaN;
+		private float maxWidth = Float.NaN;
+		// Heights for the most recently measured widths, replaced in the order in which they were measured
+		private float[] heightWidths, heights;
+		private int heightCount, nextHeight;
+		private float[][] buffers;
+		private int generation;
+
+		private int findHeight(float width) {
+			for (int index = 0; index < heightCount; index++)
+				if (heightWidths[index] == width)
+					return index;
+			return -1;
+		}
+
+		private void putHeight(float width, float height) {
+			if (heights == null) {
+				heightWidths = new float[HEIGHT_CACHE_SIZE];
+				heights = new float[HEIGHT_CACHE_SIZE];
+			}
+			heightWidths[nextHeight] = width;
+			heights[nextHeight] = height;
+			nextHeight = (nextHeight + 1) % HEIGHT_CACHE_SIZE;
+			if (heightCount < HEIGHT_CACHE_SIZE)
+				heightCount++;
+		}
+	}
+
+}
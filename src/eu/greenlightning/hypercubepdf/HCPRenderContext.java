@@ -0,0 +1,214 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+/**
+ * Holds everything an {@link HCPElement} needs while it is being painted: the {@link PDPageContentStream} to paint to
+ * and an {@link HCPMeasureContext} which remembers the sizes of all elements that have been measured so far.
+ * <p>
+ * Containers which paint their children through a render context reuse the sizes measured while the container itself
+ * was measured, instead of measuring each child again.
+ * <p>
+ * A render context can also be used to record an {@link HCPLayoutPlan}. In this case there is no content stream and
+ * leaves are added to the plan instead of being painted (see {@link #paintLeaf(HCPElement, float, float, float, float)
+ * paintLeaf()}).
+ * <p>
+ * This class is <b>not</b> thread-safe.
+ *
+ * @author Green Lightning
+ * @see HCPElement#paint(HCPRenderContext, float, float, float, float)
+ */
+public final class HCPRenderContext {
+
+	private final PDPageContentStream content;
+	private final HCPMeasureContext measureContext;
+	private final HCPLayoutPlan.Recorder recorder;
+
+	/**
+	 * Creates a render context for the specified stream using a new {@link HCPMeasureContext}.
+	 * 
+	 * @param content not {@code null}
+	 * @throws NullPointerException if content is {@code null}
+	 */
+	public HCPRenderContext(PDPageContentStream content) {
+		this(content, new HCPMeasureContext());
+	}
+
+	/**
+	 * Creates a render context for the specified stream using the specified {@link HCPMeasureContext}. Sizes already
+	 * known to the measure context will not be measured again.
+	 * 
+	 * @param content not {@code null}
+	 * @param measureContext not {@code null}
+	 * @throws NullPointerException if content or measureContext is {@code null}
+	 */
+	public HCPRenderContext(PDPageContentStream content, HCPMeasureContext measureContext) {
+		this.content = Objects.requireNonNull(content, "Content must not be null.");
+		this.measureContext = Objects.requireNonNull(measureContext, "Measure context must not be null.");
+		this.recorder = null;
+	}
+
+	HCPRenderContext(HCPLayoutPlan.Recorder recorder, HCPMeasureContext measureContext) {
+		this.content = null;
+		this.measureContext = Objects.requireNonNull(measureContext, "Measure context must not be null.");
+		this.recorder = Objects.requireNonNull(recorder, "Recorder must not be null.");
+	}
+
+	/**
+	 * Returns {@code true} if this context records an {@link HCPLayoutPlan} instead of painting to a content stream.
+	 * 
+	 * @return whether this context records a layout plan
+	 */
+	public boolean isRecording() {
+		return recorder != null;
+	}
+
+	/**
+	 * Returns the stream to paint to.
+	 * 
+	 * @return the content stream; not {@code null}
+	 * @throws IllegalStateException if this context records a layout plan
+	 */
+	public PDPageContentStream getContent() {
+		if (recorder != null)
+			throw new IllegalStateException("Cannot access the content stream while recording a layout plan.");
+		return content;
+	}
+
+	/**
+	 * Returns the measure context used by this render context.
+	 * 
+	 * @return the measure context; not {@code null}
+	 */
+	public HCPMeasureContext getMeasureContext() {
+		return measureContext;
+	}
+
+	/**
+	 * Returns the width of the specified element as remembered by the measure context of this render context.
+	 * 
+	 * @param element not {@code null}
+	 * @return the width of the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 * @see HCPMeasureContext#getWidth(HCPElement)
+	 */
+	public float getWidth(HCPElement element) throws IOException {
+		return measureContext.getWidth(element);
+	}
+
+	/**
+	 * Returns the height of the specified element as remembered by the measure context of this render context.
+	 * 
+	 * @param element not {@code null}
+	 * @return the height of the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 * @see HCPMeasureContext#getHeight(HCPElement)
+	 */
+	public float getHeight(HCPElement element) throws IOException {
+		return measureContext.getHeight(element);
+	}
+
+	/**
+	 * Returns the height of the specified element at the specified width as remembered by the measure context of this
+	 * render context.
+	 * 
+	 * @param element not {@code null}
+	 * @param width the width available to the element
+	 * @return the height of the element at the specified width
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if an error occurs while measuring the element
+	 * @see HCPMeasureContext#getHeight(HCPElement, float)
+	 */
+	public float getHeight(HCPElement element, float width) throws IOException {
+		return measureContext.getHeight(element, width);
+	}
+
+	/**
+	 * Returns a reusable array which the specified element can use as scratch space while it is painted.
+	 * 
+	 * @param element not {@code null}
+	 * @param index the index of the buffer; must be {@literal >= 0}
+	 * @param length the length of the buffer; must be {@literal >= 0}
+	 * @return an array of the requested length with undefined contents
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IllegalArgumentException if index or length is {@literal < 0}
+	 * @see HCPMeasureContext#getBuffer(HCPElement, int, int)
+	 */
+	public float[] getBuffer(HCPElement element, int index, int length) {
+		return measureContext.getBuffer(element, index, length);
+	}
+
+	/**
+	 * Paints the element inside the specified shape.
+	 * 
+	 * @param element not {@code null}
+	 * @param shape not {@code null}
+	 * @throws NullPointerException if element or shape is {@code null}
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	public void paint(HCPElement element, PDRectangle shape) throws IOException {
+		Objects.requireNonNull(shape, "Shape must not be null.");
+		paint(element, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
+	}
+
+	/**
+	 * Paints the element inside the shape defined by the specified coordinates.
+	 * 
+	 * @param element not {@code null}
+	 * @param lowerLeftX the smaller x-coordinate of the shape
+	 * @param lowerLeftY the smaller y-coordinate of the shape
+	 * @param upperRightX the larger x-coordinate of the shape
+	 * @param upperRightY the larger y-coordinate of the shape
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	public void paint(HCPElement element, float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY)
+		throws IOException {
+		measureContext.touch(element);
+		if (recorder == null) {
+			element.paint(this, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+		} else if (!recorder.reuse(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY, measureContext)) {
+			int segment = recorder.begin(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			element.paint(this, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			recorder.end(segment);
+		}
+	}
+
+	/**
+	 * Paints a leaf, i.&nbsp;e. an element which paints itself instead of painting other elements through this
+	 * context. The {@link HCPElement#paint(PDPageContentStream, float, float, float, float)} method of the element is
+	 * called, unless
+	 * this context records an {@link HCPLayoutPlan}, in which case the element and its shape are added to the plan.
+	 * <p>
+	 * This method is called by the default implementation of
+	 * {@link HCPElement#paint(HCPRenderContext, float, float, float, float)}.
+	 * 
+	 * @param element not {@code null}
+	 * @param lowerLeftX the smaller x-coordinate of the shape
+	 * @param lowerLeftY the smaller y-coordinate of the shape
+	 * @param upperRightX the larger x-coordinate of the shape
+	 * @param upperRightY the larger y-coordinate of the shape
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	public void paintLeaf(HCPElement element, float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY)
+		throws IOException {
+		Objects.requireNonNull(element, "Element must not be null.");
+		if (recorder != null)
+			recorder.add(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+		else
+			element.paint(content, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+	}
+
+	static PDRectangle createShape(float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY) {
+		return new PDRectangle(new BoundingBox(lowerLeftX, lowerLeftY, upperRightX, upperRightY));
+	}
+
+}
@@ -173,16 +173,55 @@ public final class HCPSized implements HCPElement {
 		return usesElementWidth() ? element.getWidth() : width;
 	}
 
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return usesElementWidth() ? context.getWidth(element) : width;
+	}
+
 	@Override
 	public float getHeight() throws IOException {
 		return usesElementHeight() ? element.getHeight() : height;
 	}
 
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return usesElementHeight() ? context.getHeight(element) : height;
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return usesElementWidth() ? context.getMinWidth(element) : width;
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return usesElementWidth() ? context.getMaxWidth(element) : width;
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return usesElementHeight() ? context.getHeight(element, width) : height;
+	}
+
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
 		element.paint(content, shape);
 	}
 
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		context.paint(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement element = this.element.replace(target, replacement);
+		return element == this.element ? this : new HCPSized(element, width, height);
+	}
+
 	@Override
 	public boolean equals(Object object) {
 		if (object == this)
@@ -0,0 +1,91 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.util.Objects;
+
+/**
+ * The result of splitting an element (see {@link HCPSplittable}): the head, which fits into the available height, and
+ * the tail, which has to be painted somewhere else. Either part may be missing, if the element fits as a whole or if
+ * nothing of it fits.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public final class HCPSplit {
+
+	/**
+	 * Returns a split in which the specified element fits as a whole.
+	 *
+	 * @param element not {@code null}
+	 * @return a split with the element as the head and without a tail
+	 * @throws NullPointerException if element is {@code null}
+	 */
+	public static HCPSplit fitting(HCPElement element) {
+		return new HCPSplit(Objects.requireNonNull(element, "Element must not be null."), null);
+	}
+
+	/**
+	 * Returns a split in which no part of the specified element fits.
+	 *
+	 * @param element not {@code null}
+	 * @return a split without a head and with the element as the tail
+	 * @throws NullPointerException if element is {@code null}
+	 */
+	public static HCPSplit notFitting(HCPElement element) {
+		return new HCPSplit(null, Objects.requireNonNull(element, "Element must not be null."));
+	}
+
+	/**
+	 * Returns a split consisting of the specified parts.
+	 *
+	 * @param head not {@code null}
+	 * @param tail not {@code null}
+	 * @return a split with the specified head and tail
+	 * @throws NullPointerException if head or tail is {@code null}
+	 */
+	public static HCPSplit create(HCPElement head, HCPElement tail) {
+		Objects.requireNonNull(head, "Head must not be null.");
+		Objects.requireNonNull(tail, "Tail must not be null.");
+		return new HCPSplit(head, tail);
+	}
+
+	private final HCPElement head, tail;
+
+	private HCPSplit(HCPElement head, HCPElement tail) {
+		this.head = head;
+		this.tail = tail;
+	}
+
+	/**
+	 * Returns the part which fits into the available height.
+	 *
+	 * @return the head; {@code null} if nothing fits
+	 */
+	public HCPElement getHead() {
+		return head;
+	}
+
+	/**
+	 * Returns the part which does not fit into the available height.
+	 *
+	 * @return the tail; {@code null} if everything fits
+	 */
+	public HCPElement getTail() {
+		return tail;
+	}
+
+	/**
+	 * Returns whether the element fits as a whole.
+	 *
+	 * @return {@code true} if there is no tail
+	 */
+	public boolean isComplete() {
+		return tail == null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[HCPSplit: head=%s, tail=%s]", head, tail);
+	}
+
+}
@@ -0,0 +1,69 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.io.IOException;
+
+/**
+ * An {@link HCPElement} which can be divided into a part which fits into a given height and the remainder, so that it
+ * can be continued on the next page.
+ * <p>
+ * Splitting does not change the element (elements are immutable). Instead, the parts are new elements, which share the
+ * unchanged children of the element. Because all sizes are requested through an {@link HCPMeasureContext}, the sizes
+ * measured while splitting are reused when the fitting part is painted and when the remainder is split again, as long
+ * as the same context is used.
+ * <p>
+ * Elements which are not splittable can only be placed as a whole (see
+ * {@link HCPMeasureContext#split(HCPElement, float, float)}). At the top of an empty page, where the remainder would
+ * not fit either, elements are split with {@link #forceSplit(HCPMeasureContext, float, float)} instead, so that an
+ * element which is too high for a whole page is cut off without losing the content after it.
+ *
+ * @author Green Lightning
+ * @see eu.greenlightning.hypercubepdf.page.HCPDocumentFlow
+ */
+public interface HCPSplittable extends HCPElement {
+
+	/**
+	 * Splits this element into a part which fits into the specified height if it is painted with the specified width
+	 * and the remainder.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#split(HCPElement, float, float)}
+	 * should be used.
+	 * <p>
+	 * If this element fits as a whole, it is returned as the head of the split without a tail. If not even the smallest
+	 * part of this element fits, it is returned as the tail without a head. Otherwise the height of the head at the
+	 * specified width (see {@link HCPMeasureContext#getHeight(HCPElement, float)}) must not be greater than the
+	 * specified height.
+	 *
+	 * @param context not {@code null}
+	 * @param width the width available to this element; {@literal >= 0}
+	 * @param height the height available to the head
+	 * @return the split of this element; not {@code null}
+	 * @throws IOException if an error occurs while measuring
+	 */
+	HCPSplit split(HCPMeasureContext context, float width, float height) throws IOException;
+
+	/**
+	 * Splits this element like {@link #split(HCPMeasureContext, float, float)}, but always returns a head.
+	 * <p>
+	 * This method should not be called directly. Instead {@link HCPMeasureContext#forceSplit(HCPElement, float, float)}
+	 * should be used.
+	 * <p>
+	 * If not even the smallest part of this element fits, the smallest part is returned as the head anyway and the rest
+	 * of this element as the tail. The head may then be higher than the specified height and is cut off when it is
+	 * painted. For example, a vertical flow returns its first child (or the forced head of its first child) as the head
+	 * and the remaining children as the tail. Otherwise the split is the same as the one returned by
+	 * {@link #split(HCPMeasureContext, float, float)}.
+	 * <p>
+	 * The default implementation returns this element as a whole as the head if the split has no head.
+	 *
+	 * @param context not {@code null}
+	 * @param width the width available to this element; {@literal >= 0}
+	 * @param height the height available to the head
+	 * @return the split of this element with a head; not {@code null}
+	 * @throws IOException if an error occurs while measuring
+	 */
+	default HCPSplit forceSplit(HCPMeasureContext context, float width, float height) throws IOException {
+		HCPSplit split = split(context, width, height);
+		return split.getHead() == null ? HCPSplit.fitting(this) : split;
+	}
+
+}
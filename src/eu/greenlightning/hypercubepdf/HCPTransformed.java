@@ -0,0 +1,239 @@
+package eu.greenlightning.hypercubepdf;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+/**
+ * An {@link HCPElement} wrapper which rotates and scales the element by any angle and factors.
+ * <p>
+ * The element is painted at its own size and transformed around its center by a single change of the current
+ * transformation matrix, so that any hierarchy, for example a table or a diagram, can be rotated without building it
+ * differently. The element is first scaled and then rotated counterclockwise. The size of the wrapper is the size of
+ * the bounding box of the transformed element, which is calculated from the size of the element (as remembered by an
+ * {@link HCPMeasureContext}), so that the element is not measured again. The transformed element is centered inside
+ * the shape it is painted with.
+ * <p>
+ * When an {@link HCPLayoutPlan} is recorded, the wrapper is recorded as a leaf, because the plan cannot represent the
+ * transformed shapes of the elements inside it.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public final class HCPTransformed implements HCPElement {
+
+	/**
+	 * Wraps the element rotating it counterclockwise by the specified angle.
+	 *
+	 * @param element not {@code null}
+	 * @param degrees the angle in degrees; must be finite
+	 * @return a wrapper for element with the specified rotation
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IllegalArgumentException if degrees is not finite
+	 */
+	public static HCPTransformed withRotation(HCPElement element, double degrees) {
+		return new HCPTransformed(element, degrees, 1, 1);
+	}
+
+	/**
+	 * Wraps the element scaling it by the specified factor in both directions.
+	 *
+	 * @param element not {@code null}
+	 * @param scale must be finite and {@literal > 0}
+	 * @return a wrapper for element with the specified scale
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IllegalArgumentException if scale is not finite or {@literal <= 0}
+	 */
+	public static HCPTransformed withScale(HCPElement element, float scale) {
+		return new HCPTransformed(element, 0, scale, scale);
+	}
+
+	/**
+	 * Wraps the element scaling it by the specified factors and then rotating it counterclockwise by the specified
+	 * angle.
+	 *
+	 * @param element not {@code null}
+	 * @param degrees the angle in degrees; must be finite
+	 * @param scaleX the factor along the x-axis of the element; must be finite and {@literal > 0}
+	 * @param scaleY the factor along the y-axis of the element; must be finite and {@literal > 0}
+	 * @return a wrapper for element with the specified transformation
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IllegalArgumentException if degrees is not finite or scaleX or scaleY is not finite or {@literal <= 0}
+	 */
+	public static HCPTransformed withTransform(HCPElement element, double degrees, float scaleX, float scaleY) {
+		return new HCPTransformed(element, degrees, scaleX, scaleY);
+	}
+
+	private final HCPElement element;
+	private final double degrees;
+	private final float scaleX, scaleY;
+	// The linear part of the transformation matrix.
+	private final double a, b, c, d;
+
+	private HCPTransformed(HCPElement element, double degrees, float scaleX, float scaleY) {
+		this.element = Objects.requireNonNull(element, "Element must not be null.");
+		if (Double.isNaN(degrees) || Double.isInfinite(degrees))
+			throw new IllegalArgumentException("Degrees must be finite, but was " + degrees + ".");
+		this.degrees = degrees;
+		this.scaleX = checkScale(scaleX, "Scale x");
+		this.scaleY = checkScale(scaleY, "Scale y");
+		double radians = Math.toRadians(degrees);
+		double cos = round(Math.cos(radians)), sin = round(Math.sin(radians));
+		this.a = scaleX * cos;
+		this.b = scaleX * sin;
+		this.c = -scaleY * sin;
+		this.d = scaleY * cos;
+	}
+
+	private float checkScale(float scale, String name) {
+		if (!(scale > 0) || Float.isInfinite(scale))
+			throw new IllegalArgumentException(name + " must be finite and greater than zero, but was " + scale + ".");
+		return scale;
+	}
+
+	// Removes the rounding errors of multiples of 90°, which would otherwise enlarge the bounding box.
+	private static double round(double value) {
+		return Math.abs(value) < 1e-12 ? 0 : value;
+	}
+
+	/**
+	 * Returns the element wrapped by this instance.
+	 *
+	 * @return the element wrapped by this instance; not {@code null}
+	 */
+	public HCPElement getElement() {
+		return element;
+	}
+
+	/**
+	 * Returns the counterclockwise rotation.
+	 *
+	 * @return the angle in degrees
+	 */
+	public double getDegrees() {
+		return degrees;
+	}
+
+	/**
+	 * Returns the factor along the x-axis of the element.
+	 *
+	 * @return the horizontal scale
+	 */
+	public float getScaleX() {
+		return scaleX;
+	}
+
+	/**
+	 * Returns the factor along the y-axis of the element.
+	 *
+	 * @return the vertical scale
+	 */
+	public float getScaleY() {
+		return scaleY;
+	}
+
+	private float getTransformedWidth(float width, float height) {
+		return (float) (Math.abs(a * width) + Math.abs(c * height));
+	}
+
+	private float getTransformedHeight(float width, float height) {
+		return (float) (Math.abs(b * width) + Math.abs(d * height));
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getTransformedWidth(element.getWidth(), element.getHeight());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return getTransformedWidth(context.getWidth(element), context.getHeight(element));
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return getTransformedHeight(element.getWidth(), element.getHeight());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return getTransformedHeight(context.getWidth(element), context.getHeight(element));
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		new HCPRenderContext(content).paint(this, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		if (context.isRecording()) {
+			context.paintLeaf(this, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			return;
+		}
+		float width = context.getWidth(element), height = context.getHeight(element);
+		// Move the center of the element to the origin, transform it and move it to the center of the shape.
+		double centerX = (lowerLeftX + upperRightX) / 2.0, centerY = (lowerLeftY + upperRightY) / 2.0;
+		double e = centerX - (a * width + c * height) / 2;
+		double f = centerY - (b * width + d * height) / 2;
+		PDPageContentStream content = context.getContent();
+		content.saveGraphicsState();
+		content.concatenate2CTM(a, b, c, d, e, f);
+		context.paint(element, 0, 0, width, height);
+		content.restoreGraphicsState();
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement element = this.element.replace(target, replacement);
+		return element == this.element ? this : new HCPTransformed(element, degrees, scaleX, scaleY);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object == this)
+			return true;
+		if (!(object instanceof HCPTransformed))
+			return false;
+		HCPTransformed other = (HCPTransformed) object;
+		if (Double.compare(degrees, other.degrees) != 0)
+			return false;
+		if (Float.compare(scaleX, other.scaleX) != 0)
+			return false;
+		if (Float.compare(scaleY, other.scaleY) != 0)
+			return false;
+		if (!element.equals(other.element))
+			return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 17;
+		long bits = Double.doubleToLongBits(degrees);
+		result = 31 * result + (int) (bits ^ (bits >>> 32));
+		result = 31 * result + Float.floatToIntBits(scaleX);
+		result = 31 * result + Float.floatToIntBits(scaleY);
+		result = 31 * result + element.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[HCPTransformed: degrees=%s, scaleX=%s, scaleY=%s, element=%s]", degrees, scaleX, scaleY,
+			element);
+	}
+
+}
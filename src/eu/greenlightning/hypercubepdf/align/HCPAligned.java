@@ -7,6 +7,8 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 
 /**
  * An {@link HCPElement} wrapper which aligns the element inside the shape in which it is painted.
@@ -16,8 +18,8 @@ import eu.greenlightning.hypercubepdf.HCPElement;
  * The element will be painted using the width returned by it's {@linkplain HCPElement#getWidth() getWidth()} method and
  * it will be aligned in the target shape using the specified horizontal alignment. However, if the element is wider
  * than the target shape, then it will be painted using the width of the target shape making alignment not necessary.
- * The same logic is applied independently to the element's height calling it's {@linkplain HCPElement#getHeight()
- * getHeight()} method.
+ * The same logic is applied to the element's height, which is determined by calling
+ * {@link HCPMeasureContext#getHeight(HCPElement, float)} with the width the element is painted with.
  * <p>
  * If no alignment is specified ({@linkplain #withHorizontalAlignment(HCPElement, HCPHorizontalAlignment)
  * withHorizontalAlignment()} does not specify a vertical alignment and
@@ -138,37 +140,65 @@ public class HCPAligned implements HCPElement {
 		return element.getWidth();
 	}
 
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return context.getWidth(element);
+	}
+
 	@Override
 	public float getHeight() throws IOException {
 		return element.getHeight();
 	}
 
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return context.getHeight(element);
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return context.getMinWidth(element);
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return context.getMaxWidth(element);
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		if (horizontal != null)
+			width = Math.min(context.getWidth(element), width);
+		return context.getHeight(element, width);
+	}
+
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle parentShape) throws IOException {
-		float width = Math.min(element.getWidth(), parentShape.getWidth());
-		float height = Math.min(element.getHeight(), parentShape.getHeight());
-		PDRectangle elementShape = new PDRectangle(width, height);
-		alignHorizontally(elementShape, parentShape);
-		alignVertically(elementShape, parentShape);
-		element.paint(content, elementShape);
+		new HCPRenderContext(content).paint(this, parentShape);
 	}
 
-	private void alignHorizontally(PDRectangle elementShape, PDRectangle parentShape) {
-		if (horizontal == null) {
-			elementShape.setLowerLeftX(parentShape.getLowerLeftX());
-			elementShape.setUpperRightX(parentShape.getUpperRightX());
-		} else {
-			horizontal.alignChildWithParent(elementShape, parentShape);
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		if (horizontal != null) {
+			float width = Math.min(context.getWidth(element), upperRightX - lowerLeftX);
+			lowerLeftX = horizontal.align(width, lowerLeftX, upperRightX);
+			upperRightX = lowerLeftX + width;
+		}
+		if (vertical != null) {
+			float height = Math.min(context.getHeight(element, upperRightX - lowerLeftX), upperRightY - lowerLeftY);
+			lowerLeftY = vertical.align(height, lowerLeftY, upperRightY);
+			upperRightY = lowerLeftY + height;
 		}
+		context.paint(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
 	}
 
-	private void alignVertically(PDRectangle elementShape, PDRectangle parentShape) {
-		if (vertical == null) {
-			elementShape.setLowerLeftY(parentShape.getLowerLeftY());
-			elementShape.setUpperRightY(parentShape.getUpperRightY());
-		} else {
-			vertical.alignChildWithParent(elementShape, parentShape);
-		}
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement element = this.element.replace(target, replacement);
+		return element == this.element ? this : new HCPAligned(element, horizontal, vertical);
 	}
 
 }
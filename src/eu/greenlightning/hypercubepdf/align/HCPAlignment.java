@@ -37,7 +37,8 @@ public enum HCPAlignment {
 
 	/**
 	 * Returns the {@link HCPAlignment} with the specified {@link HCPHorizontalAlignment} and
-	 * {@link HCPVerticalAlignment}.
+	 * {@link HCPVerticalAlignment}. {@link HCPHorizontalAlignment#JUSTIFY} is treated like
+	 * {@link HCPHorizontalAlignment#LEFT}.
 	 * 
 	 * @param horizontal not {@code null}
 	 * @param vertical not {@code null}
@@ -51,24 +52,27 @@ public enum HCPAlignment {
 		switch (vertical) {
 		case TOP:
 			switch (horizontal) {
-			case LEFT:   return TOP_LEFT;
-			case CENTER: return TOP;
-			case RIGHT:  return TOP_RIGHT;
-			default:     throw new IllegalArgumentException("Unknown horizontal alignment: " + horizontal + ".");
+			case LEFT:    return TOP_LEFT;
+			case JUSTIFY: return TOP_LEFT;
+			case CENTER:  return TOP;
+			case RIGHT:   return TOP_RIGHT;
+			default:      throw new IllegalArgumentException("Unknown horizontal alignment: " + horizontal + ".");
 			}
 		case CENTER:
 			switch (horizontal) {
-			case LEFT:   return LEFT;
-			case CENTER: return CENTER;
-			case RIGHT:  return RIGHT;
-			default:     throw new IllegalArgumentException("Unknown horizontal alignment: " + horizontal + ".");
+			case LEFT:    return LEFT;
+			case JUSTIFY: return LEFT;
+			case CENTER:  return CENTER;
+			case RIGHT:   return RIGHT;
+			default:      throw new IllegalArgumentException("Unknown horizontal alignment: " + horizontal + ".");
 			}
 		case BOTTOM:
 			switch (horizontal) {
-			case LEFT:   return BOTTOM_LEFT;
-			case CENTER: return BOTTOM;
-			case RIGHT:  return BOTTOM_RIGHT;
-			default:     throw new IllegalArgumentException("Unknown horizontal alignment: " + horizontal + ".");
+			case LEFT:    return BOTTOM_LEFT;
+			case JUSTIFY: return BOTTOM_LEFT;
+			case CENTER:  return BOTTOM;
+			case RIGHT:   return BOTTOM_RIGHT;
+			default:      throw new IllegalArgumentException("Unknown horizontal alignment: " + horizontal + ".");
 			}
 		default:
 			throw new IllegalArgumentException("Unknown vertical alignment: " + vertical + ".");
@@ -20,7 +20,13 @@ public enum HCPHorizontalAlignment {
 	CENTER(MIDDLE),
 
 	/** The right (larger) x-coordinates will be aligned. */
-	RIGHT(END);
+	RIGHT(END),
+
+	/**
+	 * Lines of text will be stretched to the full width by widening their spaces, except for the last line of each
+	 * paragraph. Everything else, including the last lines, will be aligned like {@link #LEFT}.
+	 */
+	JUSTIFY(BEGINNING);
 
 	private final HCPLineAlignment position;
 
@@ -7,6 +7,8 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 
 /**
  * An {@link HCPElement} wrapper which adds an empty border of a fixed size around the element. The border can have
@@ -180,20 +182,58 @@ public class HCPEmptyBorder implements HCPElement {
 		return left + element.getWidth() + right;
 	}
 
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return left + context.getWidth(element) + right;
+	}
+
 	@Override
 	public float getHeight() throws IOException {
 		return bottom + element.getHeight() + top;
 	}
 
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return bottom + context.getHeight(element) + top;
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return left + context.getMinWidth(element) + right;
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return left + context.getMaxWidth(element) + right;
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return bottom + context.getHeight(element, width - left - right) + top;
+	}
+
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		float width = shape.getWidth() - left - right;
-		float height = shape.getHeight() - bottom - top;
-		if (width > 0 && height > 0) {
-			PDRectangle elementShape = new PDRectangle(width, height);
-			elementShape.move(shape.getLowerLeftX() + left, shape.getLowerLeftY() + bottom);
-			element.paint(content, elementShape);
-		}
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		float leftX = lowerLeftX + left;
+		float rightX = upperRightX - right;
+		float lowerY = lowerLeftY + bottom;
+		float upperY = upperRightY - top;
+		if (leftX < rightX && lowerY < upperY)
+			context.paint(element, leftX, lowerY, rightX, upperY);
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement element = this.element.replace(target, replacement);
+		return element == this.element ? this : new HCPEmptyBorder(element, top, right, bottom, left);
 	}
 
 }
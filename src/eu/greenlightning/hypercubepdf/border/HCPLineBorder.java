@@ -7,7 +7,10 @@ import java.util.Objects;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
+import eu.greenlightning.hypercubepdf.HCPArea;
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 
 /**
  * An {@link HCPElement} wrapper which adds a colored border of a fixed size around the element. The border has the same
@@ -28,6 +31,7 @@ public class HCPLineBorder implements HCPElement {
 	private final HCPElement element;
 	private final Color color;
 	private final float size;
+	private final HCPElement frame, fill;
 
 	/**
 	 * Constructs a black line border with size 1 around the element.
@@ -63,6 +67,8 @@ public class HCPLineBorder implements HCPElement {
 		this.element = Objects.requireNonNull(element, "Element must not be null.");
 		this.color = Objects.requireNonNull(color, "Color must not be null.");
 		this.size = checkSize(size);
+		this.frame = new Frame();
+		this.fill = new HCPArea(color);
 	}
 
 	private float checkSize(float size) {
@@ -76,44 +82,94 @@ public class HCPLineBorder implements HCPElement {
 		return 2 * size + element.getWidth();
 	}
 
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return 2 * size + context.getWidth(element);
+	}
+
 	@Override
 	public float getHeight() throws IOException {
 		return 2 * size + element.getHeight();
 	}
 
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return 2 * size + context.getHeight(element);
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return 2 * size + context.getMinWidth(element);
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return 2 * size + context.getMaxWidth(element);
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return 2 * size + context.getHeight(element, width - 2 * size);
+	}
+
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		float elementWidth = shape.getWidth() - 2 * size;
-		float elementHeight = shape.getHeight() - 2 * size;
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		float elementWidth = upperRightX - lowerLeftX - 2 * size;
+		float elementHeight = upperRightY - lowerLeftY - 2 * size;
 		if (elementWidth > 0 && elementHeight > 0) {
-			paintBorder(content, shape);
-			paintElement(content, shape, elementWidth, elementHeight);
+			context.paint(frame, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+			context.paint(element, lowerLeftX + size, lowerLeftY + size, upperRightX - size, upperRightY - size);
 		} else {
-			fill(content, shape);
+			context.paint(fill, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
 		}
 	}
 
-	private void paintBorder(PDPageContentStream content, PDRectangle shape) throws IOException {
-		content.setStrokingColor(color);
-		content.setLineWidth(size);
-		float x = shape.getLowerLeftX() + size / 2;
-		float y = shape.getLowerLeftY() + size / 2;
-		float width = shape.getWidth() - size;
-		float height = shape.getHeight() - size;
-		content.addRect(x, y, width, height);
-		content.stroke();
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement element = this.element.replace(target, replacement);
+		return element == this.element ? this : new HCPLineBorder(element, color, size);
 	}
 
-	private void paintElement(PDPageContentStream content, PDRectangle shape, float elementWidth, float elementHeight)
-		throws IOException {
-		PDRectangle elementShape = new PDRectangle(elementWidth, elementHeight);
-		elementShape.move(shape.getLowerLeftX() + size, shape.getLowerLeftY() + size);
-		element.paint(content, elementShape);
-	}
+	// Paints only the border itself, so that it can be recorded in a layout plan like any other element.
+	private class Frame implements HCPElement {
+
+		@Override
+		public float getWidth() {
+			return 2 * size;
+		}
+
+		@Override
+		public float getHeight() {
+			return 2 * size;
+		}
+
+		@Override
+		public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+			paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(),
+				shape.getUpperRightY());
+		}
+
+		@Override
+		public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+			float upperRightY) throws IOException {
+			content.setStrokingColor(color);
+			content.setLineWidth(size);
+			float x = lowerLeftX + size / 2;
+			float y = lowerLeftY + size / 2;
+			float width = upperRightX - lowerLeftX - size;
+			float height = upperRightY - lowerLeftY - size;
+			content.addRect(x, y, width, height);
+			content.stroke();
+		}
 
-	private void fill(PDPageContentStream content, PDRectangle shape) throws IOException {
-		content.setNonStrokingColor(color);
-		content.fillRect(shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getWidth(), shape.getHeight());
 	}
 
 }
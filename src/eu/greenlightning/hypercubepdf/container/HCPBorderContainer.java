@@ -1,12 +1,15 @@
 package eu.greenlightning.hypercubepdf.container;
 
 import java.io.IOException;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 
 /**
  * Paints up to five {@link HCPElement}s, one for the center and four for each side. Each element is optional and must
@@ -19,10 +22,10 @@ import eu.greenlightning.hypercubepdf.HCPElement;
  * inner container should contain the top, center and bottom elements and the outer container contains the left and
  * right elements and the inner container in the center position.
  * <p>
- * If provided, the top and bottom elements will be asked for their preferred height and the left and right elements for
- * their preferred width. The center element will take all the remaining space in the center. The elements will then be
- * painted in the following order as long as there is still space available to paint them: top, bottom, left, right,
- * center.
+ * If provided, the top and bottom elements will be asked for their height at the width of the container and the left
+ * and right elements for their preferred width. The center element will take all the remaining space in the center.
+ * The elements will then be painted in the following order as long as there is still space available to paint them:
+ * top, bottom, left, right, center.
  * <p>
  * An individual spacing value can be set for each of the four side elements, which introduce spacing between the
  * element and the center element.
@@ -221,7 +224,7 @@ public class HCPBorderContainer implements HCPElement {
 	private final float topSpacing, bottomSpacing, leftSpacing, rightSpacing;
 
 	// Used only for drawing.
-	private final PDRectangle elementShape = new PDRectangle();
+	private HCPRenderContext context;
 	private float leftPos, rightPos, topPos, bottomPos;
 
 	private HCPBorderContainer(HCPElement top, HCPElement bottom, HCPElement left, HCPElement right, HCPElement center,
@@ -246,116 +249,185 @@ public class HCPBorderContainer implements HCPElement {
 
 	@Override
 	public float getWidth() throws IOException {
-		float width = getWidth(left) + leftSpacing + getWidth(center) + rightSpacing + getWidth(right);
-		width = Math.max(width, getWidth(top));
-		width = Math.max(width, getWidth(bottom));
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return getWidth(context, HCPMeasureContext::getWidth);
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return getWidth(context, HCPMeasureContext::getMinWidth);
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return getWidth(context, HCPMeasureContext::getMaxWidth);
+	}
+
+	private float getWidth(HCPMeasureContext context, HCPSizeFunction function) throws IOException {
+		float width = getWidth(context, left, function) + leftSpacing + getWidth(context, center, function)
+			+ rightSpacing + getWidth(context, right, function);
+		width = Math.max(width, getWidth(context, top, function));
+		width = Math.max(width, getWidth(context, bottom, function));
 		return width;
 	}
 
-	private float getWidth(Optional<HCPElement> element) throws IOException {
-		return element.isPresent() ? element.get().getWidth() : 0;
+	private float getWidth(HCPMeasureContext context, Optional<HCPElement> element, HCPSizeFunction function)
+		throws IOException {
+		return element.isPresent() ? function.getSize(context, element.get()) : 0;
 	}
 
 	@Override
 	public float getHeight() throws IOException {
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		float height = 0;
+		height = Math.max(height, getHeight(context, left));
+		height = Math.max(height, getHeight(context, center));
+		height = Math.max(height, getHeight(context, right));
+		return getHeight(context, top) + topSpacing + height + bottomSpacing + getHeight(context, bottom);
+	}
+
+	private float getHeight(HCPMeasureContext context, Optional<HCPElement> element) throws IOException {
+		return element.isPresent() ? context.getHeight(element.get()) : 0;
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		float leftWidth = Math.min(getWidth(context, left, HCPMeasureContext::getWidth), width);
+		float remaining = Math.max(width - leftWidth - leftSpacing, 0);
+		float rightWidth = Math.min(getWidth(context, right, HCPMeasureContext::getWidth), remaining);
+		float centerWidth = Math.max(remaining - rightWidth - rightSpacing, 0);
+
 		float height = 0;
-		height = Math.max(height, getHeight(left));
-		height = Math.max(height, getHeight(center));
-		height = Math.max(height, getHeight(right));
-		return getHeight(top) + topSpacing + height + bottomSpacing + getHeight(bottom);
+		height = Math.max(height, getHeight(context, left, leftWidth));
+		height = Math.max(height, getHeight(context, center, centerWidth));
+		height = Math.max(height, getHeight(context, right, rightWidth));
+		return getHeight(context, top, width) + topSpacing + height + bottomSpacing + getHeight(context, bottom, width);
 	}
 
-	private float getHeight(Optional<HCPElement> element) throws IOException {
-		return element.isPresent() ? element.get().getHeight() : 0;
+	private float getHeight(HCPMeasureContext context, Optional<HCPElement> element, float width) throws IOException {
+		return element.isPresent() ? context.getHeight(element.get(), width) : 0;
 	}
 
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		leftPos = shape.getLowerLeftX();
-		rightPos = shape.getUpperRightX();
-		bottomPos = shape.getLowerLeftY();
-		topPos = shape.getUpperRightY();
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		this.context = context;
+		leftPos = lowerLeftX;
+		rightPos = upperRightX;
+		bottomPos = lowerLeftY;
+		topPos = upperRightY;
+
+		try {
+			paintTopBottom();
+			paintLeftRightCenter();
+		} finally {
+			this.context = null;
+		}
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement top = replace(this.top, target, replacement);
+		HCPElement bottom = replace(this.bottom, target, replacement);
+		HCPElement left = replace(this.left, target, replacement);
+		HCPElement right = replace(this.right, target, replacement);
+		HCPElement center = replace(this.center, target, replacement);
+		if (top == this.top.orElse(null) && bottom == this.bottom.orElse(null) && left == this.left.orElse(null)
+			&& right == this.right.orElse(null) && center == this.center.orElse(null))
+			return this;
+		return new HCPBorderContainer(top, bottom, left, right, center, topSpacing, bottomSpacing, leftSpacing,
+			rightSpacing);
+	}
 
-		paintTopBottom(content);
-		paintLeftRightCenter(content);
+	private HCPElement replace(Optional<HCPElement> element, HCPElement target, HCPElement replacement) {
+		return element.isPresent() ? element.get().replace(target, replacement) : null;
 	}
 
-	private void paintTopBottom(PDPageContentStream content) throws IOException {
+	private void paintTopBottom() throws IOException {
 		if (leftPos < rightPos) {
-			elementShape.setLowerLeftX(leftPos);
-			elementShape.setUpperRightX(rightPos);
-			paintTop(content);
-			paintBottom(content);
+			paintTop();
+			paintBottom();
 		}
 	}
 
-	private void paintTop(PDPageContentStream content) throws IOException {
+	private void paintTop() throws IOException {
 		if (top.isPresent() && bottomPos < topPos) {
-			elementShape.setUpperRightY(topPos);
-			topPos = Math.max(topPos - top.get().getHeight(), bottomPos);
+			float upperY = topPos;
+			topPos = Math.max(topPos - context.getHeight(top.get(), rightPos - leftPos), bottomPos);
 			if (topPos - topSpacing <= bottomPos)
 				topPos = bottomPos;
-			elementShape.setLowerLeftY(topPos);
+			float lowerY = topPos;
 			if (topPos > bottomPos)
 				topPos -= topSpacing;
-			top.get().paint(content, elementShape);
+			context.paint(top.get(), leftPos, lowerY, rightPos, upperY);
 		}
 	}
 
-	private void paintBottom(PDPageContentStream content) throws IOException {
+	private void paintBottom() throws IOException {
 		if (bottom.isPresent() && bottomPos < topPos) {
-			elementShape.setLowerLeftY(bottomPos);
-			bottomPos = Math.min(bottomPos + bottom.get().getHeight(), topPos);
+			float lowerY = bottomPos;
+			bottomPos = Math.min(bottomPos + context.getHeight(bottom.get(), rightPos - leftPos), topPos);
 			if (bottomPos + bottomSpacing >= topPos)
 				bottomPos = topPos;
-			elementShape.setUpperRightY(bottomPos);
+			float upperY = bottomPos;
 			if (bottomPos < topPos)
 				bottomPos += bottomSpacing;
-			bottom.get().paint(content, elementShape);
+			context.paint(bottom.get(), leftPos, lowerY, rightPos, upperY);
 		}
 	}
 
-	private void paintLeftRightCenter(PDPageContentStream content) throws IOException {
+	private void paintLeftRightCenter() throws IOException {
 		if (bottomPos < topPos) {
-			elementShape.setLowerLeftY(bottomPos);
-			elementShape.setUpperRightY(topPos);
-			paintLeft(content);
-			paintRight(content);
-			paintCenter(content);
+			paintLeft();
+			paintRight();
+			paintCenter();
 		}
 	}
 
-	private void paintLeft(PDPageContentStream content) throws IOException {
+	private void paintLeft() throws IOException {
 		if (left.isPresent() && leftPos < rightPos) {
-			elementShape.setLowerLeftX(leftPos);
-			leftPos = Math.min(leftPos + left.get().getWidth(), rightPos);
+			float leftX = leftPos;
+			leftPos = Math.min(leftPos + context.getWidth(left.get()), rightPos);
 			if (leftPos + leftSpacing >= rightPos)
 				leftPos = rightPos;
-			elementShape.setUpperRightX(leftPos);
+			float rightX = leftPos;
 			if (leftPos < rightPos)
 				leftPos += leftSpacing;
-			left.get().paint(content, elementShape);
+			context.paint(left.get(), leftX, bottomPos, rightX, topPos);
 		}
 	}
 
-	private void paintRight(PDPageContentStream content) throws IOException {
+	private void paintRight() throws IOException {
 		if (right.isPresent() && leftPos < rightPos) {
-			elementShape.setUpperRightX(rightPos);
-			rightPos = Math.max(rightPos - right.get().getWidth(), leftPos);
+			float rightX = rightPos;
+			rightPos = Math.max(rightPos - context.getWidth(right.get()), leftPos);
 			if (rightPos - rightSpacing <= leftPos)
 				rightPos = leftPos;
-			elementShape.setLowerLeftX(rightPos);
+			float leftX = rightPos;
 			if (rightPos > leftPos)
 				rightPos -= rightSpacing;
-			right.get().paint(content, elementShape);
+			context.paint(right.get(), leftX, bottomPos, rightX, topPos);
 		}
 	}
 
-	private void paintCenter(PDPageContentStream content) throws IOException {
+	private void paintCenter() throws IOException {
 		if (center.isPresent() && leftPos < rightPos) {
-			elementShape.setLowerLeftX(leftPos);
-			elementShape.setUpperRightX(rightPos);
-			center.get().paint(content, elementShape);
+			context.paint(center.get(), leftPos, bottomPos, rightPos, topPos);
 		}
 	}
 
@@ -0,0 +1,374 @@
+package eu.greenlightning.hypercubepdf.container;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
+
+/**
+ * Paints {@link HCPElement}s at positions which are determined by linear constraints between the edges of the
+ * elements.
+ * <p>
+ * The position of each edge is measured from the upper left corner of the container: left and right edges from the
+ * left side of the container to the right, top and bottom edges from the top of the container downwards. A constraint
+ * relates two edges of the same orientation, for example "the left edge of B is at least 10 units to the right of the
+ * right edge of A" or "the top edge of B is equal to the top edge of A". Each element additionally requires that its
+ * right edge is at least its preferred width to the right of its left edge and that its bottom edge is at least its
+ * height below its top edge. The height of an element is requested for the width the element is given (see
+ * {@link HCPMeasureContext#getHeight(HCPElement, float)}).
+ * <p>
+ * The container uses the smallest solution which satisfies all constraints, i.&nbsp;e. every edge is placed as far to
+ * the left or as far to the top as possible. The preferred width of the container is the largest position of a right
+ * edge and the preferred height is the largest position of a bottom edge. Elements are painted in the order in which
+ * they were added and an element which does not fit into the container is painted using the remaining space or not at
+ * all.
+ * <p>
+ * The constraints are compiled into a constraint graph when the container is built and the graph is shared by all
+ * containers derived from this container using {@link #replace(HCPElement, HCPElement)}. Solving the graph for new
+ * element sizes takes a single pass over the constraints (unless equality constraints create cycles) and does not
+ * allocate any objects, so a complex arrangement can be reused cheaply for many records by replacing its elements.
+ * <p>
+ * For example, a label with a value to its right and a note below the value, aligned with the value, can be created
+ * like this:
+ *
+ * <pre>
+ * {@code
+ *     HCPElement container = HCPConstraintContainer.create()
+ *         .add(label).add(value).add(note)
+ *         .atLeast(label, HCPEdge.RIGHT, value, HCPEdge.LEFT, 10)
+ *         .equal(value, HCPEdge.LEFT, note, HCPEdge.LEFT, 0)
+ *         .atLeast(value, HCPEdge.BOTTOM, note, HCPEdge.TOP, 5)
+ *         .build();
+ * }
+ * </pre>
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPConstraintContainer implements HCPElement {
+
+	/**
+	 * The edges of an element which can be related by constraints.
+	 *
+	 * @author Green Lightning
+	 */
+	public static enum HCPEdge {
+		/** The left edge, a horizontal position. */
+		LEFT,
+		/** The right edge, a horizontal position. */
+		RIGHT,
+		/** The top edge, a vertical position. */
+		TOP,
+		/** The bottom edge, a vertical position. */
+		BOTTOM;
+
+		private boolean isHorizontal() {
+			return this == LEFT || this == RIGHT;
+		}
+
+		private boolean isStart() {
+			return this == LEFT || this == TOP;
+		}
+	}
+
+	/**
+	 * Creates a new builder.
+	 *
+	 * @return a new builder for an {@link HCPConstraintContainer}
+	 */
+	public static Builder create() {
+		return new Builder();
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPConstraintContainer} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private final List<HCPElement> elements = new ArrayList<>();
+		private final Map<HCPElement, Integer> indices = new IdentityHashMap<>();
+		private final Arcs horizontalArcs = new Arcs(), verticalArcs = new Arcs();
+
+		// Hide the constructor so that HCPConstraintContainer.create() must be used
+		private Builder() {}
+
+		/**
+		 * Adds an element to the container. An element can only be added once, because the constraints refer to the
+		 * elements themselves.
+		 *
+		 * @param element not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if element is {@code null}
+		 * @throws IllegalArgumentException if element has already been added
+		 */
+		public Builder add(HCPElement element) {
+			Objects.requireNonNull(element, "Element must not be null.");
+			if (indices.containsKey(element))
+				throw new IllegalArgumentException("Element has already been added.");
+			int index = elements.size();
+			elements.add(element);
+			indices.put(element, index);
+			horizontalArcs.add(getStart(index), getEnd(index), 0, index);
+			verticalArcs.add(getStart(index), getEnd(index), 0, index);
+			return this;
+		}
+
+		/**
+		 * Requires that the specified edge is at least the specified distance away from the left or top side of the
+		 * container.
+		 *
+		 * @param element not {@code null}; must have been added
+		 * @param edge not {@code null}
+		 * @param distance must be finite
+		 * @return this builder for chaining
+		 * @throws NullPointerException if element or edge is {@code null}
+		 * @throws IllegalArgumentException if element has not been added or distance is not finite
+		 */
+		public Builder offset(HCPElement element, HCPEdge edge, float distance) {
+			int variable = getVariable(element, edge);
+			getArcs(edge).add(ORIGIN, variable, checkDistance(distance), NO_SIZE);
+			return this;
+		}
+
+		/**
+		 * Requires that {@code to.toEdge >= from.fromEdge + distance}.
+		 *
+		 * @param from not {@code null}; must have been added
+		 * @param fromEdge not {@code null}
+		 * @param to not {@code null}; must have been added
+		 * @param toEdge not {@code null}; must have the same orientation as fromEdge
+		 * @param distance must be finite
+		 * @return this builder for chaining
+		 * @throws NullPointerException if from, fromEdge, to or toEdge is {@code null}
+		 * @throws IllegalArgumentException if from or to has not been added, if the edges have different orientations
+		 *             or if distance is not finite
+		 */
+		public Builder atLeast(HCPElement from, HCPEdge fromEdge, HCPElement to, HCPEdge toEdge, float distance) {
+			checkOrientation(fromEdge, toEdge);
+			getArcs(fromEdge).add(getVariable(from, fromEdge), getVariable(to, toEdge), checkDistance(distance),
+				NO_SIZE);
+			return this;
+		}
+
+		/**
+		 * Requires that {@code to.toEdge <= from.fromEdge + distance}.
+		 *
+		 * @param from not {@code null}; must have been added
+		 * @param fromEdge not {@code null}
+		 * @param to not {@code null}; must have been added
+		 * @param toEdge not {@code null}; must have the same orientation as fromEdge
+		 * @param distance must be finite
+		 * @return this builder for chaining
+		 * @throws NullPointerException if from, fromEdge, to or toEdge is {@code null}
+		 * @throws IllegalArgumentException if from or to has not been added, if the edges have different orientations
+		 *             or if distance is not finite
+		 */
+		public Builder atMost(HCPElement from, HCPEdge fromEdge, HCPElement to, HCPEdge toEdge, float distance) {
+			checkOrientation(fromEdge, toEdge);
+			getArcs(fromEdge).add(getVariable(to, toEdge), getVariable(from, fromEdge), -checkDistance(distance),
+				NO_SIZE);
+			return this;
+		}
+
+		/**
+		 * Requires that {@code to.toEdge == from.fromEdge + distance}.
+		 *
+		 * @param from not {@code null}; must have been added
+		 * @param fromEdge not {@code null}
+		 * @param to not {@code null}; must have been added
+		 * @param toEdge not {@code null}; must have the same orientation as fromEdge
+		 * @param distance must be finite
+		 * @return this builder for chaining
+		 * @throws NullPointerException if from, fromEdge, to or toEdge is {@code null}
+		 * @throws IllegalArgumentException if from or to has not been added, if the edges have different orientations
+		 *             or if distance is not finite
+		 */
+		public Builder equal(HCPElement from, HCPEdge fromEdge, HCPElement to, HCPEdge toEdge, float distance) {
+			atLeast(from, fromEdge, to, toEdge, distance);
+			return atMost(from, fromEdge, to, toEdge, distance);
+		}
+
+		private int getVariable(HCPElement element, HCPEdge edge) {
+			Objects.requireNonNull(element, "Element must not be null.");
+			Objects.requireNonNull(edge, "Edge must not be null.");
+			Integer index = indices.get(element);
+			if (index == null)
+				throw new IllegalArgumentException("Element has not been added.");
+			return edge.isStart() ? getStart(index) : getEnd(index);
+		}
+
+		private Arcs getArcs(HCPEdge edge) {
+			return edge.isHorizontal() ? horizontalArcs : verticalArcs;
+		}
+
+		private void checkOrientation(HCPEdge fromEdge, HCPEdge toEdge) {
+			Objects.requireNonNull(fromEdge, "From edge must not be null.");
+			Objects.requireNonNull(toEdge, "To edge must not be null.");
+			if (fromEdge.isHorizontal() != toEdge.isHorizontal())
+				throw new IllegalArgumentException("Edges must have the same orientation, but were " + fromEdge
+					+ " and " + toEdge + ".");
+		}
+
+		private float checkDistance(float distance) {
+			if (Float.isNaN(distance) || Float.isInfinite(distance))
+				throw new IllegalArgumentException("Distance must be finite, but was " + distance + ".");
+			return distance;
+		}
+
+		/**
+		 * Creates the {@link HCPConstraintContainer} and compiles its constraints.
+		 *
+		 * @return a new {@link HCPConstraintContainer} containing the elements and constraints added using this
+		 *         builder
+		 */
+		public HCPConstraintContainer build() {
+			HCPElement[] elements = this.elements.toArray(new HCPElement[this.elements.size()]);
+			int variableCount = getStart(elements.length);
+			return new HCPConstraintContainer(elements, horizontalArcs.compile(variableCount), verticalArcs
+				.compile(variableCount));
+		}
+
+	}
+
+	// Growable list of constraint arcs along one axis.
+	private static final class Arcs {
+
+		private int[] sources = new int[16], targets = new int[16], sizes = new int[16];
+		private float[] weights = new float[16];
+		private int count;
+
+		void add(int source, int target, float weight, int size) {
+			if (count == sources.length) {
+				sources = Arrays.copyOf(sources, 2 * count);
+				targets = Arrays.copyOf(targets, 2 * count);
+				sizes = Arrays.copyOf(sizes, 2 * count);
+				weights = Arrays.copyOf(weights, 2 * count);
+			}
+			sources[count] = source;
+			targets[count] = target;
+			weights[count] = weight;
+			sizes[count] = size;
+			count++;
+		}
+
+		HCPConstraintSystem compile(int variableCount) {
+			return HCPConstraintSystem.compile(variableCount, count, sources, targets, weights, sizes);
+		}
+
+	}
+
+	// Variable 0 is the left or top side of the container, followed by the start and end edge of each element.
+	private static final int ORIGIN = 0, NO_SIZE = -1;
+
+	private static final int SIZES = 0, XS = 1, YS = 2;
+
+	private static int getStart(int index) {
+		return 1 + 2 * index;
+	}
+
+	private static int getEnd(int index) {
+		return 2 + 2 * index;
+	}
+
+	private final HCPElement[] elements;
+	private final HCPConstraintSystem horizontal, vertical;
+
+	private HCPConstraintContainer(HCPElement[] elements, HCPConstraintSystem horizontal,
+		HCPConstraintSystem vertical) {
+		this.elements = elements;
+		this.horizontal = horizontal;
+		this.vertical = vertical;
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return getMaxEnd(solveHorizontal(context));
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return getMaxEnd(solveVertical(context, solveHorizontal(context)));
+	}
+
+	private float[] solveHorizontal(HCPMeasureContext context) throws IOException {
+		context.measureWidths(elements);
+		float[] widths = context.getBuffer(this, SIZES, elements.length);
+		for (int index = 0; index < elements.length; index++)
+			widths[index] = context.getWidth(elements[index]);
+		float[] xs = context.getBuffer(this, XS, horizontal.getVariableCount());
+		horizontal.solve(widths, xs);
+		return xs;
+	}
+
+	private float[] solveVertical(HCPMeasureContext context, float[] xs) throws IOException {
+		float[] heights = context.getBuffer(this, SIZES, elements.length);
+		for (int index = 0; index < elements.length; index++)
+			heights[index] = context.getHeight(elements[index], xs[getEnd(index)] - xs[getStart(index)]);
+		float[] ys = context.getBuffer(this, YS, vertical.getVariableCount());
+		vertical.solve(heights, ys);
+		return ys;
+	}
+
+	private float getMaxEnd(float[] values) {
+		float max = 0;
+		for (int index = 0; index < elements.length; index++)
+			max = Math.max(max, values[getEnd(index)]);
+		return max;
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		HCPMeasureContext measureContext = context.getMeasureContext();
+		float[] xs = solveHorizontal(measureContext);
+		float[] ys = solveVertical(measureContext, xs);
+		for (int index = 0; index < elements.length; index++) {
+			float leftX = lowerLeftX + xs[getStart(index)];
+			float rightX = Math.min(lowerLeftX + xs[getEnd(index)], upperRightX);
+			float upperY = upperRightY - ys[getStart(index)];
+			float lowerY = Math.max(upperRightY - ys[getEnd(index)], lowerLeftY);
+			if (leftX < upperRightX && upperY > lowerLeftY)
+				context.paint(elements[index], leftX, lowerY, rightX, upperY);
+		}
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement[] replaced = null;
+		for (int index = 0; index < elements.length; index++) {
+			HCPElement element = elements[index].replace(target, replacement);
+			if (element != elements[index]) {
+				if (replaced == null)
+					replaced = elements.clone();
+				replaced[index] = element;
+			}
+		}
+		return replaced == null ? this : new HCPConstraintContainer(replaced, horizontal, vertical);
+	}
+
+}
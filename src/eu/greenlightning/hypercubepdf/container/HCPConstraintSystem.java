@@ -0,0 +1,157 @@
+package eu.greenlightning.hypercubepdf.container;
+
+import java.util.Arrays;
+
+/**
+ * A compiled system of difference constraints along one axis, used by {@link HCPConstraintContainer}.
+ * <p>
+ * Each constraint is an arc from a source to a target variable and requires that the target is at least as large as
+ * the source plus the weight of the arc. The weight is a constant plus, optionally, one of the sizes passed to
+ * {@link #solve(float[], float[])}. The smallest non-negative solution of such a system is given by the longest paths
+ * in the constraint graph, which are computed using the Bellman-Ford algorithm.
+ * <p>
+ * The graph is compiled once: the arcs are stored grouped by source and the variables are sorted topologically, so
+ * that an acyclic system is solved in a single pass over the arcs. Only systems containing cycles (which are created by
+ * equality constraints) need additional passes. Solving a compiled system does not allocate any objects, which makes
+ * it cheap to solve the same system repeatedly with different sizes.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+final class HCPConstraintSystem {
+
+	/** Differences smaller than this value do not count as a change when solving systems with cycles. */
+	private static final float TOLERANCE = 1e-4f;
+
+	/**
+	 * Compiles a constraint system.
+	 *
+	 * @param variableCount the number of variables
+	 * @param arcCount the number of valid entries in the arc arrays
+	 * @param sources the source variable of each arc
+	 * @param targets the target variable of each arc
+	 * @param weights the constant weight of each arc
+	 * @param sizes the index of the size added to the weight of each arc or {@code -1}
+	 * @return the compiled system
+	 */
+	static HCPConstraintSystem compile(int variableCount, int arcCount, int[] sources, int[] targets,
+		float[] weights, int[] sizes) {
+		int[] order = sort(variableCount, arcCount, sources, targets);
+		int[] position = new int[variableCount];
+		for (int index = 0; index < variableCount; index++)
+			position[order[index]] = index;
+
+		// Group the arcs by the position of their source.
+		int[] starts = new int[variableCount + 1];
+		for (int arc = 0; arc < arcCount; arc++)
+			starts[position[sources[arc]] + 1]++;
+		for (int index = 0; index < variableCount; index++)
+			starts[index + 1] += starts[index];
+		int[] next = Arrays.copyOf(starts, variableCount);
+		int[] arcTargets = new int[arcCount];
+		float[] arcWeights = new float[arcCount];
+		int[] arcSizes = new int[arcCount];
+		boolean acyclic = true;
+		for (int arc = 0; arc < arcCount; arc++) {
+			int slot = next[position[sources[arc]]]++;
+			arcTargets[slot] = targets[arc];
+			arcWeights[slot] = weights[arc];
+			arcSizes[slot] = sizes[arc];
+			if (position[targets[arc]] <= position[sources[arc]])
+				acyclic = false;
+		}
+		return new HCPConstraintSystem(order, starts, arcTargets, arcWeights, arcSizes, acyclic);
+	}
+
+	// Kahn's algorithm; variables which are part of a cycle are appended in index order.
+	private static int[] sort(int variableCount, int arcCount, int[] sources, int[] targets) {
+		int[] inDegrees = new int[variableCount];
+		int[] starts = new int[variableCount + 1];
+		for (int arc = 0; arc < arcCount; arc++) {
+			inDegrees[targets[arc]]++;
+			starts[sources[arc] + 1]++;
+		}
+		for (int variable = 0; variable < variableCount; variable++)
+			starts[variable + 1] += starts[variable];
+		int[] next = Arrays.copyOf(starts, variableCount);
+		int[] successors = new int[arcCount];
+		for (int arc = 0; arc < arcCount; arc++)
+			successors[next[sources[arc]]++] = targets[arc];
+
+		int[] order = new int[variableCount];
+		int count = 0;
+		for (int variable = 0; variable < variableCount; variable++)
+			if (inDegrees[variable] == 0)
+				order[count++] = variable;
+		for (int index = 0; index < count; index++) {
+			for (int arc = starts[order[index]]; arc < starts[order[index] + 1]; arc++)
+				if (--inDegrees[successors[arc]] == 0)
+					order[count++] = successors[arc];
+		}
+		for (int variable = 0; variable < variableCount && count < variableCount; variable++)
+			if (inDegrees[variable] > 0)
+				order[count++] = variable;
+		return order;
+	}
+
+	private final int[] order;
+	private final int[] starts;
+	private final int[] targets;
+	private final float[] weights;
+	private final int[] sizes;
+	private final boolean acyclic;
+
+	private HCPConstraintSystem(int[] order, int[] starts, int[] targets, float[] weights, int[] sizes,
+		boolean acyclic) {
+		this.order = order;
+		this.starts = starts;
+		this.targets = targets;
+		this.weights = weights;
+		this.sizes = sizes;
+		this.acyclic = acyclic;
+	}
+
+	/**
+	 * Returns the number of variables of this system.
+	 *
+	 * @return the number of variables
+	 */
+	int getVariableCount() {
+		return order.length;
+	}
+
+	/**
+	 * Computes the smallest non-negative solution of this system for the specified sizes.
+	 *
+	 * @param sizes the sizes referenced by the arcs; not {@code null}
+	 * @param values receives the values of the variables; must be at least as long as {@link #getVariableCount()}
+	 * @throws IllegalStateException if the constraints contradict each other
+	 */
+	void solve(float[] sizes, float[] values) {
+		Arrays.fill(values, 0, order.length, 0);
+		for (int pass = 0; pass <= order.length; pass++) {
+			if (!relax(sizes, values) || acyclic)
+				return;
+		}
+		throw new IllegalStateException("The constraints contradict each other.");
+	}
+
+	// Performs one pass over all arcs and returns whether a value has changed significantly.
+	private boolean relax(float[] sizes, float[] values) {
+		boolean changed = false;
+		for (int index = 0; index < order.length; index++) {
+			float value = values[order[index]];
+			for (int arc = starts[index]; arc < starts[index + 1]; arc++) {
+				float candidate = value + weights[arc] + (this.sizes[arc] < 0 ? 0 : sizes[this.sizes[arc]]);
+				int target = targets[arc];
+				if (candidate > values[target]) {
+					changed |= candidate - values[target] > TOLERANCE;
+					values[target] = candidate;
+				}
+			}
+		}
+		return changed;
+	}
+
+}
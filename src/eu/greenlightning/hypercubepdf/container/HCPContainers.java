@@ -3,6 +3,8 @@ package eu.greenlightning.hypercubepdf.container;
 import java.util.Collection;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
 import eu.greenlightning.hypercubepdf.layout.*;
 
 /**
@@ -18,7 +20,12 @@ import eu.greenlightning.hypercubepdf.layout.*;
  * The width of the elements in horizontal containers depends on the layout, however the elements are always painted
  * using the height of the container. For vertical containers the opposite statement is true, i.&nbsp;e. the height of
  * the elements in vertical containers depends on the layout, however the elements are always painted using the width of
- * the container.
+ * the container. The heights of the elements in vertical containers are requested for the width of the container (see
+ * {@link HCPMeasureContext#getHeight(HCPElement, float)}).
+ * <p>
+ * Vertical containers are {@link HCPSplittable}. A container using the flow layout is split after the last element
+ * which fits and the element which does not fit is split itself, so that the container can be continued on the next
+ * page.
  *
  * @author Green Lightning
  */
@@ -4,13 +4,15 @@ import java.io.IOException;
 import java.util.*;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
 
 /**
  * Wraps an array of {@link HCPElement}s.
  * <p>
  * The constructors of this class copy the provided array or collection and perform {@code null}-checks.
  * <p>
- * Utility methods allow to easily calculate the maximum and total width / height of all the elements.
+ * Utility methods allow to easily calculate the maximum and total width / height of all the elements. All sizes are
+ * requested through an {@link HCPMeasureContext}, so that each element is measured only once.
  * <p>
  * <p>
  * This class is iterable and immutable.
@@ -61,13 +63,15 @@ class HCPElements implements Iterable<HCPElement> {
 	 * Returns the width of the widest element in this {@link HCPElements} instance. Returns zero if this
 	 * instance contains no elements.
 	 * 
+	 * @param context the context used to measure the elements; not {@code null}
 	 * @return the maximum width; 0 if empty
 	 * @throws IOException if the {@link HCPElement#getWidth()} method of an element throws
 	 */
-	public float getMaxWidth() throws IOException {
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		context.measureWidths(elements);
 		float width = 0;
 		for (HCPElement element : elements)
-			width = Math.max(width, element.getWidth());
+			width = Math.max(width, context.getWidth(element));
 		return width;
 	}
 
@@ -75,13 +79,15 @@ class HCPElements implements Iterable<HCPElement> {
 	 * Returns the height of the highest element in this {@link HCPElements} instance. Returns zero if this
 	 * instance contains no elements.
 	 * 
+	 * @param context the context used to measure the elements; not {@code null}
 	 * @return the maximum height; 0 if empty
 	 * @throws IOException if the {@link HCPElement#getHeight()} method of an element throws
 	 */
-	public float getMaxHeight() throws IOException {
+	public float getMaxHeight(HCPMeasureContext context) throws IOException {
+		context.measureHeights(elements);
 		float height = 0;
 		for (HCPElement element : elements)
-			height = Math.max(height, element.getHeight());
+			height = Math.max(height, context.getHeight(element));
 		return height;
 	}
 
@@ -89,13 +95,15 @@ class HCPElements implements Iterable<HCPElement> {
 	 * Returns the sum of the widths of all of the elements in this {@link HCPElements} instance. Returns zero
 	 * if this instance contains no elements.
 	 * 
+	 * @param context the context used to measure the elements; not {@code null}
 	 * @return the total width; 0 if empty
 	 * @throws IOException if the {@link HCPElement#getWidth()} method of an element throws
 	 */
-	public float getTotalWidth() throws IOException {
+	public float getTotalWidth(HCPMeasureContext context) throws IOException {
+		context.measureWidths(elements);
 		float width = 0;
 		for (HCPElement element : elements)
-			width += element.getWidth();
+			width += context.getWidth(element);
 		return width;
 	}
 
@@ -103,13 +111,15 @@ class HCPElements implements Iterable<HCPElement> {
 	 * Returns the sum of the heights of all of the elements in this {@link HCPElements} instance. Returns
 	 * zero if this instance contains not elements.
 	 * 
+	 * @param context the context used to measure the elements; not {@code null}
 	 * @return the total height; 0 if empty
 	 * @throws IOException if the {@link HCPElement#getHeight()} method of an element throws
 	 */
-	public float getTotalHeight() throws IOException {
+	public float getTotalHeight(HCPMeasureContext context) throws IOException {
+		context.measureHeights(elements);
 		float height = 0;
 		for (HCPElement element : elements)
-			height += element.getHeight();
+			height += context.getHeight(element);
 		return height;
 	}
 
@@ -118,14 +128,29 @@ class HCPElements implements Iterable<HCPElement> {
 	 * in the same order as the elements (as returned by {@link #get(int)}). Returns an empty array if this
 	 * instance contains no elements.
 	 * 
+	 * @param context the context used to measure the elements; not {@code null}
 	 * @return an array of the widths; not null
 	 * @throws IOException if the {@link HCPElement#getWidth()} method of an element throws
 	 */
-	public float[] getWidths() throws IOException {
+	public float[] getWidths(HCPMeasureContext context) throws IOException {
+		return getWidths(context, new float[elements.length]);
+	}
+
+	/**
+	 * Writes the widths of the elements in this {@link HCPElements} instance into the specified array. The widths will
+	 * be in the same order as the elements (as returned by {@link #get(int)}). This allows callers to reuse arrays.
+	 * 
+	 * @param context the context used to measure the elements; not {@code null}
+	 * @param widths receives the widths; must be at least as long as {@link #size()}
+	 * @return the specified array
+	 * @throws ArrayIndexOutOfBoundsException if widths is shorter than {@link #size()}
+	 * @throws IOException if the {@link HCPElement#getWidth()} method of an element throws
+	 */
+	public float[] getWidths(HCPMeasureContext context, float[] widths) throws IOException {
+		context.measureWidths(elements);
 		int count = elements.length;
-		float[] widths = new float[count];
 		for (int index = 0; index < count; index++)
-			widths[index] = elements[index].getWidth();
+			widths[index] = context.getWidth(elements[index]);
 		return widths;
 	}
 
@@ -134,17 +159,90 @@ class HCPElements implements Iterable<HCPElement> {
 	 * be in the same order as the elements (as returned by {@link #get(int)}). Returns an empty array if this
 	 * instance contains no elements.
 	 * 
+	 * @param context the context used to measure the elements; not {@code null}
 	 * @return an array of the heights; not null
 	 * @throws IOException if the {@link HCPElement#getHeight()} method of an element throws
 	 */
-	public float[] getHeights() throws IOException {
+	public float[] getHeights(HCPMeasureContext context) throws IOException {
+		return getHeights(context, new float[elements.length]);
+	}
+
+	/**
+	 * Writes the heights of the elements in this {@link HCPElements} instance into the specified array. The heights
+	 * will be in the same order as the elements (as returned by {@link #get(int)}). This allows callers to reuse
+	 * arrays.
+	 * 
+	 * @param context the context used to measure the elements; not {@code null}
+	 * @param heights receives the heights; must be at least as long as {@link #size()}
+	 * @return the specified array
+	 * @throws ArrayIndexOutOfBoundsException if heights is shorter than {@link #size()}
+	 * @throws IOException if the {@link HCPElement#getHeight()} method of an element throws
+	 */
+	public float[] getHeights(HCPMeasureContext context, float[] heights) throws IOException {
+		context.measureHeights(elements);
 		int count = elements.length;
-		float[] heights = new float[count];
 		for (int index = 0; index < count; index++)
-			heights[index] = elements[index].getHeight();
+			heights[index] = context.getHeight(elements[index]);
 		return heights;
 	}
 
+	/**
+	 * Writes the heights of the elements in this {@link HCPElements} instance at the specified width into the specified
+	 * array (see {@link HCPMeasureContext#getHeight(HCPElement, float)}). The heights will be in the same order as the
+	 * elements (as returned by {@link #get(int)}). This allows callers to reuse arrays.
+	 *
+	 * @param context the context used to measure the elements; not {@code null}
+	 * @param width the width available to each element
+	 * @param heights receives the heights; must be at least as long as {@link #size()}
+	 * @return the specified array
+	 * @throws ArrayIndexOutOfBoundsException if heights is shorter than {@link #size()}
+	 * @throws IOException if an element throws while it is measured
+	 */
+	public float[] getHeights(HCPMeasureContext context, float width, float[] heights) throws IOException {
+		int count = elements.length;
+		// The array holds the width of each element until it is replaced by the height.
+		Arrays.fill(heights, 0, count, width);
+		context.measureHeights(elements, heights);
+		for (int index = 0; index < count; index++)
+			heights[index] = context.getHeight(elements[index], width);
+		return heights;
+	}
+
+	/**
+	 * Returns an {@link HCPElements} instance containing the elements in the specified range.
+	 *
+	 * @param start the index of the first element (inclusive)
+	 * @param end the index after the last element (exclusive)
+	 * @return an {@link HCPElements} instance containing the elements in the range
+	 * @throws ArrayIndexOutOfBoundsException if start or end is out of bounds
+	 * @throws IllegalArgumentException if start is greater than end
+	 */
+	public HCPElements subList(int start, int end) {
+		return new HCPElements(Arrays.copyOfRange(elements, start, end));
+	}
+
+	/**
+	 * Returns an {@link HCPElements} instance in which every occurrence of the target element has been replaced (see
+	 * {@link HCPElement#replace(HCPElement, HCPElement)}). Returns {@code this} instance if no element has changed.
+	 * 
+	 * @param target not {@code null}
+	 * @param replacement not {@code null}
+	 * @return an {@link HCPElements} instance containing the replaced elements
+	 * @throws NullPointerException if target or replacement is {@code null}
+	 */
+	public HCPElements replace(HCPElement target, HCPElement replacement) {
+		HCPElement[] replaced = null;
+		for (int index = 0; index < elements.length; index++) {
+			HCPElement element = elements[index].replace(target, replacement);
+			if (element != elements[index]) {
+				if (replaced == null)
+					replaced = elements.clone();
+				replaced[index] = element;
+			}
+		}
+		return replaced == null ? this : new HCPElements(replaced);
+	}
+
 	/**
 	 * Returns the number of elements in this {@link HCPElements} instance.
 	 * 
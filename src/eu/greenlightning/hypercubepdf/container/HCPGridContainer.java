@@ -1,6 +1,7 @@
 package eu.greenlightning.hypercubepdf.container;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Objects;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
@@ -8,6 +9,8 @@ import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
 import eu.greenlightning.hypercubepdf.HCPEmpty;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 import eu.greenlightning.hypercubepdf.layout.*;
 
 /**
@@ -17,8 +20,10 @@ import eu.greenlightning.hypercubepdf.layout.*;
  * <p>
  * Rows and columns are laid out independently and different {@link HCPLayout}s can be used for rows and columns. The
  * maximum width of all elements in a column is used as the width of the column. The maximum height of all elements in a
- * row is used as the height of the row. Each element is painted using the size of its cell, i.&nbsp;e. using the width
- * of the column it is in and the height of the row it is in.
+ * row is used as the height of the row. When painting, the columns are laid out first and the height of each element is
+ * then requested for the width of its column (see {@link HCPMeasureContext#getHeight(HCPElement, float)}). Each
+ * element is painted using the size of its cell, i.&nbsp;e. using the width of the column it is in and the height of
+ * the row it is in.
  * <p>
  * The elements are painted in rows from left to right and rows are painted from top to bottom.
  * <p>
@@ -28,11 +33,15 @@ import eu.greenlightning.hypercubepdf.layout.*;
  */
 public class HCPGridContainer implements HCPElement {
 
+	private static final int WIDTHS = 0, HEIGHTS = 1, LEFT_XS = 2, RIGHT_XS = 3, LOWER_YS = 4, UPPER_YS = 5,
+		CELL_WIDTHS = 6;
+
 	private final HCPLayout horizontalLayout;
 	private final HCPLayout verticalLayout;
 	private final int horizontalCount;
 	private final int verticalCount;
 	private final HCPElement[][] elements;
+	private final HCPElement[] cells;
 
 	/**
 	 * Creates an {@link HCPGridContainer} with a single {@link HCPLayout} for rows and columns.
@@ -82,6 +91,7 @@ public class HCPGridContainer implements HCPElement {
 		copyRows();
 		this.horizontalCount = (verticalCount == 0) ? 0 : this.elements[0].length;
 		checkRows();
+		this.cells = Arrays.stream(this.elements).flatMap(Arrays::stream).toArray(HCPElement[]::new);
 	}
 
 	private void copyRows() {
@@ -117,66 +127,140 @@ public class HCPGridContainer implements HCPElement {
 
 	@Override
 	public float getWidth() throws IOException {
-		return horizontalLayout.getSize(getWidths());
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return horizontalLayout.getSize(getWidths(context, HCPMeasureContext::getWidth));
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return horizontalLayout.getSize(getWidths(context, HCPMeasureContext::getMinWidth));
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return horizontalLayout.getSize(getWidths(context, HCPMeasureContext::getMaxWidth));
 	}
 
-	private float[] getWidths() throws IOException {
-		float[] widths = new float[horizontalCount];
+	private float[] getWidths(HCPMeasureContext context, HCPSizeFunction function) throws IOException {
+		context.measureWidths(cells);
+		float[] widths = context.getBuffer(this, WIDTHS, horizontalCount);
 		for (int h = 0; h < horizontalCount; h++)
-			widths[h] = getWidth(h);
+			widths[h] = getWidth(context, h, function);
 		return widths;
 	}
 
-	private float getWidth(int h) throws IOException {
+	private float getWidth(HCPMeasureContext context, int h, HCPSizeFunction function) throws IOException {
 		float width = 0;
 		for (int v = 0; v < verticalCount; v++)
-			width = Math.max(width, elements[v][h].getWidth());
+			width = Math.max(width, function.getSize(context, elements[v][h]));
 		return width;
 	}
 
 	@Override
 	public float getHeight() throws IOException {
-		return verticalLayout.getSize(getHeights());
+		return getHeight(new HCPMeasureContext());
 	}
 
-	private float[] getHeights() throws IOException {
-		float[] heights = new float[verticalCount];
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return verticalLayout.getSize(getHeights(context));
+	}
+
+	private float[] getHeights(HCPMeasureContext context) throws IOException {
+		context.measureHeights(cells);
+		float[] heights = context.getBuffer(this, HEIGHTS, verticalCount);
 		for (int v = 0; v < verticalCount; v++)
-			heights[v] = getHeight(v);
+			heights[v] = getHeight(context, v);
 		return heights;
 	}
 
-	private float getHeight(int v) throws IOException {
+	private float getHeight(HCPMeasureContext context, int v) throws IOException {
 		float height = 0;
 		for (int h = 0; h < horizontalCount; h++)
-			height = Math.max(height, elements[v][h].getHeight());
+			height = Math.max(height, context.getHeight(elements[v][h]));
 		return height;
 	}
 
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		float[] leftXs = context.getBuffer(this, LEFT_XS, horizontalCount);
+		float[] rightXs = context.getBuffer(this, RIGHT_XS, horizontalCount);
+		horizontalLayout.apply(0, width, getWidths(context, HCPMeasureContext::getWidth), leftXs, rightXs);
+		return verticalLayout.getSize(getHeights(context, leftXs, rightXs));
+	}
+
+	// Uses the height for the width of the column or the preferred height if the column has not been placed.
+	private float[] getHeights(HCPMeasureContext context, float[] leftXs, float[] rightXs) throws IOException {
+		float[] cellWidths = context.getBuffer(this, CELL_WIDTHS, cells.length);
+		for (int v = 0; v < verticalCount; v++)
+			for (int h = 0; h < horizontalCount; h++)
+				cellWidths[v * horizontalCount + h] = rightXs[h] - leftXs[h];
+		context.measureHeights(cells, cellWidths);
+		float[] heights = context.getBuffer(this, HEIGHTS, verticalCount);
+		for (int v = 0; v < verticalCount; v++) {
+			float height = 0;
+			for (int h = 0; h < horizontalCount; h++) {
+				HCPElement element = elements[v][h];
+				float elementHeight = Float.isNaN(leftXs[h]) ? context.getHeight(element) : context.getHeight(
+					element, rightXs[h] - leftXs[h]);
+				height = Math.max(height, elementHeight);
+			}
+			heights[v] = height;
+		}
+		return heights;
+	}
+
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		PDRectangle elementShape = new PDRectangle();
-
-		HCPLayoutSpace verticalSpace = new HCPLayoutSpace(shape.getUpperRightY(), shape.getLowerLeftY());
-		HCPLayoutResults verticalResults = verticalLayout.apply(verticalSpace, getHeights());
-
-		HCPLayoutSpace horizontalSpace = new HCPLayoutSpace(shape.getLowerLeftX(), shape.getUpperRightX());
-		HCPLayoutResults horizontalResults = horizontalLayout.apply(horizontalSpace, getWidths());
-
-		while (verticalResults.hasNext()) {
-			verticalResults.next();
-			elementShape.setLowerLeftY(verticalResults.getLow());
-			elementShape.setUpperRightY(verticalResults.getHigh());
-			HCPElement[] cells = elements[verticalResults.getIndex()];
-
-			horizontalResults.reset();
-			while (horizontalResults.hasNext()) {
-				horizontalResults.next();
-				elementShape.setLowerLeftX(horizontalResults.getLow());
-				elementShape.setUpperRightX(horizontalResults.getHigh());
-				cells[horizontalResults.getIndex()].paint(content, elementShape);
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		HCPMeasureContext measureContext = context.getMeasureContext();
+
+		float[] leftXs = context.getBuffer(this, LEFT_XS, horizontalCount);
+		float[] rightXs = context.getBuffer(this, RIGHT_XS, horizontalCount);
+		float[] widths = getWidths(measureContext, HCPMeasureContext::getWidth);
+		horizontalLayout.apply(lowerLeftX, upperRightX, widths, leftXs, rightXs);
+
+		float[] lowerYs = context.getBuffer(this, LOWER_YS, verticalCount);
+		float[] upperYs = context.getBuffer(this, UPPER_YS, verticalCount);
+		verticalLayout.apply(upperRightY, lowerLeftY, getHeights(measureContext, leftXs, rightXs), lowerYs, upperYs);
+
+		for (int v = 0; v < verticalCount; v++) {
+			if (Float.isNaN(lowerYs[v]))
+				continue;
+			for (int h = 0; h < horizontalCount; h++) {
+				if (!Float.isNaN(leftXs[h]))
+					context.paint(elements[v][h], leftXs[h], lowerYs[v], rightXs[h], upperYs[v]);
+			}
+		}
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElement[][] replaced = null;
+		for (int v = 0; v < verticalCount; v++) {
+			for (int h = 0; h < horizontalCount; h++) {
+				HCPElement element = elements[v][h].replace(target, replacement);
+				if (element != elements[v][h]) {
+					if (replaced == null)
+						replaced = elements.clone();
+					if (replaced[v] == elements[v])
+						replaced[v] = elements[v].clone();
+					replaced[v][h] = element;
+				}
 			}
 		}
+		return replaced == null ? this : new HCPGridContainer(horizontalLayout, verticalLayout, replaced);
 	}
 
 }
@@ -8,10 +8,14 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 import eu.greenlightning.hypercubepdf.layout.*;
 
 class HCPHorizontalContainer implements HCPElement {
 
+	private static final int WIDTHS = 0, LEFTS = 1, RIGHTS = 2;
+
 	private final HCPLayout layout;
 	private final HCPElements elements;
 
@@ -30,29 +34,50 @@ class HCPHorizontalContainer implements HCPElement {
 
 	@Override
 	public float getWidth() throws IOException {
-		return layout.getSize(elements.getWidths());
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return layout.getSize(elements.getWidths(context));
 	}
 
 	@Override
 	public float getHeight() throws IOException {
-		return elements.getMaxHeight();
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return elements.getMaxHeight(context);
 	}
 
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		HCPLayoutSpace space = new HCPLayoutSpace(shape.getLowerLeftX(), shape.getUpperRightX());
-		HCPLayoutResults results = layout.apply(space, elements.getWidths());
-
-		PDRectangle elementShape = new PDRectangle();
-		elementShape.setLowerLeftY(shape.getLowerLeftY());
-		elementShape.setUpperRightY(shape.getUpperRightY());
-
-		while (results.hasNext()) {
-			results.next();
-			elementShape.setLowerLeftX(results.getLow());
-			elementShape.setUpperRightX(results.getHigh());
-			elements.get(results.getIndex()).paint(content, elementShape);
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		int count = elements.size();
+		float[] widths = elements.getWidths(context.getMeasureContext(), context.getBuffer(this, WIDTHS, count));
+		float[] lefts = context.getBuffer(this, LEFTS, count);
+		float[] rights = context.getBuffer(this, RIGHTS, count);
+		layout.apply(lowerLeftX, upperRightX, widths, lefts, rights);
+
+		for (int index = 0; index < count; index++) {
+			if (!Float.isNaN(lefts[index]))
+				context.paint(elements.get(index), lefts[index], lowerLeftY, rights[index], upperRightY);
 		}
 	}
 
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElements elements = this.elements.replace(target, replacement);
+		return elements == this.elements ? this : new HCPHorizontalContainer(layout, elements);
+	}
+
 }
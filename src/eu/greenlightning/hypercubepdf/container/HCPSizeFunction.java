@@ -0,0 +1,28 @@
+package eu.greenlightning.hypercubepdf.container;
+
+import java.io.IOException;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+
+/**
+ * Selects one of the sizes which an {@link HCPMeasureContext} remembers for an element, for example
+ * {@code HCPMeasureContext::getMinWidth}. This allows containers to compute their preferred, minimum and maximum sizes
+ * using the same code.
+ *
+ * @author Green Lightning
+ */
+@FunctionalInterface
+interface HCPSizeFunction {
+
+	/**
+	 * Returns the selected size of the specified element.
+	 *
+	 * @param context not {@code null}
+	 * @param element not {@code null}
+	 * @return the size of the element
+	 * @throws IOException if an error occurs while measuring the element
+	 */
+	float getSize(HCPMeasureContext context, HCPElement element) throws IOException;
+
+}
@@ -2,11 +2,14 @@ package eu.greenlightning.hypercubepdf.container;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Objects;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 
 /**
  * Paints multiple {@link HCPElement}s on top of each other. The elements are painted in the order they are
@@ -45,21 +48,49 @@ public class HCPStack implements HCPElement {
 		this.elements = new HCPElements(elements);
 	}
 
+	private HCPStack(HCPElements elements) {
+		this.elements = elements;
+	}
+
 	@Override
 	public float getWidth() throws IOException {
-		return elements.getMaxWidth();
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return elements.getMaxWidth(context);
 	}
 
 	@Override
 	public float getHeight() throws IOException {
-		return elements.getMaxHeight();
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return elements.getMaxHeight(context);
 	}
 
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
 		for (HCPElement element : elements) {
-			element.paint(content, shape);
+			context.paint(element, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
 		}
 	}
 
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElements elements = this.elements.replace(target, replacement);
+		return elements == this.elements ? this : new HCPStack(elements);
+	}
+
 }
@@ -0,0 +1,353 @@
+package eu.greenlightning.hypercubepdf.container;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
+import eu.greenlightning.hypercubepdf.HCPSplit;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
+import eu.greenlightning.hypercubepdf.container.HCPTableContainer.HCPSpanDistributionPolicy;
+import eu.greenlightning.hypercubepdf.layout.HCPFlowLayout;
+import eu.greenlightning.hypercubepdf.layout.HCPLayout;
+
+/**
+ * A table whose rows are pulled from an {@link Iterable} or from {@link Stream}s while it is split, so that tables
+ * with any number of rows can be painted onto as many pages as necessary with constant memory (see
+ * {@link eu.greenlightning.hypercubepdf.page.HCPDocumentFlow}).
+ * <p>
+ * Each split pulls only as many rows as fit into the available height and returns them together with the header rows
+ * as an {@link HCPTableContainer}, so that the header rows are repeated on each page. The remainder of the split is a
+ * streaming table which continues with the first row which did not fit. Rows are stacked using an
+ * {@link HCPFlowLayout} with the configured row spacing.
+ * <p>
+ * Because the rows are not known in advance, the widths of the columns are determined by the header rows alone and the
+ * horizontal layout, like the columns of the parts of a split {@link HCPTableContainer}. The height of each row is
+ * requested for the widths of its columns (see {@link HCPMeasureContext#getHeight(HCPElement, float)}), so that text
+ * in the rows wraps to the width of the columns. Since the height of the whole table is not known before all rows have
+ * been pulled, a streaming table reports an infinite height.
+ * <p>
+ * Splitting a streaming table does not change it, so it can be split and painted any number of times. A table created
+ * by a builder starts a new iteration of its rows each time and keeps no rows. The remainder of a split continues the
+ * iteration started for the split and keeps the rows pulled from it until the remainder is garbage collected, so that
+ * the rows of the painted parts are released after each page. A row which does not fit below the header rows even on
+ * an empty page is forced onto the page (see {@link HCPSplittable#forceSplit(HCPMeasureContext, float, float)}) and is
+ * cut off, and the table continues with the next row.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public final class HCPStreamingTable implements HCPSplittable {
+
+	/**
+	 * Creates a new builder for a streaming table using the specified layout for its columns.
+	 *
+	 * @param horizontalLayout not {@code null}
+	 * @return a new builder for an {@link HCPStreamingTable}
+	 * @throws NullPointerException if horizontalLayout is {@code null}
+	 */
+	public static Builder create(HCPLayout horizontalLayout) {
+		return new Builder(horizontalLayout);
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPStreamingTable} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private final HCPLayout horizontalLayout;
+		private HCPSpanDistributionPolicy horizontalPolicy = HCPTableContainer.Builder.DEFAULT_POLICY;
+		private float rowSpacing;
+		private final List<HCPElement[]> headers = new ArrayList<>();
+		private Iterable<? extends HCPElement[]> rows = Collections.emptyList();
+
+		private Builder(HCPLayout horizontalLayout) {
+			this.horizontalLayout = Objects.requireNonNull(horizontalLayout, "Horizontal layout must not be null.");
+		}
+
+		/**
+		 * Uses the specified span distribution policy for header cells which span over multiple columns. Any
+		 * previously set policy is overwritten.
+		 *
+		 * @param horizontalPolicy not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if horizontalPolicy is {@code null}
+		 * @see HCPTableContainer.Builder#DEFAULT_POLICY
+		 */
+		public Builder horizontalDistributionPolicy(HCPSpanDistributionPolicy horizontalPolicy) {
+			this.horizontalPolicy = Objects.requireNonNull(horizontalPolicy, "Horizontal policy must not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the space between two rows. The default is 0.
+		 *
+		 * @param rowSpacing must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if rowSpacing is {@literal < 0}
+		 */
+		public Builder rowSpacing(float rowSpacing) {
+			if (rowSpacing < 0)
+				throw new IllegalArgumentException("Row spacing must be equal to or greater than zero, but was "
+					+ rowSpacing + ".");
+			this.rowSpacing = rowSpacing;
+			return this;
+		}
+
+		/**
+		 * Adds a header row below the previously added header rows. The header rows are repeated at the top of each
+		 * part of the table and determine the number and the widths of the columns. The element at index x is placed
+		 * in column x; {@code null} elements leave their cell empty.
+		 *
+		 * @param cells not {@code null}; may contain {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if cells is {@code null}
+		 */
+		public Builder header(HCPElement... cells) {
+			headers.add(Objects.requireNonNull(cells, "Cells must not be null.").clone());
+			return this;
+		}
+
+		/**
+		 * Sets the rows of the table, replacing any previously set rows. Each row is an array of the elements in its
+		 * cells, where the element at index x is placed in column x and {@code null} elements leave their cell empty.
+		 * Rows must not have more cells than there are columns.
+		 * <p>
+		 * A new iterator is requested each time the table created by this builder is split or painted, which must
+		 * return the same rows each time. The iterators are not requested before the table is split.
+		 *
+		 * @param rows not {@code null}; its iterators must not return {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if rows is {@code null}
+		 */
+		public Builder rows(Iterable<? extends HCPElement[]> rows) {
+			this.rows = Objects.requireNonNull(rows, "Rows must not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the rows of the table, replacing any previously set rows (see {@link #rows(Iterable)}). A new stream is
+		 * requested from the supplier each time the table is split or painted, so that the rows can be created while
+		 * they are pulled, for example from a query.
+		 *
+		 * @param rows not {@code null}; must supply streams of the same rows, which must not contain {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if rows is {@code null}
+		 */
+		public Builder rows(Supplier<? extends Stream<HCPElement[]>> rows) {
+			Objects.requireNonNull(rows, "Rows must not be null.");
+			return rows(() -> rows.get().iterator());
+		}
+
+		/**
+		 * Creates the {@link HCPStreamingTable}.
+		 *
+		 * @return a new {@link HCPStreamingTable} containing the header rows and the rows set using this builder
+		 * @throws IllegalStateException if no header row has been added
+		 */
+		public HCPStreamingTable build() {
+			if (headers.isEmpty())
+				throw new IllegalStateException("A streaming table must have at least one header row.");
+			HCPTableContainer header = HCPTableContainer.create(horizontalLayout, HCPFlowLayout.getInstance(rowSpacing))
+				.horizontalDistributionPolicy(horizontalPolicy)
+				.addElements(headers.toArray(new HCPElement[headers.size()][]), 0, 0)
+				.build();
+			if (header.getColumnCount() == 0)
+				throw new IllegalStateException("The header rows of a streaming table must not be empty.");
+			List<HCPTablePosition> positions = new ArrayList<>();
+			for (int y = 0; y < headers.size(); y++)
+				addPositions(headers.get(y), y, positions);
+			return new HCPStreamingTable(header, positions, headers.size(), rowSpacing, rows, null);
+		}
+
+	}
+
+	private final HCPTableContainer header;
+	private final List<HCPTablePosition> headerPositions;
+	private final int headerRowCount;
+	private final float rowSpacing;
+	private final Iterable<? extends HCPElement[]> rows;
+	// The first row of a remainder; null for a table created by a builder, which starts a new iteration of its rows.
+	private final Cursor first;
+
+	private HCPStreamingTable(HCPTableContainer header, List<HCPTablePosition> headerPositions, int headerRowCount,
+		float rowSpacing, Iterable<? extends HCPElement[]> rows, Cursor first) {
+		this.header = header;
+		this.headerPositions = headerPositions;
+		this.headerRowCount = headerRowCount;
+		this.rowSpacing = rowSpacing;
+		this.rows = rows;
+		this.first = first;
+	}
+
+	private static void addPositions(HCPElement[] row, int y, List<HCPTablePosition> positions) {
+		for (int x = 0; x < row.length; x++)
+			if (row[x] != null)
+				positions.add(new HCPTablePosition(row[x], x, y));
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return context.getWidth(header);
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return context.getMinWidth(header);
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return context.getMaxWidth(header);
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return Float.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return Float.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return Float.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public HCPSplit split(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(context, width, height, false);
+	}
+
+	@Override
+	public HCPSplit forceSplit(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(context, width, height, true);
+	}
+
+	private HCPSplit split(HCPMeasureContext context, float width, float height, boolean force) throws IOException {
+		Cursor start = getFirst();
+		List<HCPTablePosition> positions = new ArrayList<>(headerPositions);
+		Cursor end = addRows(context, width, height, force, start, positions);
+		if (end.getRow() == null)
+			return HCPSplit.fitting(this);
+		if (end == start)
+			return HCPSplit.notFitting(this);
+		return HCPSplit.create(header.createPart(positions), new HCPStreamingTable(header, headerPositions,
+			headerRowCount, rowSpacing, rows, end));
+	}
+
+	private Cursor getFirst() {
+		return first == null ? new Cursor(rows.iterator(), header.getColumnCount()) : first;
+	}
+
+	// Adds the positions of the rows starting at the cursor which fit below the header rows and returns the cursor of
+	// the first row which does not fit. If the split is forced, the first row is added even if it does not fit.
+	private Cursor addRows(HCPMeasureContext context, float width, float height, boolean force, Cursor cursor,
+		List<HCPTablePosition> positions) throws IOException {
+		List<HCPTablePosition> rowPositions = new ArrayList<>();
+		float used = context.getHeight(header, width);
+		int y = headerRowCount;
+		for (HCPElement[] row; (row = cursor.getRow()) != null; cursor = cursor.getNext()) {
+			rowPositions.clear();
+			addPositions(row, 0, rowPositions);
+			float top = used + rowSpacing;
+			float rowHeight = context.getHeight(header.createPart(rowPositions), width);
+			if (top + rowHeight > height && !(force && y == headerRowCount))
+				break;
+			addPositions(row, y++, positions);
+			used = top + rowHeight;
+		}
+		return cursor;
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	/**
+	 * Paints the header rows and as many rows as fit into the shape. The remaining rows are not painted.
+	 */
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		HCPMeasureContext measureContext = context.getMeasureContext();
+		float width = Math.max(upperRightX - lowerLeftX, 0);
+		List<HCPTablePosition> positions = new ArrayList<>(headerPositions);
+		addRows(measureContext, width, upperRightY - lowerLeftY, false, getFirst(), positions);
+		HCPTableContainer part = header.createPart(positions);
+		float height = measureContext.getHeight(part, width);
+		context.paint(part, lowerLeftX, upperRightY - height, upperRightX, upperRightY);
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		return this;
+	}
+
+	// A position in the rows of a streaming table. The row at the position is pulled from the iterator when it is
+	// first needed and is then kept together with the position of the next row, so that the rows of a remainder are
+	// the same each time it is split. Positions which are no longer referenced are garbage collected with their rows.
+	private static final class Cursor {
+
+		private final int columnCount;
+		private Iterator<? extends HCPElement[]> rows; // null once the row at this position has been pulled
+		private HCPElement[] row;
+		private Cursor next;
+
+		Cursor(Iterator<? extends HCPElement[]> rows, int columnCount) {
+			this.rows = rows;
+			this.columnCount = columnCount;
+		}
+
+		// Returns the row at this position; null if there are no more rows.
+		synchronized HCPElement[] getRow() {
+			pull();
+			return row;
+		}
+
+		// Returns the position of the next row; null if there are no more rows.
+		synchronized Cursor getNext() {
+			pull();
+			return next;
+		}
+
+		private void pull() {
+			if (rows == null)
+				return;
+			if (rows.hasNext()) {
+				row = checkRow(rows.next());
+				next = new Cursor(rows, columnCount);
+			}
+			rows = null;
+		}
+
+		private HCPElement[] checkRow(HCPElement[] row) {
+			Objects.requireNonNull(row, "Row must not be null.");
+			if (row.length > columnCount)
+				throw new IllegalArgumentException("Row must not have more cells than the table has columns ("
+					+ columnCount + "), but had " + row.length + ".");
+			return row;
+		}
+
+	}
+
+}
@@ -9,6 +9,10 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
+import eu.greenlightning.hypercubepdf.HCPSplit;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
 import eu.greenlightning.hypercubepdf.layout.*;
 
 /**
@@ -22,13 +26,21 @@ import eu.greenlightning.hypercubepdf.layout.*;
  * remaining size is split up and added to the base sizes of these columns or rows. How the remaining size is split up
  * is determined by an {@link HCPSpanDistributionPolicy}. Different policies can be configured for columns and rows.
  * <p>
+ * When painting, the columns are laid out first and the height of each element is then requested for the width of the
+ * columns it occupies (see {@link HCPMeasureContext#getHeight(HCPElement, float)}), so that elements whose height
+ * depends on their width determine the height of the rows correctly.
+ * <p>
  * The elements are painted in the order in that they were added to the container.
  * <p>
+ * A table using an {@link HCPFlowLayout} for its rows is {@link HCPSplittable} between rows. Rows are not split
+ * themselves and rows which are spanned by an element are kept together. The parts of a split table use the widths of
+ * the columns of the whole table, so that the columns line up across pages.
+ * <p>
  * This class is immutable.
  * 
  * @author Green Lightning
  */
-public class HCPTableContainer implements HCPElement {
+public class HCPTableContainer implements HCPSplittable {
 
 	/**
 	 * Specifies how the widths or heights of a series of columns or rows should be adjusted if an element spanning over
@@ -324,45 +336,88 @@ public class HCPTableContainer implements HCPElement {
 
 	private static final HCPTablePosition[] EMPTY_POSITION_ARRAY = new HCPTablePosition[0];
 
+	private static final int WIDTHS = 0, HEIGHTS = 1, LEFT_XS = 2, RIGHT_XS = 3, LOWER_YS = 4, UPPER_YS = 5,
+		CELL_WIDTHS = 6;
+
 	private final HCPLayout horizontalLayout, verticalLayout;
 	private final HCPSpanDistributionPolicy horizontalPolicy, verticalPolicy;
 	private final HCPTablePosition[] positions;
+	private final HCPElement[] cells;
 	private final int horizontalCount, verticalCount;
+	// The table whose elements determine the widths of the columns; this table unless it is a part of a split.
+	private final HCPTableContainer columns;
 
 	private HCPTableContainer(HCPLayout horizontalLayout, HCPLayout verticalLayout,
 		HCPSpanDistributionPolicy horizontalPolicy, HCPSpanDistributionPolicy verticalPolicy,
 		List<HCPTablePosition> positions) {
+		this(horizontalLayout, verticalLayout, horizontalPolicy, verticalPolicy, positions, null);
+	}
+
+	private HCPTableContainer(HCPLayout horizontalLayout, HCPLayout verticalLayout,
+		HCPSpanDistributionPolicy horizontalPolicy, HCPSpanDistributionPolicy verticalPolicy,
+		List<HCPTablePosition> positions, HCPTableContainer columns) {
 		this.horizontalLayout = horizontalLayout;
 		this.verticalLayout = verticalLayout;
 		this.horizontalPolicy = horizontalPolicy;
 		this.verticalPolicy = verticalPolicy;
 		this.positions = positions.toArray(EMPTY_POSITION_ARRAY);
-		this.horizontalCount = calculateCount(HCPTablePosition::getRightX);
+		this.cells = positions().map(HCPTablePosition::getElement).toArray(HCPElement[]::new);
+		this.columns = columns == null ? this : columns;
+		this.horizontalCount = columns == null ? calculateCount(HCPTablePosition::getRightX) : columns.horizontalCount;
 		this.verticalCount = calculateCount(HCPTablePosition::getLowerY);
 	}
 
+	/**
+	 * Returns the number of columns of this table.
+	 * 
+	 * @return the number of columns
+	 */
+	int getColumnCount() {
+		return horizontalCount;
+	}
+
 	private int calculateCount(ToIntFunction<? super HCPTablePosition> mapper) {
 		return positions().mapToInt(mapper).max().orElse(-1) + 1;
 	}
 
 	@Override
 	public float getWidth() throws IOException {
-		return horizontalLayout.getSize(getWidths());
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return horizontalLayout.getSize(getWidths(context, HCPMeasureContext::getWidth));
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return horizontalLayout.getSize(getWidths(context, HCPMeasureContext::getMinWidth));
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		return horizontalLayout.getSize(getWidths(context, HCPMeasureContext::getMaxWidth));
 	}
 
-	private float[] getWidths() throws IOException {
-		float[] widths = new float[horizontalCount];
+	private float[] getWidths(HCPMeasureContext context, HCPSizeFunction function) throws IOException {
+		if (columns != this)
+			return columns.getWidths(context, function);
+		context.measureWidths(cells);
+		float[] widths = context.getBuffer(this, WIDTHS, horizontalCount);
+		Arrays.fill(widths, 0);
 		for (HCPTablePosition position : positions) {
 			if (!position.spansHorizontally()) {
 				int index = position.getX();
-				float width = position.getWidth();
+				float width = function.getSize(context, position.getElement());
 				if (width > widths[index])
 					widths[index] = width;
 			}
 		}
 		for (HCPTablePosition position : positions) {
 			if (position.spansHorizontally()) {
-				horizontalPolicy.adjustSizes(widths, position.getWidth(), position.getX(), position.getRightX());
+				float width = function.getSize(context, position.getElement());
+				horizontalPolicy.adjustSizes(widths, width, position.getX(), position.getRightX());
 			}
 		}
 		return widths;
@@ -370,108 +425,219 @@ public class HCPTableContainer implements HCPElement {
 
 	@Override
 	public float getHeight() throws IOException {
-		return verticalLayout.getSize(getHeights());
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return verticalLayout.getSize(getHeights(context));
 	}
 
-	private float[] getHeights() throws IOException {
-		float[] heights = new float[verticalCount];
+	private float[] getHeights(HCPMeasureContext context) throws IOException {
+		context.measureHeights(cells);
+		float[] heights = context.getBuffer(this, HEIGHTS, verticalCount);
+		Arrays.fill(heights, 0);
 		for (HCPTablePosition position : positions) {
 			if (!position.spansVertically()) {
 				int index = position.getY();
-				float height = position.getHeight();
+				float height = context.getHeight(position.getElement());
 				if (height > heights[index])
 					heights[index] = height;
 			}
 		}
 		for (HCPTablePosition position : positions) {
 			if (position.spansVertically()) {
-				verticalPolicy.adjustSizes(heights, position.getHeight(), position.getY(), position.getLowerY());
+				float height = context.getHeight(position.getElement());
+				verticalPolicy.adjustSizes(heights, height, position.getY(), position.getLowerY());
 			}
 		}
 		return heights;
 	}
 
 	@Override
-	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		List<PositionPainter> painters = new ArrayList<>(positions.length);
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		float[] leftXs = context.getBuffer(this, LEFT_XS, horizontalCount);
+		float[] rightXs = context.getBuffer(this, RIGHT_XS, horizontalCount);
+		horizontalLayout.apply(0, width, getWidths(context, HCPMeasureContext::getWidth), leftXs, rightXs);
+		return verticalLayout.getSize(getHeights(context, leftXs, rightXs));
+	}
+
+	private float[] getHeights(HCPMeasureContext context, float[] leftXs, float[] rightXs) throws IOException {
+		float[] cellWidths = context.getBuffer(this, CELL_WIDTHS, cells.length);
+		for (int index = 0; index < positions.length; index++)
+			cellWidths[index] = rightXs[getRightIndex(positions[index])] - leftXs[positions[index].getX()];
+		context.measureHeights(cells, cellWidths);
+		float[] heights = context.getBuffer(this, HEIGHTS, verticalCount);
+		Arrays.fill(heights, 0);
 		for (HCPTablePosition position : positions) {
-			painters.add(new PositionPainter(position, horizontalCount, verticalCount));
+			if (!position.spansVertically()) {
+				int index = position.getY();
+				float height = getHeight(context, position, leftXs, rightXs);
+				if (height > heights[index])
+					heights[index] = height;
+			}
 		}
+		for (HCPTablePosition position : positions) {
+			if (position.spansVertically()) {
+				float height = getHeight(context, position, leftXs, rightXs);
+				verticalPolicy.adjustSizes(heights, height, position.getY(), position.getLowerY());
+			}
+		}
+		return heights;
+	}
 
-		HCPLayoutSpace horizontalSpace = new HCPLayoutSpace(shape.getLowerLeftX(), shape.getUpperRightX());
-		HCPLayoutResults horizontalResults = horizontalLayout.apply(horizontalSpace, getWidths());
-		setCoordinates(painters, horizontalResults, PositionPainter::setLeftX, PositionPainter::setRightX);
+	// Uses the height for the width of the columns or the preferred height if the columns have not been placed.
+	private float getHeight(HCPMeasureContext context, HCPTablePosition position, float[] leftXs, float[] rightXs)
+		throws IOException {
+		float leftX = leftXs[position.getX()];
+		float rightX = rightXs[getRightIndex(position)];
+		if (Float.isNaN(leftX) || Float.isNaN(rightX))
+			return context.getHeight(position.getElement());
+		return context.getHeight(position.getElement(), rightX - leftX);
+	}
+
+	private int getRightIndex(HCPTablePosition position) {
+		return position.horizontallyRemaining() ? horizontalCount - 1 : position.getRightX();
+	}
+
+	@Override
+	public HCPSplit split(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(context, width, height, false);
+	}
 
-		HCPLayoutSpace verticalSpace = new HCPLayoutSpace(shape.getUpperRightY(), shape.getLowerLeftY());
-		HCPLayoutResults verticalResults = verticalLayout.apply(verticalSpace, getHeights());
-		setCoordinates(painters, verticalResults, PositionPainter::setLowerY, PositionPainter::setUpperY);
+	@Override
+	public HCPSplit forceSplit(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(context, width, height, true);
+	}
 
-		for (PositionPainter painter : painters) {
-			painter.paint(content);
+	// If the split is forced and the first rows do not fit, the first rows which are joined by an element are forced
+	// into the head.
+	private HCPSplit split(HCPMeasureContext context, float width, float height, boolean force) throws IOException {
+		if (context.getHeight(this, width) <= height)
+			return HCPSplit.fitting(this);
+		if (!(verticalLayout instanceof HCPFlowLayout))
+			return force ? HCPSplit.fitting(this) : HCPSplit.notFitting(this);
+		float[] leftXs = context.getBuffer(this, LEFT_XS, horizontalCount);
+		float[] rightXs = context.getBuffer(this, RIGHT_XS, horizontalCount);
+		horizontalLayout.apply(0, width, getWidths(context, HCPMeasureContext::getWidth), leftXs, rightXs);
+		float[] heights = getHeights(context, leftXs, rightXs);
+		boolean[] joined = getJoinedRows();
+		int rows = getFittingRowCount(heights, joined, ((HCPFlowLayout) verticalLayout).getSpacing(), height);
+		if (rows == 0 && force)
+			rows = getFirstRowCount(joined);
+		if (rows == 0)
+			return HCPSplit.notFitting(this);
+		if (rows == verticalCount)
+			return HCPSplit.fitting(this);
+		List<HCPTablePosition> head = new ArrayList<>(), tail = new ArrayList<>();
+		for (HCPTablePosition position : positions) {
+			if (position.getY() < rows)
+				head.add(position);
+			else
+				tail.add(new HCPTablePosition(position.getElement(), position.getX(), position.getY() - rows, position
+					.getHorizontalSpan(), position.getVerticalSpan()));
 		}
+		return HCPSplit.create(createPart(head), createPart(tail));
 	}
 
-	private void setCoordinates(List<PositionPainter> painters, HCPLayoutResults results, CoordinateSetter low,
-		CoordinateSetter high) {
-		while (results.hasNext()) {
-			results.next();
-			for (PositionPainter painter : painters) {
-				low.setCoordinate(painter, results.getIndex(), results.getLow());
-				high.setCoordinate(painter, results.getIndex(), results.getHigh());
-			}
+	// Returns joined, where joined[row] is whether row is spanned together with row - 1 by an element.
+	private boolean[] getJoinedRows() {
+		boolean[] joined = new boolean[verticalCount];
+		for (HCPTablePosition position : positions) {
+			int lowerIndex = position.verticallyRemaining() ? verticalCount - 1 : position.getLowerY();
+			for (int row = position.getY() + 1; row <= lowerIndex; row++)
+				joined[row] = true;
 		}
+		return joined;
 	}
 
-	private Stream<HCPTablePosition> positions() {
-		return Arrays.stream(positions);
+	// Returns the number of rows at the top which fit into the height and are not joined to the next row by an element.
+	private int getFittingRowCount(float[] heights, boolean[] joined, float spacing, float height) {
+		int count = 0;
+		float used = -spacing;
+		for (int row = 0; row < verticalCount - 1; row++) {
+			used += spacing + heights[row];
+			if (used > height)
+				break;
+			if (!joined[row + 1])
+				count = row + 1;
+		}
+		return count;
 	}
 
-	@FunctionalInterface
-	private static interface CoordinateSetter {
-			void setCoordinate(PositionPainter painter, int index, float coordinate);
+	// Returns the number of rows at the top which are joined to each other, but not to the next row, by elements.
+	private int getFirstRowCount(boolean[] joined) {
+		int count = 1;
+		while (count < verticalCount && joined[count])
+			count++;
+		return count;
 	}
 
-	private static class PositionPainter {
+	/**
+	 * Creates a table of the specified positions with the layouts and policies of this table, which uses the widths of
+	 * the columns of this table (or of the whole table if this table is itself a part).
+	 * 
+	 * @param positions not {@code null}; must not be placed to the right of the columns of this table
+	 * @return a new {@link HCPTableContainer}
+	 */
+	HCPTableContainer createPart(List<HCPTablePosition> positions) {
+		return new HCPTableContainer(horizontalLayout, verticalLayout, horizontalPolicy, verticalPolicy, positions,
+			columns);
+	}
 
-		private final HCPTablePosition position;
-		private final int rightIndex, lowerIndex;
-		private final PDRectangle shape;
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		new HCPRenderContext(content).paint(this, shape);
+	}
 
-		public PositionPainter(HCPTablePosition position, int horizontalCount, int verticalCount) {
-			this.position = position;
-			this.rightIndex = position.horizontallyRemaining() ? horizontalCount - 1 : position.getRightX();
-			this.lowerIndex = position.verticallyRemaining() ? verticalCount - 1 : position.getLowerY();
-			this.shape = new PDRectangle();
-		}
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		HCPMeasureContext measureContext = context.getMeasureContext();
 
-		public void setLeftX(int index, float x) {
-			if (position.getX() == index) {
-				shape.setLowerLeftX(x);
-			}
-		}
+		float[] leftXs = context.getBuffer(this, LEFT_XS, horizontalCount);
+		float[] rightXs = context.getBuffer(this, RIGHT_XS, horizontalCount);
+		float[] widths = getWidths(measureContext, HCPMeasureContext::getWidth);
+		horizontalLayout.apply(lowerLeftX, upperRightX, widths, leftXs, rightXs);
 
-		public void setRightX(int index, float x) {
-			if (rightIndex == index) {
-				shape.setUpperRightX(x);
-			}
-		}
+		float[] lowerYs = context.getBuffer(this, LOWER_YS, verticalCount);
+		float[] upperYs = context.getBuffer(this, UPPER_YS, verticalCount);
+		verticalLayout.apply(upperRightY, lowerLeftY, getHeights(measureContext, leftXs, rightXs), lowerYs, upperYs);
 
-		public void setUpperY(int index, float y) {
-			if (position.getY() == index) {
-				shape.setUpperRightY(y);
-			}
+		for (HCPTablePosition position : positions) {
+			int rightIndex = getRightIndex(position);
+			int lowerIndex = position.verticallyRemaining() ? verticalCount - 1 : position.getLowerY();
+			float leftX = leftXs[position.getX()];
+			float rightX = rightXs[rightIndex];
+			float lowerY = lowerYs[lowerIndex];
+			float upperY = upperYs[position.getY()];
+			if (Float.isNaN(leftX) || Float.isNaN(rightX) || Float.isNaN(lowerY) || Float.isNaN(upperY))
+				continue;
+			context.paint(position.getElement(), leftX, lowerY, rightX, upperY);
 		}
+	}
 
-		public void setLowerY(int index, float y) {
-			if (lowerIndex == index) {
-				shape.setLowerLeftY(y);
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		List<HCPTablePosition> replaced = null;
+		for (int index = 0; index < positions.length; index++) {
+			HCPElement element = positions[index].getElement().replace(target, replacement);
+			if (element != positions[index].getElement()) {
+				if (replaced == null)
+					replaced = new ArrayList<>(Arrays.asList(positions));
+				replaced.set(index, positions[index].withElement(element));
 			}
 		}
+		if (replaced == null)
+			return this;
+		return new HCPTableContainer(horizontalLayout, verticalLayout, horizontalPolicy, verticalPolicy, replaced,
+			columns == this ? null : columns);
+	}
 
-		public void paint(PDPageContentStream content) throws IOException {
-			position.getElement().paint(content, shape);
-		}
-
+	private Stream<HCPTablePosition> positions() {
+		return Arrays.stream(positions);
 	}
 
 }
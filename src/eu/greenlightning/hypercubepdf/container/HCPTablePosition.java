@@ -79,6 +79,18 @@ public class HCPTablePosition {
 		return element;
 	}
 
+	/**
+	 * Returns an {@link HCPTablePosition} instance that uses the specified element, but has all other properties in
+	 * common with this instance. This method may return {@code this} instance if it already uses the specified element.
+	 * 
+	 * @param element not {@code null}
+	 * @return an {@link HCPTablePosition} instance that uses the specified element
+	 * @throws NullPointerException if element is {@code null}
+	 */
+	public HCPTablePosition withElement(HCPElement element) {
+		return this.element == element ? this : new HCPTablePosition(element, x, y, horizontalSpan, verticalSpan);
+	}
+
 	/**
 	 * Returns the width of the element at this position.
 	 * 
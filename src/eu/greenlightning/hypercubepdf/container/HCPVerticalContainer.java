@@ -1,16 +1,21 @@
 package eu.greenlightning.hypercubepdf.container;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Objects;
+import java.util.*;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
+import eu.greenlightning.hypercubepdf.HCPSplit;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
 import eu.greenlightning.hypercubepdf.layout.*;
 
-class HCPVerticalContainer implements HCPElement {
+class HCPVerticalContainer implements HCPSplittable {
+
+	private static final int HEIGHTS = 0, LOWERS = 1, UPPERS = 2;
 
 	private final HCPLayout layout;
 	private final HCPElements elements;
@@ -30,29 +35,104 @@ class HCPVerticalContainer implements HCPElement {
 
 	@Override
 	public float getWidth() throws IOException {
-		return elements.getMaxWidth();
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return elements.getMaxWidth(context);
 	}
 
 	@Override
 	public float getHeight() throws IOException {
-		return layout.getSize(elements.getHeights());
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return layout.getSize(elements.getHeights(context));
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return layout.getSize(elements.getHeights(context, width, context.getBuffer(this, HEIGHTS, elements.size())));
+	}
+
+	@Override
+	public HCPSplit split(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(context, width, height, false);
+	}
+
+	@Override
+	public HCPSplit forceSplit(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(context, width, height, true);
+	}
+
+	// Only a flow layout keeps the positions of the elements before the split, so other layouts are not split. If the
+	// split is forced and the first element does not fit, the first element is forced into the head.
+	private HCPSplit split(HCPMeasureContext context, float width, float height, boolean force) throws IOException {
+		if (context.getHeight(this, width) <= height)
+			return HCPSplit.fitting(this);
+		if (!(layout instanceof HCPFlowLayout))
+			return force ? HCPSplit.fitting(this) : HCPSplit.notFitting(this);
+		float spacing = ((HCPFlowLayout) layout).getSpacing();
+		float used = 0;
+		int index = 0;
+		for (; index < elements.size(); index++) {
+			float top = index == 0 ? 0 : used + spacing;
+			float elementHeight = context.getHeight(elements.get(index), width);
+			if (top + elementHeight > height)
+				break;
+			used = top + elementHeight;
+		}
+		if (index == elements.size())
+			return HCPSplit.fitting(this);
+		float top = index == 0 ? 0 : used + spacing;
+		HCPSplit split = force && index == 0 ? context.forceSplit(elements.get(index), width, height) : context.split(
+			elements.get(index), width, height - top);
+		List<HCPElement> head = new ArrayList<>(), tail = new ArrayList<>();
+		for (int before = 0; before < index; before++)
+			head.add(elements.get(before));
+		if (split.getHead() != null)
+			head.add(split.getHead());
+		if (split.getTail() != null)
+			tail.add(split.getTail());
+		for (int after = index + 1; after < elements.size(); after++)
+			tail.add(elements.get(after));
+		if (head.isEmpty())
+			return HCPSplit.notFitting(this);
+		if (tail.isEmpty())
+			return HCPSplit.fitting(this);
+		return HCPSplit.create(new HCPVerticalContainer(layout, head), new HCPVerticalContainer(layout, tail));
 	}
 
 	@Override
 	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		HCPLayoutSpace space = new HCPLayoutSpace(shape.getUpperRightY(), shape.getLowerLeftY());
-		HCPLayoutResults results = layout.apply(space, elements.getHeights());
-
-		PDRectangle elementShape = new PDRectangle();
-		elementShape.setLowerLeftX(shape.getLowerLeftX());
-		elementShape.setUpperRightX(shape.getUpperRightX());
-
-		while (results.hasNext()) {
-			results.next();
-			elementShape.setLowerLeftY(results.getLow());
-			elementShape.setUpperRightY(results.getHigh());
-			elements.get(results.getIndex()).paint(content, elementShape);
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		int count = elements.size();
+		float[] heights = elements.getHeights(context.getMeasureContext(), upperRightX - lowerLeftX, context.getBuffer(
+			this, HEIGHTS, count));
+		float[] lowers = context.getBuffer(this, LOWERS, count);
+		float[] uppers = context.getBuffer(this, UPPERS, count);
+		layout.apply(upperRightY, lowerLeftY, heights, lowers, uppers);
+
+		for (int index = 0; index < count; index++) {
+			if (!Float.isNaN(lowers[index]))
+				context.paint(elements.get(index), lowerLeftX, lowers[index], upperRightX, uppers[index]);
 		}
 	}
 
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElements elements = this.elements.replace(target, replacement);
+		return elements == this.elements ? this : new HCPVerticalContainer(layout, elements);
+	}
+
 }
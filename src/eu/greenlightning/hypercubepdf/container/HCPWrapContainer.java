@@ -0,0 +1,270 @@
+package eu.greenlightning.hypercubepdf.container;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+
+/**
+ * Paints a sequence of {@link HCPElement}s from left to right and wraps them into as many rows as necessary to fit the
+ * available width, for example to display a list of tags or labels.
+ * <p>
+ * Each element is painted using its preferred width. A new row is started as soon as the next element (and the spacing
+ * before it) does not fit into the current row anymore. Each row contains at least one element; an element which is
+ * wider than the container is painted using the width of the container. The height of a row is the height of its
+ * highest element and all elements of a row are painted using the height of the row. The rows are aligned
+ * horizontally inside the container using an {@link HCPHorizontalAlignment} and are painted from top to bottom as long
+ * as space is available. A row which does not fit completely is painted using the remaining height.
+ * <p>
+ * The preferred width of the container is the width of all elements in a single row and its preferred height is the
+ * height of that row. The height of the container for a given width (see
+ * {@link HCPMeasureContext#getHeight(HCPElement, float)}) is the total height of the rows which are created at that
+ * width, so that containers like the {@link HCPTableContainer} reserve enough space for all rows.
+ * <p>
+ * The rows are determined in a single pass over the widths of the elements, which are only measured once per
+ * {@link HCPMeasureContext}.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPWrapContainer implements HCPElement {
+
+	/**
+	 * Creates a new builder.
+	 *
+	 * @return a new builder for an {@link HCPWrapContainer}
+	 */
+	public static Builder create() {
+		return new Builder();
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPWrapContainer} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private final List<HCPElement> elements = new ArrayList<>();
+		private float spacing, lineSpacing;
+		private HCPHorizontalAlignment alignment = HCPHorizontalAlignment.LEFT;
+
+		// Hide the constructor so that HCPWrapContainer.create() must be used
+		private Builder() {}
+
+		/**
+		 * Adds the specified elements to the end of the sequence.
+		 *
+		 * @param elements not {@code null}; must not contain {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if elements is {@code null} or contains {@code null}
+		 */
+		public Builder add(HCPElement... elements) {
+			return add(Arrays.asList(Objects.requireNonNull(elements, "Elements must not be null.")));
+		}
+
+		/**
+		 * Adds the specified elements to the end of the sequence.
+		 *
+		 * @param elements not {@code null}; must not contain {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if elements is {@code null} or contains {@code null}
+		 */
+		public Builder add(Collection<? extends HCPElement> elements) {
+			Objects.requireNonNull(elements, "Elements must not be null.");
+			for (HCPElement element : elements)
+				this.elements.add(Objects.requireNonNull(element, "Elements must not contain null."));
+			return this;
+		}
+
+		/**
+		 * Sets the horizontal spacing between two adjacent elements of the same row, replacing any previously set
+		 * value.
+		 *
+		 * @param spacing must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if spacing is {@literal < 0}
+		 */
+		public Builder spacing(float spacing) {
+			this.spacing = checkSpacing(spacing, "Spacing");
+			return this;
+		}
+
+		/**
+		 * Sets the vertical spacing between two adjacent rows, replacing any previously set value.
+		 *
+		 * @param lineSpacing must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if lineSpacing is {@literal < 0}
+		 */
+		public Builder lineSpacing(float lineSpacing) {
+			this.lineSpacing = checkSpacing(lineSpacing, "Line spacing");
+			return this;
+		}
+
+		private float checkSpacing(float spacing, String name) {
+			if (spacing < 0)
+				throw new IllegalArgumentException(name + " must be equal to or greater than zero, but was " + spacing
+					+ ".");
+			return spacing;
+		}
+
+		/**
+		 * Sets the alignment of the rows inside the container, replacing any previously set value. By default the rows
+		 * are aligned to the left.
+		 *
+		 * @param alignment not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if alignment is {@code null}
+		 */
+		public Builder alignment(HCPHorizontalAlignment alignment) {
+			this.alignment = Objects.requireNonNull(alignment, "Alignment must not be null.");
+			return this;
+		}
+
+		/**
+		 * Creates the {@link HCPWrapContainer}.
+		 *
+		 * @return a new {@link HCPWrapContainer} containing the elements added using this builder
+		 */
+		public HCPWrapContainer build() {
+			return new HCPWrapContainer(new HCPElements(elements), spacing, lineSpacing, alignment);
+		}
+
+	}
+
+	private static final int WIDTHS = 0;
+
+	private final HCPElements elements;
+	private final float spacing, lineSpacing;
+	private final HCPHorizontalAlignment alignment;
+
+	private HCPWrapContainer(HCPElements elements, float spacing, float lineSpacing,
+		HCPHorizontalAlignment alignment) {
+		this.elements = elements;
+		this.spacing = spacing;
+		this.lineSpacing = lineSpacing;
+		this.alignment = alignment;
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getWidth(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getWidth(HCPMeasureContext context) throws IOException {
+		return elements.getTotalWidth(context) + getTotalSpacing();
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		float width = 0;
+		for (HCPElement element : elements)
+			width = Math.max(width, context.getMinWidth(element));
+		return width;
+	}
+
+	@Override
+	public float getMaxWidth(HCPMeasureContext context) throws IOException {
+		float width = 0;
+		for (HCPElement element : elements)
+			width += context.getMaxWidth(element);
+		return width + getTotalSpacing();
+	}
+
+	private float getTotalSpacing() {
+		return elements.size() > 1 ? (elements.size() - 1) * spacing : 0;
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return getHeight(new HCPMeasureContext());
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context) throws IOException {
+		return elements.getMaxHeight(context);
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		float[] widths = elements.getWidths(context, context.getBuffer(this, WIDTHS, elements.size()));
+		float height = 0;
+		for (int start = 0, end; start < elements.size(); start = end) {
+			end = getRowEnd(widths, start, width);
+			if (start > 0)
+				height += lineSpacing;
+			height += getRowHeight(context, widths, start, end, width);
+		}
+		return height;
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		new HCPRenderContext(content).paint(this, shape);
+	}
+
+	@Override
+	public void paint(HCPRenderContext context, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		HCPMeasureContext measureContext = context.getMeasureContext();
+		float[] widths = elements.getWidths(measureContext, context.getBuffer(this, WIDTHS, elements.size()));
+		float width = upperRightX - lowerLeftX;
+		float upperY = upperRightY;
+		for (int start = 0, end; start < elements.size() && upperY > lowerLeftY; start = end) {
+			end = getRowEnd(widths, start, width);
+			float lowerY = Math.max(upperY - getRowHeight(measureContext, widths, start, end, width), lowerLeftY);
+			float rowWidth = Math.min(getRowWidth(widths, start, end), width);
+			float leftX = alignment.align(rowWidth, lowerLeftX, upperRightX);
+			for (int index = start; index < end; index++) {
+				float rightX = Math.min(leftX + widths[index], upperRightX);
+				context.paint(elements.get(index), leftX, lowerY, rightX, upperY);
+				leftX = rightX + spacing;
+			}
+			upperY = lowerY - lineSpacing;
+		}
+	}
+
+	// Returns the index after the last element of the row starting at the specified index.
+	private int getRowEnd(float[] widths, int start, float width) {
+		float rowWidth = widths[start];
+		int end = start + 1;
+		while (end < elements.size() && rowWidth + spacing + widths[end] <= width) {
+			rowWidth += spacing + widths[end];
+			end++;
+		}
+		return end;
+	}
+
+	private float getRowWidth(float[] widths, int start, int end) {
+		float width = (end - start - 1) * spacing;
+		for (int index = start; index < end; index++)
+			width += widths[index];
+		return width;
+	}
+
+	private float getRowHeight(HCPMeasureContext context, float[] widths, int start, int end, float width)
+		throws IOException {
+		float height = 0;
+		for (int index = start; index < end; index++)
+			height = Math.max(height, context.getHeight(elements.get(index), Math.min(widths[index], width)));
+		return height;
+	}
+
+	@Override
+	public HCPElement replace(HCPElement target, HCPElement replacement) {
+		if (this == Objects.requireNonNull(target, "Target must not be null."))
+			return Objects.requireNonNull(replacement, "Replacement must not be null.");
+		HCPElements elements = this.elements.replace(target, replacement);
+		return elements == this.elements ? this : new HCPWrapContainer(elements, spacing, lineSpacing, alignment);
+	}
+
+}
@@ -0,0 +1,72 @@
+package eu.greenlightning.hypercubepdf.layout;
+
+import java.util.NoSuchElementException;
+
+class HCPArrayLayoutResults implements HCPLayoutResults {
+
+	static HCPLayoutResults create(HCPLayout layout, HCPLayoutSpace space, float[] sizes) {
+		float[] lows = new float[sizes.length];
+		float[] highs = new float[sizes.length];
+		if (layout.apply(space.getStart(), space.getEnd(), sizes, lows, highs) == 0)
+			return HCPEmptyLayoutResults.INSTANCE;
+		return new HCPArrayLayoutResults(lows, highs);
+	}
+
+	private final float[] lows, highs;
+
+	private int index = -1;
+
+	private HCPArrayLayoutResults(float[] lows, float[] highs) {
+		this.lows = lows;
+		this.highs = highs;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return findNext(index) < lows.length;
+	}
+
+	@Override
+	public void next() {
+		int next = findNext(index);
+		if (next >= lows.length)
+			throw new NoSuchElementException("No more elements.");
+		index = next;
+	}
+
+	private int findNext(int index) {
+		do {
+			index++;
+		} while (index < lows.length && Float.isNaN(lows[index]));
+		return index;
+	}
+
+	@Override
+	public void reset() {
+		index = -1;
+	}
+
+	@Override
+	public int getIndex() {
+		checkElement();
+		return index;
+	}
+
+	@Override
+	public float getLow() {
+		checkElement();
+		return lows[index];
+	}
+
+	@Override
+	public float getHigh() {
+		checkElement();
+		return highs[index];
+	}
+
+	private void checkElement() {
+		if (index == -1)
+			throw new IllegalStateException("No element.");
+	}
+
+}
@@ -0,0 +1,238 @@
+package eu.greenlightning.hypercubepdf.layout;
+
+import java.util.Arrays;
+
+/**
+ * A layout algorithm which gives each element a base size and then distributes the remaining space among the elements
+ * according to their grow factors or takes away the missing space according to their shrink factors.
+ * <p>
+ * Each element is described by an item which consists of three values:
+ * <ul>
+ * <li>The <b>basis</b> is the size the element starts out with. It is either a fixed size or
+ * {@link #USE_ELEMENT_SIZE}, in which case the preferred size of the element is used.</li>
+ * <li>The <b>grow</b> factor determines which share of the remaining space is added to the element if the bases of all
+ * elements together are smaller than the available space. If all grow factors are zero, the remaining space stays
+ * empty.</li>
+ * <li>The <b>shrink</b> factor determines how much the element shrinks if the bases of all elements together are larger
+ * than the available space. The missing space is taken away in proportion to the shrink factor multiplied by the
+ * basis, so that larger elements shrink more than smaller elements.</li>
+ * </ul>
+ * Items are assigned to the elements by index. Elements without an item of their own use the default item, which uses
+ * the preferred size of the element, does not grow and shrinks with a factor of one, unless configured otherwise.
+ * <p>
+ * For example, a fixed sidebar next to a main area filling the remaining width can be created like this:
+ *
+ * <pre>
+ * {@code
+ *     HCPLayout layout = HCPFlexLayout.create().fixed(150).fill().build();
+ *     HCPElement container = HCPContainers.getHorizontalContainer(layout, sidebar, main);
+ * }
+ * </pre>
+ *
+ * The sizes are calculated in a single pass over the elements. If the elements do not fit into the available space even
+ * after shrinking, the element which reaches the end of the space is painted inside the remaining space and all
+ * further elements are ignored, as with {@link HCPFlowLayout}.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPFlexLayout extends HCPSpacedLayout {
+
+	/** The value used as basis to indicate that the preferred size of the element should be used. */
+	public static final float USE_ELEMENT_SIZE = -1;
+
+	/**
+	 * Creates a new builder.
+	 *
+	 * @return a new builder for an {@link HCPFlexLayout}
+	 */
+	public static Builder create() {
+		return new Builder();
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPFlexLayout} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private float spacing = 0;
+		private float[] items = new float[3 * 4];
+		private int count = 0;
+		private float defaultBasis = USE_ELEMENT_SIZE, defaultGrow = 0, defaultShrink = 1;
+
+		// Hide the constructor so that HCPFlexLayout.create() must be used
+		private Builder() {}
+
+		/**
+		 * Sets the spacing between two adjacent elements, replacing any previously set value.
+		 *
+		 * @param spacing must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if spacing is {@literal < 0}
+		 */
+		public Builder spacing(float spacing) {
+			if (spacing < 0)
+				throw new IllegalArgumentException("Spacing must be equal to or greater than zero, but was " + spacing
+					+ ".");
+			this.spacing = spacing;
+			return this;
+		}
+
+		/**
+		 * Adds an item for the next element.
+		 *
+		 * @param basis must be {@literal >= 0} or {@link HCPFlexLayout#USE_ELEMENT_SIZE}
+		 * @param grow must be {@literal >= 0}
+		 * @param shrink must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if basis, grow or shrink contains an illegal value
+		 */
+		public Builder item(float basis, float grow, float shrink) {
+			checkItem(basis, grow, shrink);
+			if (3 * count == items.length)
+				items = Arrays.copyOf(items, 2 * items.length);
+			items[3 * count] = basis;
+			items[3 * count + 1] = grow;
+			items[3 * count + 2] = shrink;
+			count++;
+			return this;
+		}
+
+		/**
+		 * Adds an item for the next element which uses the specified size and neither grows nor shrinks.
+		 *
+		 * @param size must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if size is {@literal < 0}
+		 */
+		public Builder fixed(float size) {
+			if (size < 0)
+				throw new IllegalArgumentException("Size must be equal to or greater than zero, but was " + size + ".");
+			return item(size, 0, 0);
+		}
+
+		/**
+		 * Adds an item for the next element which has a basis of zero and grows with a factor of one, so that it
+		 * fills the remaining space (sharing it with other growing elements).
+		 *
+		 * @return this builder for chaining
+		 */
+		public Builder fill() {
+			return item(0, 1, 1);
+		}
+
+		/**
+		 * Sets the item used for all elements which have no item of their own, replacing any previously set value.
+		 *
+		 * @param basis must be {@literal >= 0} or {@link HCPFlexLayout#USE_ELEMENT_SIZE}
+		 * @param grow must be {@literal >= 0}
+		 * @param shrink must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if basis, grow or shrink contains an illegal value
+		 */
+		public Builder defaultItem(float basis, float grow, float shrink) {
+			checkItem(basis, grow, shrink);
+			this.defaultBasis = basis;
+			this.defaultGrow = grow;
+			this.defaultShrink = shrink;
+			return this;
+		}
+
+		private void checkItem(float basis, float grow, float shrink) {
+			if (basis < 0 && basis != USE_ELEMENT_SIZE)
+				throw new IllegalArgumentException("Basis must be USE_ELEMENT_SIZE or equal to or greater than zero, "
+					+ "but was " + basis + ".");
+			if (grow < 0)
+				throw new IllegalArgumentException("Grow must be equal to or greater than zero, but was " + grow + ".");
+			if (shrink < 0)
+				throw new IllegalArgumentException("Shrink must be equal to or greater than zero, but was " + shrink
+					+ ".");
+		}
+
+		/**
+		 * Creates the {@link HCPFlexLayout}.
+		 *
+		 * @return a new {@link HCPFlexLayout} using the spacing and items set on this builder
+		 */
+		public HCPFlexLayout build() {
+			return new HCPFlexLayout(spacing, Arrays.copyOf(items, 3 * count), defaultBasis, defaultGrow,
+				defaultShrink);
+		}
+
+	}
+
+	// Basis, grow and shrink of each item.
+	private final float[] items;
+	private final float defaultBasis, defaultGrow, defaultShrink;
+
+	private HCPFlexLayout(float spacing, float[] items, float defaultBasis, float defaultGrow, float defaultShrink) {
+		super(spacing);
+		this.items = items;
+		this.defaultBasis = defaultBasis;
+		this.defaultGrow = defaultGrow;
+		this.defaultShrink = defaultShrink;
+	}
+
+	private float getBasis(float[] sizes, int index) {
+		float basis = 3 * index < items.length ? items[3 * index] : defaultBasis;
+		return basis == USE_ELEMENT_SIZE ? sizes[index] : basis;
+	}
+
+	private float getGrow(int index) {
+		return 3 * index < items.length ? items[3 * index + 1] : defaultGrow;
+	}
+
+	private float getShrink(int index) {
+		return 3 * index < items.length ? items[3 * index + 2] : defaultShrink;
+	}
+
+	@Override
+	public float getSize(float[] sizes) {
+		float size = 0;
+		for (int index = 0; index < sizes.length; index++)
+			size += getBasis(sizes, index);
+		return size + getTotalSpacing(sizes);
+	}
+
+	@Override
+	public HCPLayoutResults apply(HCPLayoutSpace space, float[] sizes) {
+		return HCPArrayLayoutResults.create(this, space, sizes);
+	}
+
+	@Override
+	public int apply(float start, float end, float[] sizes, float[] lows, float[] highs) {
+		HCPLayoutArrays.checkLengths(sizes, lows, highs);
+		float direction = Math.signum(end - start);
+		float length = Math.abs(end - start);
+
+		float totalBasis = 0, totalGrow = 0, totalScaledShrink = 0;
+		for (int index = 0; index < sizes.length; index++) {
+			float basis = getBasis(sizes, index);
+			totalBasis += basis;
+			totalGrow += getGrow(index);
+			totalScaledShrink += getShrink(index) * basis;
+		}
+
+		float free = length - totalBasis - getTotalSpacing(sizes);
+		float growFactor = free > 0 && totalGrow > 0 ? free / totalGrow : 0;
+		float shrinkFactor = free < 0 && totalScaledShrink > 0 ? -free / totalScaledShrink : 0;
+
+		float position = 0;
+		int count = 0;
+		while (count < sizes.length && position < length) {
+			float basis = getBasis(sizes, count);
+			float size = basis + growFactor * getGrow(count) - shrinkFactor * getShrink(count) * basis;
+			size = Math.min(Math.max(size, 0), length - position);
+			HCPLayoutArrays.set(lows, highs, count, start + direction * position, start + direction
+				* (position + size));
+			position += size + getSpacing();
+			count++;
+		}
+		HCPLayoutArrays.clear(lows, highs, count, sizes.length);
+		return count;
+	}
+
+}
@@ -43,7 +43,27 @@ public class HCPFlowLayout extends HCPSpacedLayout {
 
 	@Override
 	public HCPLayoutResults apply(HCPLayoutSpace space, float[] sizes) {
-		return new HCPFlowLayoutResults(space, sizes, getSpacing());
+		return HCPArrayLayoutResults.create(this, space, sizes);
+	}
+
+	@Override
+	public int apply(float start, float end, float[] sizes, float[] lows, float[] highs) {
+		HCPLayoutArrays.checkLengths(sizes, lows, highs);
+		float direction = Math.signum(end - start);
+		float length = Math.abs(end - start);
+		float totalSize = 0;
+		int count = 0;
+		while (count < sizes.length && totalSize < length) {
+			float elementSize = sizes[count];
+			if (totalSize + elementSize >= length)
+				elementSize = length - totalSize;
+			HCPLayoutArrays.set(lows, highs, count, start + direction * totalSize, start + direction
+				* (totalSize + elementSize));
+			totalSize += elementSize + getSpacing();
+			count++;
+		}
+		HCPLayoutArrays.clear(lows, highs, count, sizes.length);
+		return count;
 	}
 
 }
@@ -22,7 +22,44 @@ public interface HCPLayout {
 	 * @param space the space in which the elements should be placed
 	 * @param sizes the sizes of the individual elements
 	 * @return an {@link HCPLayoutResults} instance containing the results of the layout process
+	 * @see #apply(float, float, float[], float[], float[])
 	 */
 	HCPLayoutResults apply(HCPLayoutSpace space, float[] sizes);
 
+	/**
+	 * Applies this layout algorithm to the specified elements and writes the results into the specified arrays.
+	 * <p>
+	 * The layout space is defined by {@code start} and {@code end} as described by {@link HCPLayoutSpace}. After this
+	 * method returns, {@code lows[i]} and {@code highs[i]} contain the smaller and the larger end point of the
+	 * designated space for the element at index {@code i}. If an element has not been placed, both values are
+	 * {@link Float#NaN}. Entries at indices {@literal >=} {@code sizes.length} are not modified.
+	 * <p>
+	 * In contrast to {@link #apply(HCPLayoutSpace, float[])}, the results can be looked up by index and no objects
+	 * have to be created. This allows containers to reuse the arrays and to place their elements in a single pass.
+	 * <p>
+	 * The default implementation copies the results of {@link #apply(HCPLayoutSpace, float[])} into the arrays.
+	 * 
+	 * @param start the start point of the layout space
+	 * @param end the end point of the layout space
+	 * @param sizes the sizes of the individual elements
+	 * @param lows receives the smaller end points; must be at least as long as sizes
+	 * @param highs receives the larger end points; must be at least as long as sizes
+	 * @return the number of elements that have been placed
+	 * @throws NullPointerException if sizes, lows or highs is {@code null}
+	 * @throws IllegalArgumentException if lows or highs is shorter than sizes
+	 */
+	default int apply(float start, float end, float[] sizes, float[] lows, float[] highs) {
+		HCPLayoutArrays.checkLengths(sizes, lows, highs);
+		HCPLayoutArrays.clear(lows, highs, 0, sizes.length);
+		HCPLayoutResults results = apply(new HCPLayoutSpace(start, end), sizes);
+		int count = 0;
+		while (results.hasNext()) {
+			results.next();
+			lows[results.getIndex()] = results.getLow();
+			highs[results.getIndex()] = results.getHigh();
+			count++;
+		}
+		return count;
+	}
+
 }
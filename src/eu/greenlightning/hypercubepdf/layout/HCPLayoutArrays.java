@@ -0,0 +1,28 @@
+package eu.greenlightning.hypercubepdf.layout;
+
+import java.util.Arrays;
+
+final class HCPLayoutArrays {
+
+	static void checkLengths(float[] sizes, float[] lows, float[] highs) {
+		if (lows.length < sizes.length)
+			throw new IllegalArgumentException("Lows must have at least " + sizes.length + " entries, but had "
+				+ lows.length + ".");
+		if (highs.length < sizes.length)
+			throw new IllegalArgumentException("Highs must have at least " + sizes.length + " entries, but had "
+				+ highs.length + ".");
+	}
+
+	static void set(float[] lows, float[] highs, int index, float start, float end) {
+		lows[index] = Math.min(start, end);
+		highs[index] = Math.max(start, end);
+	}
+
+	static void clear(float[] lows, float[] highs, int fromIndex, int toIndex) {
+		Arrays.fill(lows, fromIndex, toIndex, Float.NaN);
+		Arrays.fill(highs, fromIndex, toIndex, Float.NaN);
+	}
+
+	private HCPLayoutArrays() {}
+
+}
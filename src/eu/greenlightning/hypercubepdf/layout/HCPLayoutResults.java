@@ -25,6 +25,9 @@ import java.util.NoSuchElementException;
  * 
  * In case the results instance contains no results, the first call to next returns {@code false} and the code inside
  * the while loop is never executed.
+ * <p>
+ * Containers which need to look up results by index should use
+ * {@link HCPLayout#apply(float, float, float[], float[], float[])} instead.
  * 
  * @author Green Lightning
  */
@@ -44,11 +44,25 @@ public class HCPSplitLayout extends HCPSpacedLayout {
 
 	@Override
 	public HCPLayoutResults apply(HCPLayoutSpace space, float[] sizes) {
+		return HCPArrayLayoutResults.create(this, space, sizes);
+	}
+
+	@Override
+	public int apply(float start, float end, float[] sizes, float[] lows, float[] highs) {
+		HCPLayoutArrays.checkLengths(sizes, lows, highs);
+		float direction = Math.signum(end - start);
+		float length = Math.abs(end - start);
 		float totalSpacing = getTotalSpacing(sizes);
-		if (totalSpacing >= space.getLength())
-			return HCPEmptyLayoutResults.INSTANCE;
-		float elementSize = (space.getLength() - totalSpacing) / sizes.length;
-		return new HCPSplitLayoutResults(space, sizes.length, elementSize, getSpacing());
+		if (totalSpacing >= length) {
+			HCPLayoutArrays.clear(lows, highs, 0, sizes.length);
+			return 0;
+		}
+		float elementSize = (length - totalSpacing) / sizes.length;
+		for (int index = 0; index < sizes.length; index++) {
+			float position = start + direction * index * (elementSize + getSpacing());
+			HCPLayoutArrays.set(lows, highs, index, position, position + direction * elementSize);
+		}
+		return sizes.length;
 	}
 
 }
@@ -45,11 +45,27 @@ public class HCPStretchLayout extends HCPSpacedLayout {
 
 	@Override
 	public HCPLayoutResults apply(HCPLayoutSpace space, float[] sizes) {
+		return HCPArrayLayoutResults.create(this, space, sizes);
+	}
+
+	@Override
+	public int apply(float start, float end, float[] sizes, float[] lows, float[] highs) {
+		HCPLayoutArrays.checkLengths(sizes, lows, highs);
+		float direction = Math.signum(end - start);
+		float length = Math.abs(end - start);
 		float totalSpacing = getTotalSpacing(sizes);
-		if (totalSpacing >= space.getLength())
-			return HCPEmptyLayoutResults.INSTANCE;
-		float stretchFactor = (space.getLength() - totalSpacing) / getTotalSize(sizes);
-		return new HCPStretchLayoutResults(space, sizes, stretchFactor, getSpacing());
+		if (totalSpacing >= length) {
+			HCPLayoutArrays.clear(lows, highs, 0, sizes.length);
+			return 0;
+		}
+		float stretchFactor = (length - totalSpacing) / getTotalSize(sizes);
+		float position = start;
+		for (int index = 0; index < sizes.length; index++) {
+			float size = stretchFactor * sizes[index];
+			HCPLayoutArrays.set(lows, highs, index, position, position + direction * size);
+			position += direction * (size + getSpacing());
+		}
+		return sizes.length;
 	}
 
 }
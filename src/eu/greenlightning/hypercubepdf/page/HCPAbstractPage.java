@@ -9,6 +9,8 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPLayoutPlan;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
 
 abstract class HCPAbstractPage implements HCPPage {
 
@@ -37,11 +39,25 @@ abstract class HCPAbstractPage implements HCPPage {
 	@Override
 	public void paint(HCPElement element) throws IOException {
 		try (PDPageContentStream content = createPageContentStream()) {
-			element.paint(content, getPageSize());
+			new HCPRenderContext(content).paint(element, getPageSize());
 		}
 	}
 
-	protected abstract PDRectangle getPageSize();
+	@Override
+	public HCPLayoutPlan layout(HCPElement element) throws IOException {
+		return HCPLayoutPlan.create(element, getPageSize());
+	}
+
+	@Override
+	public void paint(HCPLayoutPlan plan) throws IOException {
+		Objects.requireNonNull(plan, "Plan must not be null.");
+		try (PDPageContentStream content = createPageContentStream()) {
+			plan.paint(content);
+		}
+	}
+
+	@Override
+	public abstract PDRectangle getPageSize();
 
 	protected abstract PDPageContentStream createPageContentStream() throws IOException;
 
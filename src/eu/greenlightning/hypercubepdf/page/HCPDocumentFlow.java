@@ -0,0 +1,191 @@
+package eu.greenlightning.hypercubepdf.page;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPLayoutPlan;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPSplit;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
+
+/**
+ * Paints an {@link HCPElement} onto as many new pages as necessary, splitting it at the bottom of each page.
+ * <p>
+ * For each page, the remainder of the element is split (see
+ * {@link HCPMeasureContext#forceSplit(HCPElement, float, float)}) at the height available inside the margins of the
+ * page. The fitting part is painted at the top of the page, using its
+ * height at the width of the page, and the flow continues with the remainder on the next page. Elements which are not
+ * {@link HCPSplittable} move to the next page as a whole.
+ * <p>
+ * All parts are measured, split and painted through the same {@link HCPMeasureContext}, so that the sizes measured
+ * while splitting are reused for painting and elements which continue on the next page are not measured again. After
+ * each page the measurements of the elements which have not been used for that page are removed from the context (see
+ * {@link HCPMeasureContext#sweep()}), so that the context does not grow with the number of pages.
+ * <p>
+ * If not even the smallest part of the remainder fits on an empty page, only that part is painted on the page anyway
+ * and is cut off at the bottom of the page, like it would be by {@link HCPPage#paint(HCPElement)}. For example, an
+ * element in a vertical flow which is higher than a page is cut off, but the elements after it continue on the next
+ * page (see {@link HCPSplittable#forceSplit(HCPMeasureContext, float, float)}).
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public final class HCPDocumentFlow {
+
+	/**
+	 * Creates a new builder for a flow onto letter-sized portrait pages (see
+	 * {@link HCPPages#addPortraitPage(PDDocument)}) without margins.
+	 *
+	 * @return a new builder for an {@link HCPDocumentFlow}
+	 */
+	public static Builder create() {
+		return new Builder();
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPDocumentFlow} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private Function<? super PDDocument, ? extends HCPPage> pages = HCPPages::addPortraitPage;
+		private float top, right, bottom, left;
+
+		// Hide the constructor.
+		private Builder() {}
+
+		/**
+		 * Sets the function used to add each new page to the document, replacing any previously set function. The
+		 * default is {@link HCPPages#addPortraitPage(PDDocument)}.
+		 *
+		 * @param pages not {@code null}; must add the page to the document it receives and return it
+		 * @return this builder for chaining
+		 * @throws NullPointerException if pages is {@code null}
+		 */
+		public Builder pages(Function<? super PDDocument, ? extends HCPPage> pages) {
+			this.pages = Objects.requireNonNull(pages, "Pages must not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the same margin for all sides of each page, replacing any previously set margins. The default is 0.
+		 *
+		 * @param size must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if size is {@literal < 0}
+		 */
+		public Builder margin(float size) {
+			return margins(size, size, size, size);
+		}
+
+		/**
+		 * Sets the margins of each page, replacing any previously set margins. The default is 0.
+		 *
+		 * @param top must be {@literal >= 0}
+		 * @param right must be {@literal >= 0}
+		 * @param bottom must be {@literal >= 0}
+		 * @param left must be {@literal >= 0}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if top, right, bottom or left is {@literal < 0}
+		 */
+		public Builder margins(float top, float right, float bottom, float left) {
+			this.top = checkMargin(top, "Top");
+			this.right = checkMargin(right, "Right");
+			this.bottom = checkMargin(bottom, "Bottom");
+			this.left = checkMargin(left, "Left");
+			return this;
+		}
+
+		private float checkMargin(float margin, String name) {
+			if (margin < 0)
+				throw new IllegalArgumentException(name + " must be equal to or greater than zero, but was " + margin
+					+ ".");
+			return margin;
+		}
+
+		/**
+		 * Creates the {@link HCPDocumentFlow}.
+		 *
+		 * @return a new {@link HCPDocumentFlow} using the options set on this builder
+		 */
+		public HCPDocumentFlow build() {
+			return new HCPDocumentFlow(pages, top, right, bottom, left);
+		}
+
+	}
+
+	private final Function<? super PDDocument, ? extends HCPPage> pages;
+	private final float top, right, bottom, left;
+
+	private HCPDocumentFlow(Function<? super PDDocument, ? extends HCPPage> pages, float top, float right,
+		float bottom, float left) {
+		this.pages = pages;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+		this.left = left;
+	}
+
+	/**
+	 * Paints the element onto new pages added to the end of the document.
+	 *
+	 * @param document not {@code null}
+	 * @param element not {@code null}
+	 * @return the pages which have been added; at least one page
+	 * @throws NullPointerException if document or element is {@code null}
+	 * @throws IOException if there is an error while measuring or painting
+	 */
+	public List<HCPPage> paint(PDDocument document, HCPElement element) throws IOException {
+		return paint(document, element, new HCPMeasureContext());
+	}
+
+	/**
+	 * Paints the element onto new pages added to the end of the document, measuring all elements through the specified
+	 * context.
+	 *
+	 * @param document not {@code null}
+	 * @param element not {@code null}
+	 * @param context not {@code null}
+	 * @return the pages which have been added; at least one page
+	 * @throws NullPointerException if document, element or context is {@code null}
+	 * @throws IOException if there is an error while measuring or painting
+	 */
+	public List<HCPPage> paint(PDDocument document, HCPElement element, HCPMeasureContext context)
+		throws IOException {
+		Objects.requireNonNull(document, "Document must not be null.");
+		Objects.requireNonNull(element, "Element must not be null.");
+		Objects.requireNonNull(context, "Context must not be null.");
+		List<HCPPage> result = new ArrayList<>();
+		HCPElement remainder = element;
+		while (remainder != null) {
+			HCPPage page = Objects.requireNonNull(pages.apply(document), "Page must not be null.");
+			result.add(page);
+			PDRectangle size = page.getPageSize();
+			float lowerLeftX = size.getLowerLeftX() + left, upperRightX = size.getUpperRightX() - right;
+			float lowerLeftY = size.getLowerLeftY() + bottom, upperRightY = size.getUpperRightY() - top;
+			float width = Math.max(upperRightX - lowerLeftX, 0), height = Math.max(upperRightY - lowerLeftY, 0);
+
+			// The page is empty, so the head is forced onto it even if it does not fit and is then cut off.
+			HCPSplit split = context.forceSplit(remainder, width, height);
+			HCPElement head = split.getHead();
+			remainder = split.getTail();
+			float headHeight = Math.min(context.getHeight(head, width), height);
+			PDRectangle shape = new PDRectangle(new BoundingBox(lowerLeftX, upperRightY - headHeight, lowerLeftX
+				+ width, upperRightY));
+			page.paint(HCPLayoutPlan.create(head, shape, context));
+			context.sweep();
+		}
+		return result;
+	}
+
+}
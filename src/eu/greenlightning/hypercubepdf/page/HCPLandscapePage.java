@@ -21,7 +21,7 @@ class HCPLandscapePage extends HCPAbstractPage {
 	}
 
 	@Override
-	protected PDRectangle getPageSize() {
+	public PDRectangle getPageSize() {
 		PDRectangle mediaBox = page.findMediaBox();
 		return new PDRectangle(mediaBox.getHeight(), mediaBox.getWidth());
 	}
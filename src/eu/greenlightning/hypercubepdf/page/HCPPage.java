@@ -3,8 +3,10 @@ package eu.greenlightning.hypercubepdf.page;
 import java.io.IOException;
 
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 
 import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPLayoutPlan;
 
 /**
  * Wrapper class for a {@link PDPage}.
@@ -24,6 +26,15 @@ public interface HCPPage {
 	 */
 	PDPage asPDPage();
 
+	/**
+	 * Returns the size of this page as seen by the elements painted on it, i.&nbsp;e. the width and height are swapped
+	 * if the page is rotated. The lower left corner of the returned rectangle is the origin of the coordinates used for
+	 * painting.
+	 * 
+	 * @return the size of this page; not {@code null}
+	 */
+	PDRectangle getPageSize();
+
 	/**
 	 * Paints an {@link HCPElement} on this page. The element will cover the whole page. This method takes into account
 	 * if the page is rotated.
@@ -34,4 +45,25 @@ public interface HCPPage {
 	 */
 	void paint(HCPElement element) throws IOException;
 
+	/**
+	 * Lays out an {@link HCPElement} so that it covers the whole page, without painting it. The resulting plan can be
+	 * painted on this page or on any other page of the same size and orientation using {@link #paint(HCPLayoutPlan)}.
+	 * 
+	 * @param element not {@code null}
+	 * @return the layout plan for the element
+	 * @throws NullPointerException if element is {@code null}
+	 * @throws IOException if there is an error while measuring
+	 */
+	HCPLayoutPlan layout(HCPElement element) throws IOException;
+
+	/**
+	 * Paints an {@link HCPLayoutPlan} on this page. This method takes into account if the page is rotated.
+	 * 
+	 * @param plan not {@code null}
+	 * @throws NullPointerException if plan is {@code null}
+	 * @throws IOException if there is an error while painting
+	 * @see #layout(HCPElement)
+	 */
+	void paint(HCPLayoutPlan plan) throws IOException;
+
 }
@@ -17,7 +17,7 @@ class HCPPortraitPage extends HCPAbstractPage {
 	}
 
 	@Override
-	protected PDRectangle getPageSize() {
+	public PDRectangle getPageSize() {
 		return page.findMediaBox();
 	}
 
@@ -0,0 +1,223 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+
+/**
+ * A text element which paints a single line of text at the largest font size at which it fits into the shape it is
+ * painted with, within a minimum and a maximum size.
+ * <p>
+ * The width and the height of a text are proportional to its font size, so the text is measured only once using its
+ * style. The fitting size is then calculated directly from the ratios between the available space and the measured
+ * size, instead of trying one size after another. If the text does not even fit at the minimum size, it is painted at
+ * the minimum size and extends beyond the element.
+ * <p>
+ * The preferred size of the element is the size of the text at the maximum font size and its minimum width is the
+ * width of the text at the minimum font size. Its height for a given width (see
+ * {@link HCPMeasureContext#getHeight(HCPElement, float)}) is the height of the text at the size which fits that width.
+ * The text is centered vertically and aligned horizontally using an {@link HCPHorizontalAlignment}. The font and color
+ * of the style are used for painting; its size only serves as the default maximum size.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPAutoFitText implements HCPElement {
+
+	/**
+	 * Creates a new builder for an auto-fit text with the specified text and style.
+	 *
+	 * @param text not {@code null}; line breaks are not supported
+	 * @param style not {@code null}
+	 * @return a new builder for an {@link HCPAutoFitText}
+	 * @throws NullPointerException if text or style is {@code null}
+	 */
+	public static Builder create(String text, HCPStyle style) {
+		return new Builder(text, style);
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPAutoFitText} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private final String text;
+		private final HCPStyle style;
+		private float minSize = MIN_SIZE;
+		private float maxSize;
+		private HCPHorizontalAlignment alignment = DEFAULT_ALIGNMENT;
+
+		private Builder(String text, HCPStyle style) {
+			this.text = Objects.requireNonNull(text, "Text must not be null.");
+			this.style = Objects.requireNonNull(style, "Style must not be null.");
+			this.maxSize = style.getSize();
+		}
+
+		/**
+		 * Sets the minimum font size, replacing any previously set value. The default is 1.
+		 *
+		 * @param minSize must be {@literal >= 1}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if minSize is {@literal < 1}
+		 */
+		public Builder minSize(float minSize) {
+			if (minSize < MIN_SIZE)
+				throw new IllegalArgumentException("Min size must be equal to or greater than one, but was " + minSize
+					+ ".");
+			this.minSize = minSize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum font size, replacing any previously set value. The default is the size of the style.
+		 *
+		 * @param maxSize must be {@literal >= 1}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if maxSize is {@literal < 1}
+		 */
+		public Builder maxSize(float maxSize) {
+			if (maxSize < MIN_SIZE)
+				throw new IllegalArgumentException("Max size must be equal to or greater than one, but was " + maxSize
+					+ ".");
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * Sets the horizontal alignment of the text, replacing any previously set value. The default is
+		 * {@link HCPHorizontalAlignment#CENTER}.
+		 *
+		 * @param alignment not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if alignment is {@code null}
+		 */
+		public Builder alignment(HCPHorizontalAlignment alignment) {
+			this.alignment = Objects.requireNonNull(alignment, "Alignment must not be null.");
+			return this;
+		}
+
+		/**
+		 * Creates the {@link HCPAutoFitText}.
+		 *
+		 * @return a new {@link HCPAutoFitText} using the text, style and options set on this builder
+		 * @throws IllegalArgumentException if the max size is smaller than the min size
+		 */
+		public HCPAutoFitText build() {
+			if (maxSize < minSize)
+				throw new IllegalArgumentException("Max size must be equal to or greater than min size (" + minSize
+					+ "), but was " + maxSize + ".");
+			return new HCPAutoFitText(text, style, minSize, maxSize, alignment);
+		}
+
+	}
+
+	private static final float MIN_SIZE = 1;
+	private static final HCPHorizontalAlignment DEFAULT_ALIGNMENT = HCPHorizontalAlignment.CENTER;
+
+	private final String text;
+	private final HCPStyle style;
+	private final float minSize, maxSize;
+	private final HCPHorizontalAlignment alignment;
+
+	// The width of the text at a font size of one, measured lazily, because measuring can fail with an IOException.
+	private volatile float unitWidth = Float.NaN;
+
+	private HCPAutoFitText(String text, HCPStyle style, float minSize, float maxSize,
+		HCPHorizontalAlignment alignment) {
+		this.text = text;
+		this.style = style;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.alignment = alignment;
+	}
+
+	/**
+	 * Returns the largest font size between the minimum and the maximum size at which the text fits into the specified
+	 * width and height. If the text does not fit at the minimum size, the minimum size is returned.
+	 *
+	 * @param width the available width
+	 * @param height the available height
+	 * @return the font size
+	 * @throws IOException if there is an error getting the width information
+	 */
+	public float getSize(float width, float height) throws IOException {
+		return clamp(Math.min(getFittingSize(width), height / getUnitHeight()));
+	}
+
+	private float getFittingSize(float width) throws IOException {
+		float unitWidth = getUnitWidth();
+		return unitWidth == 0 ? maxSize : width / unitWidth;
+	}
+
+	private float clamp(float size) {
+		return Math.max(minSize, Math.min(maxSize, size));
+	}
+
+	private float getUnitWidth() throws IOException {
+		float unitWidth = this.unitWidth;
+		if (Float.isNaN(unitWidth))
+			this.unitWidth = unitWidth = style.getStringWidth(text) / style.getSize();
+		return unitWidth;
+	}
+
+	private float getUnitHeight() throws IOException {
+		return style.getHeight() / style.getSize();
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getUnitWidth() * maxSize;
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return getUnitWidth() * minSize;
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return getUnitHeight() * maxSize;
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return getUnitHeight() * clamp(getFittingSize(width));
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		if (text.isEmpty())
+			return;
+		float size = getSize(upperRightX - lowerLeftX, upperRightY - lowerLeftY);
+		float scale = size / style.getSize();
+		float x = alignment.align(getUnitWidth() * size, lowerLeftX, upperRightX);
+		float y = lowerLeftY + (upperRightY - lowerLeftY - style.getHeight() * scale) / 2;
+		content.beginText();
+		content.setNonStrokingColor(style.getColor());
+		content.setFont(style.getFont(), size);
+		content.setTextTranslation(x, y - style.getDescent() * scale);
+		style.showText(content, text, size);
+		content.endText();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
@@ -0,0 +1,277 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.cos.*;
+import org.apache.pdfbox.encoding.WinAnsiEncoding;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptorDictionary;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.util.PDFOperator;
+
+/**
+ * A cache of TrueType fonts shared by all documents, which parses each font file only once and embeds only the glyphs
+ * a document actually uses.
+ * <p>
+ * {@link PDTrueTypeFont#loadTTF(PDDocument, File)} parses the font file and embeds all of it again for every document.
+ * This cache instead parses each file once per JVM and keeps the parsed font together with its font dictionary and its
+ * metrics. Each document gets its own {@link PDFont}, which is created from a copy of the dictionary and shares the
+ * metrics with all other documents, including the kerning pairs, so that {@link HCPStyle}s using it do not read the
+ * metrics again.
+ * <p>
+ * The fonts are not embedded until {@link #embedSubsets(PDDocument)} is called, which must happen after all pages have
+ * been painted and before the document is saved. It collects the characters shown with each font on the pages of the
+ * document and embeds a subset of the font containing only their glyphs. The fonts use the WinAnsi encoding, like
+ * fonts loaded by PDFBox.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Green Lightning
+ */
+public final class HCPFontCache {
+
+	private static final HCPFontCache INSTANCE = new HCPFontCache();
+
+	/**
+	 * Returns the cache shared by all documents.
+	 *
+	 * @return the shared cache
+	 */
+	public static HCPFontCache getInstance() {
+		return INSTANCE;
+	}
+
+	private final Map<String, CachedFont> fonts = new HashMap<>();
+	private final Map<PDDocument, Map<CachedFont, DocumentFont>> documents = new WeakHashMap<>();
+
+	// Hide the constructor.
+	private HCPFontCache() {}
+
+	/**
+	 * Returns the font stored in the specified file for use in the specified document. The file is only parsed the
+	 * first time it is requested for any document. Repeated requests for the same document return the same font.
+	 *
+	 * @param document not {@code null}
+	 * @param file a TrueType font file; not {@code null}
+	 * @return the font for the document
+	 * @throws NullPointerException if document or file is {@code null}
+	 * @throws IOException if the file cannot be read or is not a valid TrueType font
+	 */
+	public PDFont getFont(PDDocument document, File file) throws IOException {
+		Objects.requireNonNull(document, "Document must not be null.");
+		Objects.requireNonNull(file, "File must not be null.");
+		return getFont(document, file.getCanonicalPath(), () -> new FileInputStream(file));
+	}
+
+	/**
+	 * Returns the font stored at the specified URL for use in the specified document, for example a font loaded as a
+	 * class path resource. The font is only read the first time it is requested for any document. Repeated requests
+	 * for the same document return the same font.
+	 *
+	 * @param document not {@code null}
+	 * @param url the location of a TrueType font file; not {@code null}
+	 * @return the font for the document
+	 * @throws NullPointerException if document or url is {@code null}
+	 * @throws IOException if the font cannot be read or is not a valid TrueType font
+	 */
+	public PDFont getFont(PDDocument document, URL url) throws IOException {
+		Objects.requireNonNull(document, "Document must not be null.");
+		Objects.requireNonNull(url, "URL must not be null.");
+		return getFont(document, url.toExternalForm(), url::openStream);
+	}
+
+	private PDFont getFont(PDDocument document, String key, FontSource source) throws IOException {
+		CachedFont cached;
+		synchronized (fonts) {
+			cached = fonts.get(key);
+			if (cached == null) {
+				cached = new CachedFont(source);
+				fonts.put(key, cached);
+			}
+		}
+		synchronized (documents) {
+			Map<CachedFont, DocumentFont> documentFonts = documents.get(document);
+			if (documentFonts == null) {
+				documentFonts = new LinkedHashMap<>();
+				documents.put(document, documentFonts);
+			}
+			DocumentFont font = documentFonts.get(cached);
+			if (font == null) {
+				font = new DocumentFont(cached);
+				documentFonts.put(cached, font);
+			}
+			return font.font;
+		}
+	}
+
+	/**
+	 * Embeds the fonts which have been requested from this cache for the specified document. Each font is embedded as
+	 * a subset containing the glyphs of the characters which are shown with the font on any page of the document. This
+	 * method must be called after all pages have been painted and before the document is saved.
+	 *
+	 * @param document not {@code null}
+	 * @throws NullPointerException if document is {@code null}
+	 * @throws IOException if the pages cannot be read or the subsets cannot be written
+	 */
+	public void embedSubsets(PDDocument document) throws IOException {
+		Objects.requireNonNull(document, "Document must not be null.");
+		Map<COSDictionary, DocumentFont> byDictionary = new IdentityHashMap<>();
+		synchronized (documents) {
+			Map<CachedFont, DocumentFont> documentFonts = documents.remove(document);
+			if (documentFonts == null)
+				return;
+			for (DocumentFont font : documentFonts.values())
+				byDictionary.put(font.dictionary, font);
+		}
+		for (Object page : document.getDocumentCatalog().getAllPages())
+			collectCodes((PDPage) page, byDictionary);
+		for (DocumentFont font : byDictionary.values())
+			if (!font.codes.isEmpty())
+				font.embed(document);
+	}
+
+	private void collectCodes(PDPage page, Map<COSDictionary, DocumentFont> fonts) throws IOException {
+		PDStream contents = page.getContents();
+		PDResources resources = page.findResources();
+		if (contents == null || resources == null)
+			return;
+		Map<String, PDFont> pageFonts = resources.getFonts();
+		PDFStreamParser parser = new PDFStreamParser(contents);
+		try {
+			parser.parse();
+			DocumentFont current = null;
+			List<Object> operands = new ArrayList<>();
+			for (Object token : parser.getTokens()) {
+				if (!(token instanceof PDFOperator)) {
+					operands.add(token);
+					continue;
+				}
+				String operation = ((PDFOperator) token).getOperation();
+				if (operation.equals("Tf") && !operands.isEmpty() && operands.get(0) instanceof COSName) {
+					PDFont font = pageFonts.get(((COSName) operands.get(0)).getName());
+					current = font == null ? null : fonts.get(font.getCOSObject());
+				} else if (current != null && !operands.isEmpty()) {
+					if (operation.equals("Tj") || operation.equals("'") || operation.equals("\""))
+						addCodes(current, operands.get(operands.size() - 1));
+					else if (operation.equals("TJ") && operands.get(0) instanceof COSArray)
+						for (COSBase element : (COSArray) operands.get(0))
+							addCodes(current, element);
+				}
+				operands.clear();
+			}
+		} finally {
+			parser.close();
+		}
+	}
+
+	private void addCodes(DocumentFont font, Object operand) {
+		if (operand instanceof COSString)
+			for (byte code : ((COSString) operand).getBytes())
+				font.codes.set(code & 0xFF);
+	}
+
+	@FunctionalInterface
+	private static interface FontSource {
+		InputStream open() throws IOException;
+	}
+
+	// A parsed font file shared by all documents.
+	private static final class CachedFont {
+
+		final byte[] data;
+		final TrueTypeFont ttf;
+		final COSDictionary dictionary;
+		final COSDictionary descriptor;
+		final HCPFontMetrics metrics;
+
+		CachedFont(FontSource source) throws IOException {
+			try (InputStream input = source.open()) {
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int count = input.read(buffer); count >= 0; count = input.read(buffer))
+					output.write(buffer, 0, count);
+				this.data = output.toByteArray();
+			}
+			this.ttf = new TTFParser().parseTTF(new ByteArrayInputStream(data));
+			// Let PDFBox create the font dictionary in a scratch document, but keep it without the embedded file.
+			try (PDDocument scratch = new PDDocument()) {
+				PDTrueTypeFont font = PDTrueTypeFont.loadTTF(scratch, new ByteArrayInputStream(data));
+				this.dictionary = new COSDictionary((COSDictionary) font.getCOSObject());
+				PDFontDescriptorDictionary fontDescriptor = (PDFontDescriptorDictionary) font.getFontDescriptor();
+				this.descriptor = new COSDictionary(fontDescriptor.getCOSDictionary());
+			}
+			descriptor.removeItem(COSName.FONT_FILE2);
+			dictionary.setItem(COSName.FONT_DESC, descriptor);
+			this.metrics = HCPFontMetrics.getInstance(new PDTrueTypeFont(dictionary));
+			metrics.setKerning(HCPKerning.load(ttf, WinAnsiEncoding.INSTANCE));
+		}
+
+	}
+
+	// The font of a single document and the character codes shown with it.
+	private static final class DocumentFont {
+
+		final CachedFont cached;
+		final COSDictionary dictionary;
+		final COSDictionary descriptor;
+		final PDFont font;
+		final BitSet codes = new BitSet(256);
+
+		DocumentFont(CachedFont cached) throws IOException {
+			this.cached = cached;
+			this.dictionary = new COSDictionary(cached.dictionary);
+			this.descriptor = new COSDictionary(cached.descriptor);
+			dictionary.setItem(COSName.FONT_DESC, descriptor);
+			this.font = new PDTrueTypeFont(dictionary);
+			HCPFontMetrics.share(font, cached.metrics);
+		}
+
+		void embed(PDDocument document) throws IOException {
+			BitSet characters = new BitSet();
+			for (int code = codes.nextSetBit(0); code >= 0; code = codes.nextSetBit(code + 1)) {
+				String character = WinAnsiEncoding.INSTANCE.getCharacter(code);
+				if (character != null && character.length() == 1)
+					characters.set(character.charAt(0));
+			}
+			byte[] subset;
+			try {
+				subset = HCPTrueTypeSubsetter.subset(cached.data, cached.ttf, characters);
+			} catch (IOException e) {
+				// Fall back to embedding the complete font if it cannot be subset.
+				subset = null;
+			}
+			byte[] data = subset == null ? cached.data : subset;
+			PDStream stream = new PDStream(document, new ByteArrayInputStream(data), false);
+			stream.getStream().setInt(COSName.LENGTH1, data.length);
+			stream.addCompression();
+			descriptor.setItem(COSName.FONT_FILE2, stream);
+			if (subset != null) {
+				String name = getTag() + "+" + dictionary.getNameAsString(COSName.BASE_FONT);
+				dictionary.setName(COSName.BASE_FONT, name);
+				descriptor.setName(COSName.FONT_NAME, name);
+			}
+		}
+
+		// Returns the six upper-case letters which identify a subset, derived from the used characters.
+		private String getTag() {
+			long hash = codes.hashCode() & 0xFFFFFFFFL;
+			char[] tag = new char[6];
+			for (int index = 0; index < tag.length; index++) {
+				tag[index] = (char) ('A' + hash % 26);
+				hash /= 26;
+			}
+			return new String(tag);
+		}
+
+	}
+
+}
@@ -0,0 +1,428 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.pdfbox.encoding.Encoding;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDSimpleFont;
+import org.apache.pdfbox.pdmodel.font.PDType1CFont;
+
+/**
+ * The metrics of a {@link PDFont} in glyph space units (1/1000 of the font size), shared by all {@link HCPStyle}s
+ * which use the font.
+ * <p>
+ * The metrics are read from the font once and then kept in primitive fields. For simple fonts the advance widths of
+ * all 256 character codes are stored in a table, and the advance widths of the characters below 256 after encoding
+ * them (see {@link #encode(char)}) in a second table, so that the width of a string is calculated in a tight loop
+ * without encoding lookups for most characters. Other fonts are measured by PDFBox and the widths of short strings
+ * are cached per font in an {@link HCPStringWidthCache}.
+ * <p>
+ * The characters a font can show (its coverage) are stored in a bit set, which is calculated once from the encoding of
+ * the font, together with the character code of each covered character. The coverage of the standard symbolic fonts
+ * is calculated from their built-in encodings (see {@link HCPSymbolFonts}). Fonts without a known encoding cover the
+ * characters which PDFBox can encode. Texts are measured character by character and only encoded (see
+ * {@link #encode(String)}) when they are shown, so that every character is written as a single byte.
+ * <p>
+ * The kerning pairs of simple fonts are loaded once, when they are first needed, into an {@link HCPKerning} table,
+ * which is indexed by the same character codes as the advance widths.
+ * <p>
+ * There is at most one instance per font. Instances are only kept while they are used by a style, so that fonts loaded
+ * for a single document can be garbage collected together with the document.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Green Lightning
+ */
+final class HCPFontMetrics {
+
+	private static final Map<PDFont, WeakReference<HCPFontMetrics>> INSTANCES = new WeakHashMap<>();
+
+	/**
+	 * Returns the metrics of the specified font.
+	 *
+	 * @param font not {@code null}
+	 * @return the shared metrics of the font
+	 */
+	static HCPFontMetrics getInstance(PDFont font) {
+		synchronized (INSTANCES) {
+			WeakReference<HCPFontMetrics> reference = INSTANCES.get(font);
+			HCPFontMetrics metrics = reference == null ? null : reference.get();
+			if (metrics == null) {
+				metrics = new HCPFontMetrics(font);
+				INSTANCES.put(font, new WeakReference<>(metrics));
+			}
+			return metrics;
+		}
+	}
+
+	/**
+	 * Makes the specified metrics the metrics of the specified font, which must have the same metrics as the font the
+	 * metrics were created for. This is used to share the metrics of fonts created from the same font file.
+	 *
+	 * @param font not {@code null}
+	 * @param metrics not {@code null}
+	 */
+	static void share(PDFont font, HCPFontMetrics metrics) {
+		synchronized (INSTANCES) {
+			INSTANCES.put(font, new WeakReference<>(metrics));
+		}
+	}
+
+	private static final int CODE_COUNT = 256;
+	private static final char REPLACEMENT = '?';
+
+	private final PDFont font;
+	private final boolean simple;
+	private final HCPStringWidthCache widths;
+
+	// Loaded lazily while synchronized on the font, because PDFBox caches font metrics without synchronization.
+	private volatile float[] advances, characterAdvances;
+	private volatile float ascent = Float.NaN, descent = Float.NaN, height = Float.NaN;
+	private volatile Coverage coverage;
+	private volatile HCPKerning kerning;
+
+	private HCPFontMetrics(PDFont font) {
+		this.font = font;
+		// Type 1C fonts override the string width calculation and cannot be represented by a table.
+		this.simple = font instanceof PDSimpleFont && !(font instanceof PDType1CFont);
+		this.widths = simple ? null : new HCPStringWidthCache(font);
+	}
+
+	/**
+	 * Returns the ascent of the font.
+	 *
+	 * @return the ascent in glyph space units
+	 */
+	float getAscent() {
+		float ascent = this.ascent;
+		if (Float.isNaN(ascent)) {
+			synchronized (font) {
+				this.ascent = ascent = font.getFontDescriptor().getAscent();
+			}
+		}
+		return ascent;
+	}
+
+	/**
+	 * Returns the descent of the font.
+	 *
+	 * @return the descent in glyph space units
+	 */
+	float getDescent() {
+		float descent = this.descent;
+		if (Float.isNaN(descent)) {
+			synchronized (font) {
+				this.descent = descent = font.getFontDescriptor().getDescent();
+			}
+		}
+		return descent;
+	}
+
+	/**
+	 * Returns the height of the bounding box of the font.
+	 *
+	 * @return the height in glyph space units
+	 * @throws IOException if the bounding box cannot be read
+	 */
+	float getHeight() throws IOException {
+		float height = this.height;
+		if (Float.isNaN(height)) {
+			synchronized (font) {
+				this.height = height = font.getFontBoundingBox().getHeight();
+			}
+		}
+		return height;
+	}
+
+	/**
+	 * Returns the width of the specified text, which is measured as it is shown after encoding it (see
+	 * {@link #encode(char)}).
+	 *
+	 * @param text not {@code null}
+	 * @return the width in glyph space units
+	 * @throws IOException if the widths cannot be read
+	 */
+	float getStringWidth(String text) throws IOException {
+		if (!simple)
+			return widths.getStringWidth(text);
+		float[] characterAdvances = getCharacterAdvances();
+		float width = 0;
+		int length = text.length();
+		for (int index = 0; index < length; index++) {
+			char c = text.charAt(index);
+			width += c < CODE_COUNT ? characterAdvances[c] : getAdvance(c);
+		}
+		return width;
+	}
+
+	/**
+	 * Returns the number of times the width of a string has been found in the cache of this font (see
+	 * {@link HCPStringWidthCache#getHitCount()}).
+	 *
+	 * @return the number of hits; 0 for simple fonts, which are not cached
+	 */
+	long getWidthCacheHitCount() {
+		return simple ? 0 : widths.getHitCount();
+	}
+
+	/**
+	 * Returns the number of times the width of a string has not been found in the cache of this font (see
+	 * {@link HCPStringWidthCache#getMissCount()}).
+	 *
+	 * @return the number of misses; 0 for simple fonts, which are not cached
+	 */
+	long getWidthCacheMissCount() {
+		return simple ? 0 : widths.getMissCount();
+	}
+
+	/**
+	 * Returns the advance width of the specified character, which is measured as it is shown after encoding it (see
+	 * {@link #encode(char)}).
+	 *
+	 * @param c any character
+	 * @return the width in glyph space units
+	 * @throws IOException if the widths cannot be read
+	 */
+	float getAdvance(char c) throws IOException {
+		if (!simple)
+			return getStringWidth(String.valueOf(c));
+		return getAdvances()[encode(c)];
+	}
+
+	/**
+	 * Returns the sum of the kerning adjustments between the adjacent characters of the specified text, which are
+	 * kerned as they are shown after encoding them (see {@link #encode(char)}).
+	 *
+	 * @param text not {@code null}
+	 * @return the adjustment in glyph space units
+	 */
+	float getKerning(String text) {
+		HCPKerning kerning = getKerning();
+		if (kerning.isEmpty())
+			return 0;
+		float adjustment = 0;
+		int length = text.length();
+		for (int index = 1; index < length; index++)
+			adjustment += kerning.get(encode(text.charAt(index - 1)), encode(text.charAt(index)));
+		return adjustment;
+	}
+
+	/**
+	 * Returns the kerning adjustment between the specified characters, which are kerned as they are shown after
+	 * encoding them (see {@link #encode(char)}).
+	 *
+	 * @param first the character on the left
+	 * @param second the character on the right
+	 * @return the adjustment in glyph space units; negative values move the characters closer together
+	 */
+	float getKerning(char first, char second) {
+		HCPKerning kerning = getKerning();
+		return kerning.isEmpty() ? 0 : kerning.get(encode(first), encode(second));
+	}
+
+	private HCPKerning getKerning() {
+		HCPKerning kerning = this.kerning;
+		if (kerning == null) {
+			synchronized (font) {
+				this.kerning = kerning = simple ? HCPKerning.load(font) : HCPKerning.NONE;
+			}
+		}
+		return kerning;
+	}
+
+	/**
+	 * Sets the kerning pairs of the font, so that they are not loaded from the font. This is used for fonts whose font
+	 * file is not available to PDFBox, because it is embedded later.
+	 *
+	 * @param kerning not {@code null}
+	 */
+	void setKerning(HCPKerning kerning) {
+		this.kerning = kerning;
+	}
+
+	/**
+	 * Returns whether the font contains a glyph for the specified character.
+	 *
+	 * @param c any character
+	 * @return {@code true} if the character is covered by the font
+	 */
+	boolean covers(char c) {
+		return getCoverage().characters.get(c);
+	}
+
+	/**
+	 * Returns the character code which shows the specified character in the font. The code is returned as a character
+	 * so that it can be passed to PDFBox, which writes such characters as single bytes.
+	 * <p>
+	 * Characters which are not covered by the font are kept as codes if they are less than 256, as PDFBox would
+	 * encode them. All other characters are replaced by the code of a question mark, or of a space if the font does not
+	 * contain a question mark. Without the replacement PDFBox would write the whole string as UTF-16, which viewers
+	 * would show as garbage.
+	 *
+	 * @param c any character
+	 * @return the character code of the character or of its replacement; {@literal < 256}; the character itself for
+	 *         fonts which are not simple, because PDFBox encodes their texts
+	 */
+	char encode(char c) {
+		if (!simple)
+			return c;
+		Coverage coverage = getCoverage();
+		if (c < CODE_COUNT && coverage.unchanged[c])
+			return c;
+		return coverage.encode(c);
+	}
+
+	/**
+	 * Encodes each character of the specified text (see {@link #encode(char)}). Texts must be encoded exactly once,
+	 * because the codes of the font may differ from the characters they show.
+	 *
+	 * @param text not {@code null}
+	 * @return the encoded text of the same length; the specified text if no character has been changed
+	 */
+	String encode(String text) {
+		if (!simple)
+			return text;
+		Coverage coverage = getCoverage();
+		int length = text.length();
+		int index = 0;
+		boolean[] unchanged = coverage.unchanged;
+		for (char c; index < length && (c = text.charAt(index)) < CODE_COUNT && unchanged[c];)
+			index++;
+		if (index == length)
+			return text;
+		char[] codes = text.toCharArray();
+		for (; index < length; index++) {
+			char c = codes[index];
+			if (c >= CODE_COUNT || !unchanged[c])
+				codes[index] = coverage.encode(c);
+		}
+		return new String(codes);
+	}
+
+	private Coverage getCoverage() {
+		Coverage coverage = this.coverage;
+		if (coverage == null) {
+			synchronized (font) {
+				this.coverage = coverage = new Coverage(font, simple);
+			}
+		}
+		return coverage;
+	}
+
+	private float[] getAdvances() throws IOException {
+		float[] advances = this.advances;
+		if (advances == null) {
+			synchronized (font) {
+				advances = new float[CODE_COUNT];
+				byte[] code = new byte[1];
+				for (int index = 0; index < CODE_COUNT; index++) {
+					code[0] = (byte) index;
+					advances[index] = font.getFontWidth(code, 0, 1);
+				}
+				this.advances = advances;
+			}
+		}
+		return advances;
+	}
+
+	// Returns the advance widths of the characters below 256, which are looked up by their codes.
+	private float[] getCharacterAdvances() throws IOException {
+		float[] characterAdvances = this.characterAdvances;
+		if (characterAdvances == null) {
+			synchronized (font) {
+				float[] advances = getAdvances();
+				characterAdvances = new float[CODE_COUNT];
+				for (char c = 0; c < CODE_COUNT; c++)
+					characterAdvances[c] = advances[encode(c)];
+				this.characterAdvances = characterAdvances;
+			}
+		}
+		return characterAdvances;
+	}
+
+	// The characters covered by a font, sorted, together with their codes.
+	private static final class Coverage {
+
+		final BitSet characters = new BitSet();
+		final char[] sortedCharacters;
+		final char[] codes;
+		// The characters below 256 which are encoded as themselves.
+		final boolean[] unchanged = new boolean[CODE_COUNT];
+		final char replacement;
+
+		Coverage(PDFont font, boolean simple) {
+			char[] builtIn = HCPSymbolFonts.getCharacters(font);
+			Encoding encoding = simple && builtIn == null ? font.getFontEncoding() : null;
+			char[] characters = new char[CODE_COUNT], codes = new char[CODE_COUNT];
+			int count = 0;
+			for (int code = 0; code < CODE_COUNT; code++) {
+				char c;
+				if (builtIn != null)
+					c = hasGlyph(font, code) ? builtIn[code] : 0;
+				else
+					c = encoding == null ? (char) code : getCharacter(font, encoding, code);
+				if (c != 0 && !this.characters.get(c)) {
+					this.characters.set(c);
+					characters[count] = c;
+					codes[count] = (char) code;
+					count++;
+				}
+			}
+			// Sort the characters together with their codes.
+			long[] pairs = new long[count];
+			for (int index = 0; index < count; index++)
+				pairs[index] = (long) characters[index] << 16 | codes[index];
+			Arrays.sort(pairs);
+			this.sortedCharacters = new char[count];
+			this.codes = new char[count];
+			for (int index = 0; index < count; index++) {
+				sortedCharacters[index] = (char) (pairs[index] >>> 16);
+				this.codes[index] = (char) pairs[index];
+			}
+			this.replacement = this.characters.get(REPLACEMENT) ? getCode(REPLACEMENT) : getCode(' ');
+			for (char c = 0; c < CODE_COUNT; c++)
+				unchanged[c] = encode(c) == c;
+		}
+
+		// Returns the code of a covered character or the code of the character itself if it is not covered.
+		private char getCode(char c) {
+			int index = Arrays.binarySearch(sortedCharacters, c);
+			return index < 0 ? c : codes[index];
+		}
+
+		char encode(char c) {
+			int index = Arrays.binarySearch(sortedCharacters, c);
+			if (index >= 0)
+				return codes[index];
+			return c < CODE_COUNT ? c : replacement;
+		}
+
+		private static boolean hasGlyph(PDFont font, int code) {
+			try {
+				return font.getFontWidth(new byte[] { (byte) code }, 0, 1) > 0;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		// Returns the character shown by the specified code or 0 if the code does not show a glyph.
+		private static char getCharacter(PDFont font, Encoding encoding, int code) {
+			try {
+				String name = encoding.getName(code);
+				if (name == null || name.equals(Encoding.NOTDEF) || !hasGlyph(font, code))
+					return 0;
+				String character = encoding.getCharacter(name);
+				return character != null && character.length() == 1 ? character.charAt(0) : 0;
+			} catch (IOException e) {
+				return 0;
+			}
+		}
+
+	}
+
+}
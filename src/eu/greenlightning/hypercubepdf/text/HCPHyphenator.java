@@ -0,0 +1,342 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the points at which words can be hyphenated using Liang's algorithm, which is the algorithm used by TeX.
+ * <p>
+ * The hyphenation patterns are compiled into a compact trie stored in a few primitive arrays. Patterns can be loaded
+ * from standard TeX pattern files (see {@link #load(Reader)}), for example the files distributed by the hyph-utf8
+ * project. Words listed as exceptions are hyphenated exactly as specified instead of using the patterns.
+ * <p>
+ * The hyphenation points of each word are remembered, so that a word is only hyphenated once, no matter how many
+ * paragraphs contain it or how often line breaks are calculated. Hyphenators should therefore be created once per
+ * language and then shared, for example in a static field. The number of remembered words is bounded.
+ * <p>
+ * Only the letters of a word are hyphenated; leading and trailing punctuation is ignored. By default at least two
+ * letters remain before and three letters after a hyphen, like in TeX's default settings for English.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Green Lightning
+ */
+public final class HCPHyphenator {
+
+	private static final int[] NO_POINTS = new int[0];
+	private static final int MEMO_CAPACITY = 65536;
+	private static final int DEFAULT_LEFT_MINIMUM = 2, DEFAULT_RIGHT_MINIMUM = 3;
+
+	/**
+	 * Loads a hyphenator from a TeX pattern file.
+	 * <p>
+	 * If the file contains a {@code \patterns{...}} group, the patterns are read from that group and the exceptions
+	 * from a {@code \hyphenation{...}} group, if present. Otherwise every whitespace-separated token of the file is
+	 * treated as a pattern, which is the format of the {@code .pat.txt} files of hyph-utf8. Comments starting with
+	 * {@code %} are ignored. The reader is not closed by this method.
+	 *
+	 * @param reader not {@code null}
+	 * @return a new hyphenator using the patterns and exceptions of the file
+	 * @throws NullPointerException if reader is {@code null}
+	 * @throws IOException if an error occurs while reading
+	 * @throws IllegalArgumentException if a pattern is malformed
+	 */
+	public static HCPHyphenator load(Reader reader) throws IOException {
+		Objects.requireNonNull(reader, "Reader must not be null.");
+		StringBuilder builder = new StringBuilder();
+		BufferedReader lines = new BufferedReader(reader);
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			int comment = line.indexOf('%');
+			builder.append(comment < 0 ? line : line.substring(0, comment)).append('\n');
+		}
+		String text = builder.toString();
+		String patterns = getGroup(text, "\\patterns");
+		String exceptions = getGroup(text, "\\hyphenation");
+		if (patterns == null)
+			patterns = text;
+		return create(tokenize(patterns), exceptions == null ? Collections.emptyList() : tokenize(exceptions));
+	}
+
+	private static String getGroup(String text, String command) {
+		int start = text.indexOf(command);
+		if (start < 0)
+			return null;
+		int open = text.indexOf('{', start);
+		int close = open < 0 ? -1 : text.indexOf('}', open);
+		if (close < 0)
+			throw new IllegalArgumentException("Group " + command + " is not closed.");
+		return text.substring(open + 1, close);
+	}
+
+	private static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		int start = -1;
+		for (int index = 0; index <= text.length(); index++) {
+			boolean whitespace = index == text.length() || Character.isWhitespace(text.charAt(index));
+			if (whitespace && start >= 0) {
+				tokens.add(text.substring(start, index));
+				start = -1;
+			} else if (!whitespace && start < 0) {
+				start = index;
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Creates a hyphenator from the specified patterns and exceptions.
+	 * <p>
+	 * Patterns use the TeX syntax: letters interspersed with digits, where odd digits allow and even digits prohibit
+	 * a hyphen at their position, and a period marks the beginning or end of a word (for example {@code .hy3ph} or
+	 * {@code 4m1p}). Exceptions are words with hyphens at all allowed positions (for example {@code ta-ble}).
+	 *
+	 * @param patterns not {@code null}; must not contain {@code null}
+	 * @param exceptions not {@code null}; must not contain {@code null}
+	 * @return a new hyphenator
+	 * @throws NullPointerException if patterns or exceptions is or contains {@code null}
+	 * @throws IllegalArgumentException if a pattern is malformed
+	 */
+	public static HCPHyphenator create(Collection<String> patterns, Collection<String> exceptions) {
+		Objects.requireNonNull(patterns, "Patterns must not be null.");
+		Objects.requireNonNull(exceptions, "Exceptions must not be null.");
+		Map<String, int[]> exceptionPoints = new HashMap<>();
+		for (String exception : exceptions) {
+			Objects.requireNonNull(exception, "Exceptions must not contain null.");
+			StringBuilder word = new StringBuilder();
+			List<Integer> points = new ArrayList<>();
+			for (int index = 0; index < exception.length(); index++) {
+				char c = exception.charAt(index);
+				if (c == '-')
+					points.add(word.length());
+				else
+					word.append(Character.toLowerCase(c));
+			}
+			exceptionPoints.put(word.toString(), points.stream().mapToInt(Integer::intValue).toArray());
+		}
+		return new HCPHyphenator(Trie.compile(patterns), exceptionPoints, DEFAULT_LEFT_MINIMUM,
+			DEFAULT_RIGHT_MINIMUM);
+	}
+
+	private final Trie trie;
+	private final Map<String, int[]> exceptions;
+	private final int leftMinimum, rightMinimum;
+	private final Map<String, int[]> memo = new ConcurrentHashMap<>();
+
+	private HCPHyphenator(Trie trie, Map<String, int[]> exceptions, int leftMinimum, int rightMinimum) {
+		this.trie = trie;
+		this.exceptions = exceptions;
+		this.leftMinimum = leftMinimum;
+		this.rightMinimum = rightMinimum;
+	}
+
+	/**
+	 * Returns a hyphenator using the same patterns and exceptions as this hyphenator, which leaves at least the
+	 * specified numbers of letters before and after each hyphen.
+	 *
+	 * @param leftMinimum must be {@literal >= 1}
+	 * @param rightMinimum must be {@literal >= 1}
+	 * @return a hyphenator using the specified minimums
+	 * @throws IllegalArgumentException if leftMinimum or rightMinimum is {@literal < 1}
+	 */
+	public HCPHyphenator withMinimums(int leftMinimum, int rightMinimum) {
+		if (leftMinimum < 1)
+			throw new IllegalArgumentException("Left minimum must be equal to or greater than one, but was "
+				+ leftMinimum + ".");
+		if (rightMinimum < 1)
+			throw new IllegalArgumentException("Right minimum must be equal to or greater than one, but was "
+				+ rightMinimum + ".");
+		if (leftMinimum == this.leftMinimum && rightMinimum == this.rightMinimum)
+			return this;
+		return new HCPHyphenator(trie, exceptions, leftMinimum, rightMinimum);
+	}
+
+	/**
+	 * Returns the positions in the specified word at which a hyphen can be inserted. Each position is the index of
+	 * the character in front of which the hyphen is inserted. The positions are sorted in ascending order.
+	 *
+	 * @param word not {@code null}
+	 * @return the hyphenation points of the word; not {@code null}
+	 * @throws NullPointerException if word is {@code null}
+	 */
+	public int[] getHyphenationPoints(String word) {
+		return getPoints(word).clone();
+	}
+
+	/**
+	 * Inserts the specified hyphen character at all hyphenation points of the specified word.
+	 *
+	 * @param word not {@code null}
+	 * @param hyphen the character to insert
+	 * @return the hyphenated word
+	 * @throws NullPointerException if word is {@code null}
+	 */
+	public String hyphenate(String word, char hyphen) {
+		int[] points = getPoints(word);
+		StringBuilder builder = new StringBuilder(word.length() + points.length);
+		int start = 0;
+		for (int point : points) {
+			builder.append(word, start, point).append(hyphen);
+			start = point;
+		}
+		return builder.append(word, start, word.length()).toString();
+	}
+
+	// Returns the shared array of points, which must not be modified.
+	int[] getPoints(String word) {
+		int start = 0, end = word.length();
+		while (start < end && !Character.isLetter(word.charAt(start)))
+			start++;
+		while (end > start && !Character.isLetter(word.charAt(end - 1)))
+			end--;
+		if (end - start < leftMinimum + rightMinimum)
+			return NO_POINTS;
+		String letters = word.substring(start, end).toLowerCase(Locale.ROOT);
+		if (letters.length() != end - start)
+			return NO_POINTS; // Lower-casing changed the length, so the indices would not match the word.
+		int[] points = memo.get(letters);
+		if (points == null) {
+			points = computePoints(letters);
+			if (memo.size() < MEMO_CAPACITY)
+				memo.put(letters, points);
+		}
+		if (start == 0 || points.length == 0)
+			return points;
+		int[] shifted = new int[points.length];
+		for (int index = 0; index < points.length; index++)
+			shifted[index] = points[index] + start;
+		return shifted;
+	}
+
+	private int[] computePoints(String letters) {
+		int[] exception = exceptions.get(letters);
+		if (exception != null)
+			return exception;
+		int length = letters.length();
+		String word = "." + letters + ".";
+		// values[i] is the value between the characters i - 1 and i of the extended word.
+		int[] values = new int[word.length() + 1];
+		for (int start = 0; start < word.length(); start++)
+			trie.match(word, start, values);
+		int count = 0;
+		int[] points = new int[length];
+		for (int index = leftMinimum; index <= length - rightMinimum; index++)
+			if (values[index + 1] % 2 == 1)
+				points[count++] = index;
+		return count == 0 ? NO_POINTS : Arrays.copyOf(points, count);
+	}
+
+	// A trie of patterns stored in arrays. The children of each node are sorted by their character.
+	private static final class Trie {
+
+		// Children of node n are at [childStarts[n], childStarts[n + 1]).
+		private final int[] childStarts;
+		private final char[] childCharacters;
+		private final int[] childNodes;
+		// The values of the pattern ending at node n are at [valueStarts[n], valueStarts[n + 1]).
+		private final int[] valueStarts;
+		private final byte[] values;
+
+		private Trie(int[] childStarts, char[] childCharacters, int[] childNodes, int[] valueStarts, byte[] values) {
+			this.childStarts = childStarts;
+			this.childCharacters = childCharacters;
+			this.childNodes = childNodes;
+			this.valueStarts = valueStarts;
+			this.values = values;
+		}
+
+		static Trie compile(Collection<String> patterns) {
+			// Build a temporary trie of maps first, then flatten it in breadth-first order.
+			List<TreeMap<Character, Integer>> children = new ArrayList<>();
+			List<byte[]> nodeValues = new ArrayList<>();
+			children.add(new TreeMap<>());
+			nodeValues.add(null);
+			for (String pattern : patterns) {
+				Objects.requireNonNull(pattern, "Patterns must not contain null.");
+				StringBuilder letters = new StringBuilder();
+				byte[] digits = new byte[pattern.length() + 1];
+				for (int index = 0; index < pattern.length(); index++) {
+					char c = pattern.charAt(index);
+					if (c >= '0' && c <= '9')
+						digits[letters.length()] = (byte) (c - '0');
+					else
+						letters.append(Character.toLowerCase(c));
+				}
+				if (letters.length() == 0)
+					throw new IllegalArgumentException("Pattern must contain letters, but was " + pattern + ".");
+				int node = 0;
+				for (int index = 0; index < letters.length(); index++) {
+					Integer child = children.get(node).get(letters.charAt(index));
+					if (child == null) {
+						child = children.size();
+						children.add(new TreeMap<>());
+						nodeValues.add(null);
+						children.get(node).put(letters.charAt(index), child);
+					}
+					node = child;
+				}
+				nodeValues.set(node, Arrays.copyOf(digits, letters.length() + 1));
+			}
+
+			int nodeCount = children.size();
+			int[] order = new int[nodeCount], position = new int[nodeCount];
+			int count = 1;
+			for (int index = 0; index < count; index++)
+				for (int child : children.get(order[index]).values())
+					order[count++] = child;
+			for (int index = 0; index < nodeCount; index++)
+				position[order[index]] = index;
+
+			int[] childStarts = new int[nodeCount + 1];
+			char[] childCharacters = new char[nodeCount - 1];
+			int[] childNodes = new int[nodeCount - 1];
+			int[] valueStarts = new int[nodeCount + 1];
+			int valueCount = 0;
+			for (byte[] value : nodeValues)
+				valueCount += value == null ? 0 : value.length;
+			byte[] values = new byte[valueCount];
+			int childCount = 0;
+			valueCount = 0;
+			for (int index = 0; index < nodeCount; index++) {
+				childStarts[index] = childCount;
+				for (Map.Entry<Character, Integer> entry : children.get(order[index]).entrySet()) {
+					childCharacters[childCount] = entry.getKey();
+					childNodes[childCount] = position[entry.getValue()];
+					childCount++;
+				}
+				valueStarts[index] = valueCount;
+				byte[] value = nodeValues.get(order[index]);
+				if (value != null) {
+					System.arraycopy(value, 0, values, valueCount, value.length);
+					valueCount += value.length;
+				}
+			}
+			childStarts[nodeCount] = childCount;
+			valueStarts[nodeCount] = valueCount;
+			return new Trie(childStarts, childCharacters, childNodes, valueStarts, values);
+		}
+
+		// Applies all patterns which match the word at the specified start.
+		void match(String word, int start, int[] result) {
+			int node = 0;
+			for (int index = start; index < word.length(); index++) {
+				node = getChild(node, word.charAt(index));
+				if (node < 0)
+					return;
+				for (int value = valueStarts[node]; value < valueStarts[node + 1]; value++) {
+					int position = start + value - valueStarts[node];
+					result[position] = Math.max(result[position], values[value]);
+				}
+			}
+		}
+
+		private int getChild(int node, char c) {
+			int index = Arrays.binarySearch(childCharacters, childStarts[node], childStarts[node + 1], c);
+			return index < 0 ? -1 : childNodes[index];
+		}
+
+	}
+
+}
@@ -0,0 +1,269 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.fontbox.afm.AFMParser;
+import org.apache.fontbox.afm.FontMetric;
+import org.apache.fontbox.afm.KernPair;
+import org.apache.fontbox.ttf.CMAPEncodingEntry;
+import org.apache.fontbox.ttf.TTFTable;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.encoding.Encoding;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * The kerning pairs of a simple font, i.&nbsp;e. the adjustments of the distance between two specific characters, in
+ * glyph space units.
+ * <p>
+ * The pairs are stored by character code in an open addressing hash table of primitive arrays, so that looking up a
+ * pair neither allocates nor boxes. The pairs are read from the Adobe font metrics of the standard 14 fonts, which are
+ * part of PDFBox, and from the 'kern' table of TrueType fonts.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+final class HCPKerning {
+
+	/** A kerning table without any pairs. */
+	static final HCPKerning NONE = new HCPKerning(new int[] { -1 }, new float[1], 0);
+
+	private static final String AFM_RESOURCE_ROOT = "org/apache/pdfbox/resources/afm/";
+	private static final int CODE_COUNT = 256;
+
+	/**
+	 * Loads the kerning pairs of the specified font. Returns {@link #NONE} if the font has no kerning pairs or they
+	 * cannot be read.
+	 *
+	 * @param font not {@code null}
+	 * @return the kerning pairs of the font
+	 */
+	static HCPKerning load(PDFont font) {
+		try {
+			Encoding encoding = font.getFontEncoding();
+			if (encoding == null)
+				return NONE;
+			if (font instanceof PDType1Font)
+				return loadAFM(font.getBaseFont(), encoding);
+			if (font instanceof PDTrueTypeFont) {
+				TrueTypeFont ttf = ((PDTrueTypeFont) font).getTTFFont();
+				return ttf == null ? NONE : readTrueType(ttf, encoding);
+			}
+		} catch (IOException | RuntimeException e) {
+			// Kerning is optional, so fonts whose pairs cannot be read are not kerned.
+		}
+		return NONE;
+	}
+
+	private static HCPKerning loadAFM(String baseFont, Encoding encoding) throws IOException {
+		InputStream input = PDFont.class.getClassLoader().getResourceAsStream(AFM_RESOURCE_ROOT + baseFont + ".afm");
+		if (input == null)
+			return NONE;
+		FontMetric metric;
+		try {
+			AFMParser parser = new AFMParser(input);
+			parser.parse();
+			metric = parser.getResult();
+		} finally {
+			input.close();
+		}
+		Builder builder = new Builder();
+		for (KernPair pair : metric.getKernPairs()) {
+			int first = getCode(encoding, pair.getFirstKernCharacter());
+			int second = getCode(encoding, pair.getSecondKernCharacter());
+			if (first >= 0 && second >= 0)
+				builder.put(first, second, pair.getX());
+		}
+		return builder.build();
+	}
+
+	private static int getCode(Encoding encoding, String name) {
+		try {
+			return encoding.hasCodeForName(name) ? encoding.getCode(name) : -1;
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Loads the kerning pairs of the specified TrueType font for the specified encoding. Returns {@link #NONE} if the
+	 * font has no kerning pairs or they cannot be read.
+	 *
+	 * @param ttf not {@code null}
+	 * @param encoding not {@code null}
+	 * @return the kerning pairs of the font
+	 */
+	static HCPKerning load(TrueTypeFont ttf, Encoding encoding) {
+		try {
+			return readTrueType(ttf, encoding);
+		} catch (IOException | RuntimeException e) {
+			return NONE;
+		}
+	}
+
+	private static HCPKerning readTrueType(TrueTypeFont ttf, Encoding encoding) throws IOException {
+		ByteBuffer kern = getTable(ttf, "kern");
+		CMAPEncodingEntry cmap = getUnicodeCmap(ttf);
+		if (kern == null || cmap == null || kern.getShort(0) != 0)
+			return NONE; // Only the version 0 (Microsoft) format is supported.
+
+		// A glyph can be shown by several codes, so the codes of each glyph are stored in a linked list.
+		int glyphCount = ttf.getNumberOfGlyphs();
+		int[] firstCodes = new int[glyphCount], nextCodes = new int[CODE_COUNT];
+		Arrays.fill(firstCodes, -1);
+		for (int code = CODE_COUNT - 1; code >= 0; code--) {
+			String character = encoding.hasNameForCode(code) ? encoding.getCharacter(encoding.getName(code)) : null;
+			int glyph = character == null || character.length() != 1 ? 0 : cmap.getGlyphId(character.charAt(0));
+			if (glyph > 0 && glyph < glyphCount) {
+				nextCodes[code] = firstCodes[glyph];
+				firstCodes[glyph] = code;
+			}
+		}
+
+		float scale = 1000f / ttf.getUnitsPerEm();
+		Builder builder = new Builder();
+		int tableCount = kern.getShort(2) & 0xFFFF;
+		int offset = 4;
+		for (int table = 0; table < tableCount; table++) {
+			int length = kern.getShort(offset + 2) & 0xFFFF;
+			int coverage = kern.getShort(offset + 4) & 0xFFFF;
+			int format = coverage >>> 8;
+			int pairCount = format == 0 ? kern.getShort(offset + 6) & 0xFFFF : 0;
+			// The 16-bit length overflows for format 0 tables of more than 10919 pairs, so it is computed instead.
+			if (format == 0)
+				length = 14 + 6 * pairCount;
+			// Format 0 tables with horizontal kerning values (not minimums or cross-stream values).
+			if ((coverage & 0xFF07) == 0x0001) {
+				for (int pair = 0; pair < pairCount; pair++) {
+					int entry = offset + 14 + 6 * pair;
+					int left = kern.getShort(entry) & 0xFFFF, right = kern.getShort(entry + 2) & 0xFFFF;
+					float value = kern.getShort(entry + 4) * scale;
+					if (left >= glyphCount || right >= glyphCount)
+						continue;
+					for (int first = firstCodes[left]; first >= 0; first = nextCodes[first])
+						for (int second = firstCodes[right]; second >= 0; second = nextCodes[second])
+							builder.put(first, second, value);
+				}
+			}
+			offset += length;
+		}
+		return builder.build();
+	}
+
+	private static ByteBuffer getTable(TrueTypeFont ttf, String tag) throws IOException {
+		for (TTFTable table : ttf.getTables()) {
+			if (!tag.equals(table.getTag()))
+				continue;
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			try (InputStream input = ttf.getOriginalData()) {
+				byte[] buffer = new byte[8192];
+				for (int count = input.read(buffer); count >= 0; count = input.read(buffer))
+					output.write(buffer, 0, count);
+			}
+			ByteBuffer data = ByteBuffer.wrap(output.toByteArray());
+			data.position((int) table.getOffset()).limit((int) (table.getOffset() + table.getLength()));
+			return data.slice();
+		}
+		return null;
+	}
+
+	private static CMAPEncodingEntry getUnicodeCmap(TrueTypeFont ttf) {
+		if (ttf.getCMAP() == null)
+			return null;
+		for (CMAPEncodingEntry cmap : ttf.getCMAP().getCmaps())
+			if (cmap.getPlatformId() == 3 && cmap.getPlatformEncodingId() == 1)
+				return cmap;
+		return null;
+	}
+
+	// keys[i] is (first << 8 | second) or -1 if the slot is empty.
+	private final int[] keys;
+	private final float[] values;
+	private final int size;
+
+	private HCPKerning(int[] keys, float[] values, int size) {
+		this.keys = keys;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * Returns whether this table does not contain any pairs.
+	 *
+	 * @return {@code true} if there are no pairs
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the adjustment between the specified character codes.
+	 *
+	 * @param first the code of the first character; must be {@literal < 256}
+	 * @param second the code of the second character; must be {@literal < 256}
+	 * @return the adjustment in glyph space units; negative values move the characters closer together
+	 */
+	float get(int first, int second) {
+		int key = first << 8 | second;
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key)
+				return values[slot];
+			if (keys[slot] == -1)
+				return 0;
+		}
+	}
+
+	private static int hash(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	// Collects the pairs before they are stored in a table of the right size.
+	private static final class Builder {
+
+		private int[] keys = new int[64];
+		private float[] values = new float[64];
+		private int size;
+
+		void put(int first, int second, float value) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, 2 * size);
+				values = Arrays.copyOf(values, 2 * size);
+			}
+			keys[size] = first << 8 | second;
+			values[size] = value;
+			size++;
+		}
+
+		HCPKerning build() {
+			if (size == 0)
+				return NONE;
+			// Keep the load factor at or below one half, so that probe sequences stay short.
+			int capacity = Integer.highestOneBit(size) * 4;
+			int[] tableKeys = new int[capacity];
+			float[] tableValues = new float[capacity];
+			Arrays.fill(tableKeys, -1);
+			int count = 0;
+			for (int index = 0; index < size; index++) {
+				int key = keys[index];
+				int slot = hash(key) & (capacity - 1);
+				while (tableKeys[slot] != -1 && tableKeys[slot] != key)
+					slot = (slot + 1) & (capacity - 1);
+				if (tableKeys[slot] == -1)
+					count++;
+				tableKeys[slot] = key; // The last pair wins if a pair occurs more than once.
+				tableValues[slot] = values[index];
+			}
+			return new HCPKerning(tableKeys, tableValues, count);
+		}
+
+	}
+
+}
@@ -3,9 +3,11 @@ package eu.greenlightning.hypercubepdf.text;
 import java.io.IOException;
 import java.util.Objects;
 
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPSplit;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
 import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
 
 /**
@@ -16,18 +18,22 @@ import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
  * consecutive lines is a gap with the height of one line.
  * <p>
  * The alignment of the individual lines can also be configured. Note however, that the (imaginary) rectangle
- * surrounding all lines is always centered inside the text element.
+ * surrounding all lines is always centered inside the text element. Justified text
+ * ({@link HCPHorizontalAlignment#JUSTIFY}) stretches all lines except the last one to the width of the widest line by
+ * setting the word spacing once per line, so that each line is still shown as a whole.
+ * <p>
+ * A multiline text is {@link HCPSplittable} at its line breaks. Each part is a multiline text with the same properties,
+ * which is laid out on its own.
  * <p>
  * This class is immutable.
  *
  * @author Green Lightning
  */
-public class HCPMultilineText extends HCPText {
+public class HCPMultilineText extends HCPText implements HCPSplittable {
 
 	private static final float DEFAULT_LINE_SPACING = 1.2f;
 	private static final HCPHorizontalAlignment DEFAULT_ALIGNMENT = HCPHorizontalAlignment.LEFT;
 
-	private final String[] lines;
 	private final float lineSpacing;
 	private final HCPHorizontalAlignment alignment;
 
@@ -88,7 +94,6 @@ public class HCPMultilineText extends HCPText {
 	 */
 	public HCPMultilineText(String text, HCPStyle style, float lineSpacing, HCPHorizontalAlignment alignment) {
 		super(text, style);
-		this.lines = text.split("\\n", -1); // -1 -> do not discard trailing empty strings
 		this.lineSpacing = checkLineSpacing(lineSpacing);
 		this.alignment = Objects.requireNonNull(alignment, "Alignment must not be null.");
 	}
@@ -106,32 +111,59 @@ public class HCPMultilineText extends HCPText {
 	}
 
 	@Override
-	public float getWidth() throws IOException {
-		float width = 0;
-		for (String line : lines) {
-			width = Math.max(width, style.getStringWidth(line));
-		}
-		return width;
+	protected HCPTextLayout createLayout() throws IOException {
+		return HCPTextLayout.create(text, style, lineSpacing);
 	}
 
 	@Override
-	public float getHeight() throws IOException {
-		return ((lines.length - 1) * lineSpacing + 1) * style.getHeight();
+	public HCPSplit split(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(height, false);
+	}
+
+	@Override
+	public HCPSplit forceSplit(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(height, true);
+	}
+
+	// If the split is forced, at least the first line is returned as the head.
+	private HCPSplit split(float height, boolean force) throws IOException {
+		HCPTextLayout layout = getLayout();
+		int count = layout.getFittingLineCount(height);
+		if (count == 0 && force)
+			count = 1;
+		if (count >= layout.getLineCount())
+			return HCPSplit.fitting(this);
+		if (count == 0)
+			return HCPSplit.notFitting(this);
+		int end = -1;
+		for (int line = 0; line < count; line++)
+			end = text.indexOf('\n', end + 1);
+		return HCPSplit.create(withText(text.substring(0, end)), withText(text.substring(end + 1)));
 	}
 
 	@Override
 	protected void paintText(PDPageContentStream content, float x, float y) throws IOException {
-		PDRectangle size = new PDRectangle(getWidth(), getHeight());
+		HCPTextLayout layout = getLayout();
 		content.beginText();
 		style.apply(content);
-		float verticalOffset = (lineSpacing - 1) * style.getHeight() - style.getDescent();
-		content.setTextTranslation(x, y + getHeight() + verticalOffset);
-		for (String line : lines) {
-			float lineOffset = alignment.alignWithParent(style.getStringWidth(line), size);
-			content.moveTextPositionByAmount(lineOffset, -lineSpacing * style.getHeight());
-			content.drawString(line);
-			content.moveTextPositionByAmount(-lineOffset, 0);
+		float lineX = x, lineY = y + layout.getBaseline(0);
+		float wordSpacing = 0;
+		content.setTextTranslation(lineX, lineY);
+		for (int line = 0; line < layout.getLineCount(); line++) {
+			float nextX = alignment.align(layout.getLineWidth(line), x, x + layout.getWidth());
+			float nextY = y + layout.getBaseline(line);
+			content.moveTextPositionByAmount(nextX - lineX, nextY - lineY);
+			if (alignment == HCPHorizontalAlignment.JUSTIFY) {
+				float spacing = layout.getWordSpacing(line, layout.getWidth());
+				if (spacing != wordSpacing)
+					HCPStyle.setWordSpacing(content, wordSpacing = spacing);
+			}
+			style.showText(content, layout.getLine(line));
+			lineX = nextX;
+			lineY = nextY;
 		}
+		if (wordSpacing != 0)
+			HCPStyle.setWordSpacing(content, 0);
 		content.endText();
 	}
 
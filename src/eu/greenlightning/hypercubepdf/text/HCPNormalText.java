@@ -29,22 +29,12 @@ public class HCPNormalText extends HCPText {
 		return new HCPNormalText(text, style);
 	}
 
-	@Override
-	public float getWidth() throws IOException {
-		return style.getStringWidth(text);
-	}
-
-	@Override
-	public float getHeight() throws IOException {
-		return style.getHeight();
-	}
-
 	@Override
 	protected void paintText(PDPageContentStream content, float x, float y) throws IOException {
 		content.beginText();
 		style.apply(content);
-		content.setTextTranslation(x, y - style.getDescent());
-		content.drawString(text);
+		content.setTextTranslation(x, y + getLayout().getBaseline(0));
+		style.showText(content, text);
 		content.endText();
 	}
 
@@ -0,0 +1,689 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.HCPRenderContext;
+import eu.greenlightning.hypercubepdf.HCPSplit;
+import eu.greenlightning.hypercubepdf.HCPSplittable;
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+
+/**
+ * A text element which wraps its text into as many lines as necessary to fit the width it is painted with.
+ * <p>
+ * The text is divided into words at spaces. Line breaks in the text always start a new line. The words of each line are
+ * separated by a single space and consecutive spaces are collapsed. A word which is wider than the available width is
+ * placed on a line of its own and extends beyond the element.
+ * <p>
+ * If the paragraph has an {@link HCPHyphenator}, words can also be broken at their hyphenation points, in which case a
+ * hyphen is painted at the end of the line. Optimal line breaking charges each hyphen like an em of space left at the
+ * end of a line, so that words are only hyphenated if this makes the lines considerably more even.
+ * <p>
+ * The lines are chosen by an {@link HCPLineBreaking} strategy. The default strategy is
+ * {@link HCPLineBreaking#OPTIMAL}, which considers all possible line breaks of a paragraph at once. The line breaks
+ * for a given width are cached in the element, because containers usually ask for the height at the same width several
+ * times before the element is painted with it.
+ * <p>
+ * The preferred width of a paragraph is the width of its longest line if no lines are wrapped and its minimum width is
+ * the width of its longest word (or longest part of a word if it is hyphenated). Its height for a given width (see
+ * {@link HCPMeasureContext#getHeight(HCPElement, float)}) is the height of the lines which are created at that width.
+ * The lines are painted from the top of the element and are aligned horizontally using an
+ * {@link HCPHorizontalAlignment}. Lines which do not fit into the height of the element are not painted. Justified
+ * lines ({@link HCPHorizontalAlignment#JUSTIFY}) are stretched to the width of the element by setting the word spacing
+ * for each line, except for the last line of each paragraph, so that each line is still shown as a whole.
+ * <p>
+ * A paragraph is {@link HCPSplittable} between its lines. The fitting part paints the lines which have already been
+ * broken and the remainder is a paragraph of the rest of the text, which shares the measured words of this paragraph.
+ * <p>
+ * The spacing between the lines is measured in 'line heights', i.&nbsp;e. 1 means each line is directly below the
+ * other and 2 means that between two consecutive lines is a gap with the height of one line.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPParagraph implements HCPSplittable {
+
+	/**
+	 * Strategies for choosing the lines of a paragraph.
+	 *
+	 * @author Green Lightning
+	 */
+	public static enum HCPLineBreaking {
+		/**
+		 * Puts as many words as possible onto each line, one line after another. This is the fastest strategy, but
+		 * can leave lines which are much shorter than the lines around them.
+		 */
+		GREEDY,
+		/**
+		 * Chooses the lines so that the sum of the squared amounts of space left at the end of each line (except the
+		 * last line) is minimal. This is the total-fit algorithm by Knuth and Plass for text without stretchable
+		 * spaces, which produces lines of a more even length than {@link #GREEDY}.
+		 */
+		OPTIMAL
+	}
+
+	/**
+	 * Creates a new builder for a paragraph with the specified text and style.
+	 *
+	 * @param text not {@code null}
+	 * @param style not {@code null}
+	 * @return a new builder for an {@link HCPParagraph}
+	 * @throws NullPointerException if text or style is {@code null}
+	 */
+	public static Builder create(String text, HCPStyle style) {
+		return new Builder(text, style);
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPParagraph} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private final String text;
+		private final HCPStyle style;
+		private float lineSpacing = DEFAULT_LINE_SPACING;
+		private HCPHorizontalAlignment alignment = DEFAULT_ALIGNMENT;
+		private HCPLineBreaking breaking = DEFAULT_BREAKING;
+		private HCPHyphenator hyphenator;
+
+		private Builder(String text, HCPStyle style) {
+			this.text = Objects.requireNonNull(text, "Text must not be null.");
+			this.style = Objects.requireNonNull(style, "Style must not be null.");
+		}
+
+		/**
+		 * Sets the spacing between the lines, replacing any previously set value. The default is 1.2 lines.
+		 *
+		 * @param lineSpacing must be {@literal >= 1}
+		 * @return this builder for chaining
+		 * @throws IllegalArgumentException if lineSpacing is {@literal < 1}
+		 */
+		public Builder lineSpacing(float lineSpacing) {
+			if (lineSpacing < 1)
+				throw new IllegalArgumentException("Line spacing must be equal to or greater than one, but was "
+					+ lineSpacing + ".");
+			this.lineSpacing = lineSpacing;
+			return this;
+		}
+
+		/**
+		 * Sets the alignment of the lines, replacing any previously set value. The default is
+		 * {@link HCPHorizontalAlignment#LEFT}.
+		 *
+		 * @param alignment not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if alignment is {@code null}
+		 */
+		public Builder alignment(HCPHorizontalAlignment alignment) {
+			this.alignment = Objects.requireNonNull(alignment, "Alignment must not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the line breaking strategy, replacing any previously set value. The default is
+		 * {@link HCPLineBreaking#OPTIMAL}.
+		 *
+		 * @param breaking not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if breaking is {@code null}
+		 */
+		public Builder breaking(HCPLineBreaking breaking) {
+			this.breaking = Objects.requireNonNull(breaking, "Breaking must not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the hyphenator used to break words at the end of lines, replacing any previously set value. By default
+		 * words are not hyphenated.
+		 *
+		 * @param hyphenator not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if hyphenator is {@code null}
+		 */
+		public Builder hyphenator(HCPHyphenator hyphenator) {
+			this.hyphenator = Objects.requireNonNull(hyphenator, "Hyphenator must not be null.");
+			return this;
+		}
+
+		/**
+		 * Creates the {@link HCPParagraph}.
+		 *
+		 * @return a new {@link HCPParagraph} using the text, style and options set on this builder
+		 */
+		public HCPParagraph build() {
+			return new HCPParagraph(text, style, lineSpacing, alignment, breaking, hyphenator);
+		}
+
+	}
+
+	private static final float DEFAULT_LINE_SPACING = 1.2f;
+	private static final HCPHorizontalAlignment DEFAULT_ALIGNMENT = HCPHorizontalAlignment.LEFT;
+	private static final HCPLineBreaking DEFAULT_BREAKING = HCPLineBreaking.OPTIMAL;
+
+	// The number of widths for which line breaks are cached.
+	private static final int CACHE_SIZE = 4;
+
+	private final String text;
+	private final HCPStyle style;
+	private final float lineSpacing;
+	private final HCPHorizontalAlignment alignment;
+	private final HCPLineBreaking breaking;
+	private final HCPHyphenator hyphenator; // null if words are not hyphenated
+
+	// Measured lazily, because measuring can fail with an IOException.
+	private volatile Words words;
+	private final Lines[] cachedLines = new Lines[CACHE_SIZE];
+	private int nextCacheIndex;
+
+	/**
+	 * Creates an {@link HCPParagraph} with the specified text and style, the default line spacing of 1.2 lines, left
+	 * aligned lines, optimal line breaking and no hyphenation.
+	 *
+	 * @param text not {@code null}
+	 * @param style not {@code null}
+	 * @throws NullPointerException if text or style is {@code null}
+	 */
+	public HCPParagraph(String text, HCPStyle style) {
+		this(Objects.requireNonNull(text, "Text must not be null."), Objects.requireNonNull(style,
+			"Style must not be null."), DEFAULT_LINE_SPACING, DEFAULT_ALIGNMENT, DEFAULT_BREAKING, null);
+	}
+
+	private HCPParagraph(String text, HCPStyle style, float lineSpacing, HCPHorizontalAlignment alignment,
+		HCPLineBreaking breaking, HCPHyphenator hyphenator) {
+		this.text = text;
+		this.style = style;
+		this.lineSpacing = lineSpacing;
+		this.alignment = alignment;
+		this.breaking = breaking;
+		this.hyphenator = hyphenator;
+	}
+
+	/**
+	 * Returns the text of this paragraph.
+	 *
+	 * @return the text of this paragraph
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns the style of this paragraph.
+	 *
+	 * @return the style of this paragraph
+	 */
+	public HCPStyle getStyle() {
+		return style;
+	}
+
+	/**
+	 * Returns an {@link HCPParagraph} instance that paints the specified text, but has all other properties in common
+	 * with this instance. This method may return {@code this} instance if it already uses the specified text.
+	 *
+	 * @param text not {@code null}
+	 * @return an {@link HCPParagraph} instance that paints the specified text
+	 * @throws NullPointerException if text is {@code null}
+	 */
+	public HCPParagraph withText(String text) {
+		return this.text.equals(text) ? this : new HCPParagraph(text, style, lineSpacing, alignment, breaking,
+			hyphenator);
+	}
+
+	/**
+	 * Returns an {@link HCPParagraph} instance that uses the specified style, but has all other properties in common
+	 * with this instance. This method may return {@code this} instance if it already uses the specified style.
+	 *
+	 * @param style not {@code null}
+	 * @return an {@link HCPParagraph} instance that uses the specified style
+	 * @throws NullPointerException if style is {@code null}
+	 */
+	public HCPParagraph withStyle(HCPStyle style) {
+		return this.style.equals(style) ? this : new HCPParagraph(text, style, lineSpacing, alignment, breaking,
+			hyphenator);
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getWords().getMaxLineWidth();
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return ((getWords().getSegmentCount() - 1) * lineSpacing + 1) * style.getHeight();
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return getWords().getMaxWordWidth();
+	}
+
+	@Override
+	public float getHeight(HCPMeasureContext context, float width) throws IOException {
+		return getLayout(width).getHeight();
+	}
+
+	@Override
+	public HCPSplit split(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(width, height, false);
+	}
+
+	@Override
+	public HCPSplit forceSplit(HCPMeasureContext context, float width, float height) throws IOException {
+		return split(width, height, true);
+	}
+
+	// If the split is forced, at least the first line is returned as the head.
+	private HCPSplit split(float width, float height, boolean force) throws IOException {
+		Lines lines = getLines(width);
+		int count = lines.layout.getFittingLineCount(height);
+		if (count == 0 && force)
+			count = 1;
+		if (count >= lines.count)
+			return HCPSplit.fitting(this);
+		if (count == 0)
+			return HCPSplit.notFitting(this);
+		Words words = getWords();
+		int segment = lines.segments[count], start = lines.starts[count];
+		HCPParagraph tail = new HCPParagraph(text.substring(words.getOffset(segment, start)), style, lineSpacing,
+			alignment, breaking, hyphenator);
+		tail.words = new Words(words, segment, start);
+		return HCPSplit.create(new Head(lines.layout.getFirstLines(count), style, alignment), tail);
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		paintLines(content, getLayout(upperRightX - lowerLeftX), style, alignment, lowerLeftX, lowerLeftY, upperRightX,
+			upperRightY);
+	}
+
+	private static void paintLines(PDPageContentStream content, HCPTextLayout layout, HCPStyle style,
+		HCPHorizontalAlignment alignment, float lowerLeftX, float lowerLeftY, float upperRightX, float upperRightY)
+		throws IOException {
+		int count = Math.min(layout.getLineCount(), layout.getFittingLineCount(upperRightY - lowerLeftY));
+		if (count == 0)
+			return;
+
+		content.beginText();
+		style.apply(content);
+		float bottom = upperRightY - layout.getHeight();
+		float x = lowerLeftX;
+		float y = bottom + layout.getBaseline(0);
+		float wordSpacing = 0;
+		content.setTextTranslation(x, y);
+		for (int line = 0; line < count; line++) {
+			float lineX = Math.max(alignment.align(layout.getLineWidth(line), lowerLeftX, upperRightX), lowerLeftX);
+			float lineY = bottom + layout.getBaseline(line);
+			content.moveTextPositionByAmount(lineX - x, lineY - y);
+			if (alignment == HCPHorizontalAlignment.JUSTIFY) {
+				float spacing = layout.getWordSpacing(line, upperRightX - lowerLeftX);
+				if (spacing != wordSpacing)
+					HCPStyle.setWordSpacing(content, wordSpacing = spacing);
+			}
+			style.showText(content, layout.getLine(line));
+			x = lineX;
+			y = lineY;
+		}
+		if (wordSpacing != 0)
+			HCPStyle.setWordSpacing(content, 0);
+		content.endText();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	private Words getWords() throws IOException {
+		Words words = this.words;
+		if (words == null)
+			this.words = words = new Words(text, style, hyphenator);
+		return words;
+	}
+
+	private HCPTextLayout getLayout(float width) throws IOException {
+		return getLines(width).layout;
+	}
+
+	private Lines getLines(float width) throws IOException {
+		synchronized (cachedLines) {
+			for (int index = 0; index < CACHE_SIZE; index++)
+				if (cachedLines[index] != null && cachedLines[index].width == width)
+					return cachedLines[index];
+		}
+		Lines lines = breakLines(getWords(), width);
+		lines.layout = new HCPTextLayout(lines.texts, lines.widths, lines.stretchable, lines.count, style, lineSpacing);
+		synchronized (cachedLines) {
+			cachedLines[nextCacheIndex] = lines;
+			nextCacheIndex = (nextCacheIndex + 1) % CACHE_SIZE;
+		}
+		return lines;
+	}
+
+	private Lines breakLines(Words words, float width) {
+		Lines lines = new Lines(width, words);
+		for (int segment = 0; segment < words.segmentEnds.length; segment++) {
+			int start = segment == 0 ? 0 : words.segmentEnds[segment - 1];
+			int end = words.segmentEnds[segment];
+			if (start == end)
+				lines.add(segment, start, end);
+			else if (breaking == HCPLineBreaking.GREEDY)
+				breakGreedily(words, lines, segment, start, end);
+			else
+				breakOptimally(words, lines, segment, start, end);
+		}
+		return lines;
+	}
+
+	private void breakGreedily(Words words, Lines lines, int segment, int start, int end) {
+		while (start < end) {
+			int next = start + 1;
+			float lineWidth = words.widths[start];
+			while (next < end) {
+				float extended = lineWidth + words.getGap(next - 1) + words.widths[next];
+				if (extended + words.getHyphen(next) > lines.width)
+					break;
+				lineWidth = extended;
+				next++;
+			}
+			lines.add(segment, start, next);
+			start = next;
+		}
+	}
+
+	private void breakOptimally(Words words, Lines lines, int segment, int start, int end) {
+		int count = end - start;
+		// costs[j] is the minimal cost of the fragments [start, start + j) and breaks[j] the start of their last line.
+		float[] costs = new float[count + 1];
+		int[] breaks = new int[count + 1];
+		for (int j = 1; j <= count; j++) {
+			costs[j] = Float.POSITIVE_INFINITY;
+			float hyphen = words.getHyphen(start + j - 1);
+			float penalty = hyphen == 0 ? 0 : words.hyphenPenalty;
+			float lineWidth = hyphen;
+			for (int i = j - 1; i >= 0; i--) {
+				lineWidth += words.widths[start + i] + (i < j - 1 ? words.getGap(start + i) : 0);
+				if (lineWidth > lines.width && i < j - 1)
+					break;
+				float slack = lines.width - lineWidth;
+				float cost = costs[i] + (j == count ? 0 : slack * slack) + penalty;
+				if (cost < costs[j]) {
+					costs[j] = cost;
+					breaks[j] = i;
+				}
+			}
+		}
+		int lineCount = 0;
+		for (int j = count; j > 0; j = breaks[j])
+			lineCount++;
+		int[] ends = new int[lineCount + 1];
+		for (int j = count, line = lineCount; j > 0; j = breaks[j])
+			ends[line--] = j;
+		for (int line = 0; line < lineCount; line++)
+			lines.add(segment, start + ends[line], start + ends[line + 1]);
+	}
+
+	// The first lines of a paragraph, which are painted exactly like they are painted by the paragraph.
+	private static final class Head implements HCPElement {
+
+		private final HCPTextLayout layout;
+		private final HCPStyle style;
+		private final HCPHorizontalAlignment alignment;
+
+		Head(HCPTextLayout layout, HCPStyle style, HCPHorizontalAlignment alignment) {
+			this.layout = layout;
+			this.style = style;
+			this.alignment = alignment;
+		}
+
+		@Override
+		public float getWidth() {
+			return layout.getWidth();
+		}
+
+		@Override
+		public float getHeight() {
+			return layout.getHeight();
+		}
+
+		@Override
+		public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+			paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape
+				.getUpperRightY());
+		}
+
+		@Override
+		public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+			float upperRightY) throws IOException {
+			paintLines(content, layout, style, alignment, lowerLeftX, lowerLeftY, upperRightX, upperRightY);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			for (int line = 0; line < layout.getLineCount(); line++)
+				builder.append(line == 0 ? "" : "\n").append(layout.getLine(line));
+			return builder.toString();
+		}
+
+	}
+
+	// The words of the text divided into fragments at their hyphenation points and the widths of the fragments, which
+	// do not depend on the available width. A line can end after any fragment.
+	private static final class Words {
+
+		// The separators following each fragment.
+		private static final byte SPACE = 0, HYPHEN = 1, END = 2;
+
+		String[] fragments = new String[16];
+		final float[] widths;
+		byte[] separators = new byte[16];
+		int[] offsets = new int[16]; // The positions of the fragments in the text.
+		int count;
+		final int[] segmentEnds;
+		final int[] segmentOffsets; // The positions of the segments in the text.
+		final float[] gaps;
+		final float[] hyphens;
+		final float hyphenPenalty;
+
+		Words(String text, HCPStyle style, HCPHyphenator hyphenator) throws IOException {
+			List<Integer> segmentEnds = new ArrayList<>(), segmentOffsets = new ArrayList<>();
+			segmentOffsets.add(0);
+			int wordStart = -1;
+			for (int index = 0; index <= text.length(); index++) {
+				char c = index < text.length() ? text.charAt(index) : '\n';
+				if (c == ' ' || c == '\n') {
+					if (wordStart >= 0)
+						addWord(text.substring(wordStart, index), wordStart, hyphenator);
+					wordStart = -1;
+					if (c == '\n') {
+						int segmentStart = segmentEnds.isEmpty() ? 0 : segmentEnds.get(segmentEnds.size() - 1);
+						if (count > segmentStart)
+							separators[count - 1] = END;
+						segmentEnds.add(count);
+						if (index < text.length())
+							segmentOffsets.add(index + 1);
+					}
+				} else if (wordStart < 0) {
+					wordStart = index;
+				}
+			}
+			this.fragments = Arrays.copyOf(fragments, count);
+			this.separators = Arrays.copyOf(separators, count);
+			this.offsets = Arrays.copyOf(offsets, count);
+			this.segmentEnds = segmentEnds.stream().mapToInt(Integer::intValue).toArray();
+			this.segmentOffsets = segmentOffsets.stream().mapToInt(Integer::intValue).toArray();
+			this.widths = new float[count];
+			for (int index = 0; index < count; index++)
+				widths[index] = style.getStringWidth(fragments[index]);
+			// The kerning between a fragment and the following space, hyphen or fragment belongs to the separator.
+			float spaceWidth = style.getStringWidth(" "), hyphenWidth = style.getStringWidth("-");
+			float scale = style.getSize() / 1000;
+			this.gaps = new float[count];
+			this.hyphens = new float[count];
+			for (int index = 0; index < count; index++) {
+				String fragment = fragments[index];
+				char last = fragment.charAt(fragment.length() - 1);
+				if (separators[index] == HYPHEN)
+					hyphens[index] = hyphenWidth + style.getKerning(last, '-') * scale;
+				if (separators[index] == END || index + 1 == count)
+					continue;
+				char next = fragments[index + 1].charAt(0);
+				if (separators[index] == SPACE)
+					gaps[index] = spaceWidth + (style.getKerning(last, ' ') + style.getKerning(' ', next)) * scale;
+				else
+					gaps[index] = style.getKerning(last, next) * scale;
+			}
+			this.hyphenPenalty = style.getSize() * style.getSize();
+		}
+
+		// Creates the words of the rest of the text, which starts at the specified fragment of the specified segment.
+		Words(Words words, int segment, int start) {
+			int offset = words.getOffset(segment, start);
+			this.count = words.count - start;
+			this.fragments = Arrays.copyOfRange(words.fragments, start, words.count);
+			this.widths = Arrays.copyOfRange(words.widths, start, words.count);
+			this.separators = Arrays.copyOfRange(words.separators, start, words.count);
+			this.gaps = Arrays.copyOfRange(words.gaps, start, words.count);
+			this.hyphens = Arrays.copyOfRange(words.hyphens, start, words.count);
+			this.offsets = new int[count];
+			for (int index = 0; index < count; index++)
+				offsets[index] = words.offsets[start + index] - offset;
+			int segmentCount = words.segmentEnds.length - segment;
+			this.segmentEnds = new int[segmentCount];
+			this.segmentOffsets = new int[segmentCount];
+			for (int index = 0; index < segmentCount; index++) {
+				segmentEnds[index] = words.segmentEnds[segment + index] - start;
+				segmentOffsets[index] = Math.max(0, words.segmentOffsets[segment + index] - offset);
+			}
+			this.hyphenPenalty = words.hyphenPenalty;
+		}
+
+		private void addWord(String word, int offset, HCPHyphenator hyphenator) {
+			int start = 0;
+			if (hyphenator != null) {
+				for (int point : hyphenator.getPoints(word)) {
+					addFragment(word.substring(start, point), HYPHEN, offset + start);
+					start = point;
+				}
+			}
+			addFragment(start == 0 ? word : word.substring(start), SPACE, offset + start);
+		}
+
+		private void addFragment(String fragment, byte separator, int offset) {
+			if (count == fragments.length) {
+				fragments = Arrays.copyOf(fragments, 2 * count);
+				separators = Arrays.copyOf(separators, 2 * count);
+				offsets = Arrays.copyOf(offsets, 2 * count);
+			}
+			fragments[count] = fragment;
+			separators[count] = separator;
+			offsets[count] = offset;
+			count++;
+		}
+
+		// Returns the position in the text of a line starting at the specified fragment of the specified segment.
+		int getOffset(int segment, int start) {
+			return start < segmentEnds[segment] ? offsets[start] : segmentOffsets[segment];
+		}
+
+		int getSegmentCount() {
+			return segmentEnds.length;
+		}
+
+		// Returns the width between the specified fragment and the next one if they are on the same line.
+		float getGap(int fragment) {
+			return gaps[fragment];
+		}
+
+		// Returns the width added at the end of a line which ends with the specified fragment.
+		float getHyphen(int fragment) {
+			return hyphens[fragment];
+		}
+
+		float getMaxWordWidth() {
+			float max = 0;
+			for (int index = 0; index < count; index++)
+				max = Math.max(max, widths[index] + getHyphen(index));
+			return max;
+		}
+
+		float getMaxLineWidth() {
+			float max = 0;
+			for (int segment = 0; segment < segmentEnds.length; segment++) {
+				int start = segment == 0 ? 0 : segmentEnds[segment - 1];
+				max = Math.max(max, getLineWidth(start, segmentEnds[segment]));
+			}
+			return max;
+		}
+
+		float getLineWidth(int start, int end) {
+			if (start == end)
+				return 0;
+			float width = getHyphen(end - 1);
+			for (int index = start; index < end; index++)
+				width += widths[index] + (index < end - 1 ? getGap(index) : 0);
+			return width;
+		}
+
+		String getLineText(int start, int end) {
+			StringBuilder builder = new StringBuilder();
+			for (int index = start; index < end; index++) {
+				builder.append(fragments[index]);
+				if (index < end - 1 ? separators[index] == SPACE : separators[index] == HYPHEN)
+					builder.append(index < end - 1 ? ' ' : '-');
+			}
+			return builder.toString();
+		}
+
+	}
+
+	// The lines of the text at a specific width.
+	private static final class Lines {
+
+		final float width;
+		final Words words;
+		int count;
+		String[] texts = new String[4];
+		float[] widths = new float[4];
+		boolean[] stretchable = new boolean[4];
+		int[] segments = new int[4], starts = new int[4]; // Where the lines start, so that the text can be split.
+		HCPTextLayout layout; // Created after all lines have been added.
+
+		Lines(float width, Words words) {
+			this.width = width;
+			this.words = words;
+		}
+
+		void add(int segment, int start, int end) {
+			if (count == texts.length) {
+				texts = Arrays.copyOf(texts, 2 * count);
+				widths = Arrays.copyOf(widths, 2 * count);
+				stretchable = Arrays.copyOf(stretchable, 2 * count);
+				segments = Arrays.copyOf(segments, 2 * count);
+				starts = Arrays.copyOf(starts, 2 * count);
+			}
+			texts[count] = words.getLineText(start, end);
+			widths[count] = words.getLineWidth(start, end);
+			stretchable[count] = start < end && words.separators[end - 1] != Words.END;
+			segments[count] = segment;
+			starts[count] = start;
+			count++;
+		}
+
+	}
+
+}
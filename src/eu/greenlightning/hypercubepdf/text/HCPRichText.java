@@ -0,0 +1,193 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+
+/**
+ * A text element which paints a single line of text consisting of runs with different styles, for example a bold word
+ * or a colored number within regular text.
+ * <p>
+ * All runs are painted in a single text object. The runs are placed one after another on a common baseline simply by
+ * showing their text, so no positioning operators are needed between them. The font is only set again when the font or
+ * size changes from one run to the next, and the color is only set again when the color changes. Adjacent runs with
+ * equal styles are merged when the element is built.
+ * <p>
+ * The width of the element is the sum of the widths of the runs. Its height is the distance between the lowest descent
+ * and the highest top of the styles of all runs, so that texts with different sizes share the same baseline. The text
+ * is centered vertically and aligned horizontally using an {@link HCPHorizontalAlignment}.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPRichText implements HCPElement {
+
+	/**
+	 * Creates a new builder for a rich text without any runs.
+	 *
+	 * @return a new builder for an {@link HCPRichText}
+	 */
+	public static Builder create() {
+		return new Builder();
+	}
+
+	/**
+	 * Mutable class used to construct {@link HCPRichText} instances.
+	 *
+	 * @author Green Lightning
+	 */
+	public static final class Builder {
+
+		private final List<String> texts = new ArrayList<>();
+		private final List<HCPStyle> styles = new ArrayList<>();
+		private HCPHorizontalAlignment alignment = DEFAULT_ALIGNMENT;
+
+		// Hide the constructor.
+		private Builder() {}
+
+		/**
+		 * Appends a run with the specified text and style. If the style is equal to the style of the previous run, the
+		 * text is appended to the previous run. Empty texts are ignored.
+		 *
+		 * @param text not {@code null}; line breaks are not supported
+		 * @param style not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if text or style is {@code null}
+		 */
+		public Builder add(String text, HCPStyle style) {
+			Objects.requireNonNull(text, "Text must not be null.");
+			Objects.requireNonNull(style, "Style must not be null.");
+			if (text.isEmpty())
+				return this;
+			int last = texts.size() - 1;
+			if (last >= 0 && styles.get(last).equals(style))
+				texts.set(last, texts.get(last) + text);
+			else {
+				texts.add(text);
+				styles.add(style);
+			}
+			return this;
+		}
+
+		/**
+		 * Sets the horizontal alignment of the text, replacing any previously set value. The default is
+		 * {@link HCPHorizontalAlignment#LEFT}.
+		 *
+		 * @param alignment not {@code null}
+		 * @return this builder for chaining
+		 * @throws NullPointerException if alignment is {@code null}
+		 */
+		public Builder alignment(HCPHorizontalAlignment alignment) {
+			this.alignment = Objects.requireNonNull(alignment, "Alignment must not be null.");
+			return this;
+		}
+
+		/**
+		 * Creates the {@link HCPRichText}.
+		 *
+		 * @return a new {@link HCPRichText} using the runs and alignment set on this builder
+		 */
+		public HCPRichText build() {
+			return new HCPRichText(texts.toArray(new String[texts.size()]), styles.toArray(new HCPStyle[styles
+				.size()]), alignment);
+		}
+
+	}
+
+	private static final HCPHorizontalAlignment DEFAULT_ALIGNMENT = HCPHorizontalAlignment.LEFT;
+
+	private final String[] texts;
+	private final HCPStyle[] styles;
+	private final HCPHorizontalAlignment alignment;
+
+	// Measured lazily, because measuring can fail with an IOException.
+	private volatile float width = Float.NaN;
+
+	private HCPRichText(String[] texts, HCPStyle[] styles, HCPHorizontalAlignment alignment) {
+		this.texts = texts;
+		this.styles = styles;
+		this.alignment = alignment;
+	}
+
+	/**
+	 * Returns the text of all runs without any styles.
+	 *
+	 * @return the concatenated text of all runs
+	 */
+	public String getText() {
+		return String.join("", texts);
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		float width = this.width;
+		if (Float.isNaN(width)) {
+			width = 0;
+			for (int run = 0; run < texts.length; run++)
+				width += styles[run].getStringWidth(texts[run]);
+			this.width = width;
+		}
+		return width;
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return getBelowBaseline() + getAboveBaseline();
+	}
+
+	private float getBelowBaseline() {
+		float below = 0;
+		for (HCPStyle style : styles)
+			below = Math.max(below, -style.getDescent());
+		return below;
+	}
+
+	private float getAboveBaseline() throws IOException {
+		float above = 0;
+		for (HCPStyle style : styles)
+			above = Math.max(above, style.getHeight() + style.getDescent());
+		return above;
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		if (texts.length == 0)
+			return;
+		float below = getBelowBaseline();
+		float x = alignment.align(getWidth(), lowerLeftX, upperRightX);
+		float y = lowerLeftY + (upperRightY - lowerLeftY - below - getAboveBaseline()) / 2 + below;
+		content.beginText();
+		content.setTextTranslation(x, y);
+		HCPStyle current = null;
+		for (int run = 0; run < texts.length; run++) {
+			HCPStyle style = styles[run];
+			if (current == null || !current.getFont().equals(style.getFont()) || current.getSize() != style.getSize())
+				content.setFont(style.getFont(), style.getSize());
+			if (current == null || !current.getColor().equals(style.getColor()))
+				content.setNonStrokingColor(style.getColor());
+			style.showText(content, texts[run]);
+			current = style;
+		}
+		content.endText();
+	}
+
+	@Override
+	public String toString() {
+		return getText();
+	}
+
+}
@@ -31,12 +31,12 @@ public class HCPSideText extends HCPText {
 
 	@Override
 	public float getWidth() throws IOException {
-		return style.getHeight();
+		return getLayout().getHeight();
 	}
 
 	@Override
 	public float getHeight() throws IOException {
-		return style.getStringWidth(text);
+		return getLayout().getWidth();
 	}
 
 	@Override
@@ -44,7 +44,7 @@ public class HCPSideText extends HCPText {
 		content.beginText();
 		style.apply(content);
 		content.setTextRotation(Math.PI / 2, x + getWidth() + style.getDescent(), y);
-		content.drawString(text);
+		style.showText(content, text);
 		content.endText();
 	}
 
@@ -0,0 +1,132 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * A bounded cache of the string widths of a font which is measured by PDFBox, because its widths cannot be stored in a
+ * table of advance widths (see {@link HCPFontMetrics}). Short strings which are repeated many times (for example
+ * numbers, currencies or status labels in large tables) are then only measured once. Simple fonts are not cached,
+ * because summing their advance widths is faster than looking up a string.
+ * <p>
+ * Each font has its own cache, which is owned by the metrics of the font. The cache therefore does not keep the font
+ * reachable and is garbage collected together with the font. Only strings of up to {@link #MAXIMUM_LENGTH} characters
+ * are cached, because longer strings are rarely repeated. When the cache is full the least recently used entry is
+ * evicted.
+ * <p>
+ * The cache is divided into independently locked stripes, so that texts can be measured from multiple threads with
+ * little contention. The numbers of hits and misses are counted, so that the effectiveness of the cache can be
+ * monitored through the styles using the font (see {@link HCPStyle#getWidthCacheHitCount()}).
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Green Lightning
+ */
+final class HCPStringWidthCache {
+
+	/** The maximum number of entries of each cache. */
+	static final int CAPACITY = 4096;
+
+	/** The length of the longest string which is cached. */
+	static final int MAXIMUM_LENGTH = 64;
+
+	private static final int STRIPE_COUNT = 16;
+
+	private final PDFont font;
+	private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates an empty cache for the specified font.
+	 *
+	 * @param font not {@code null}
+	 */
+	HCPStringWidthCache(PDFont font) {
+		this.font = font;
+		for (int index = 0; index < STRIPE_COUNT; index++)
+			stripes[index] = new Stripe(CAPACITY / STRIPE_COUNT);
+	}
+
+	/**
+	 * Returns the width of the specified text in glyph space units, measuring it using the font if it has not been
+	 * cached yet.
+	 *
+	 * @param text not {@code null}
+	 * @return the width in glyph space units
+	 * @throws NullPointerException if text is {@code null}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	float getStringWidth(String text) throws IOException {
+		if (text.length() > MAXIMUM_LENGTH)
+			return measure(text);
+		Stripe stripe = getStripe(text);
+		Float width;
+		synchronized (stripe) {
+			width = stripe.get(text);
+		}
+		if (width != null) {
+			hits.increment();
+			return width;
+		}
+		misses.increment();
+		float measured = measure(text);
+		synchronized (stripe) {
+			stripe.put(text, measured);
+		}
+		return measured;
+	}
+
+	// PDFBox caches font metrics without synchronization.
+	private float measure(String text) throws IOException {
+		synchronized (font) {
+			return font.getStringWidth(text);
+		}
+	}
+
+	private Stripe getStripe(String text) {
+		int hash = text.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+	}
+
+	/**
+	 * Returns the number of times a width has been found in this cache since it has been created.
+	 *
+	 * @return the number of hits
+	 */
+	long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of times a width has not been found in this cache (and has been measured) since it has been
+	 * created. Strings which are too long to be cached are not counted.
+	 *
+	 * @return the number of misses
+	 */
+	long getMissCount() {
+		return misses.sum();
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Stripe extends LinkedHashMap<String, Float> {
+
+		private final int capacity;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+			return size() > capacity;
+		}
+
+	}
+
+}
@@ -1,26 +1,60 @@
 package eu.greenlightning.hypercubepdf.text;
 
 import java.awt.Color;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
+import org.apache.pdfbox.cos.COSString;
 import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
 
 import eu.greenlightning.hypercubepdf.HCPUnits;
 
 /**
  * A style for text consisting of the font, size and color to use when painting the text.
  * <p>
+ * The metrics of the font are read once and shared by all styles using the same font. Each style only scales them by
+ * its size, so that measuring a string is a simple loop over a table of advance widths for most fonts. Texts using the
+ * same font can be measured from multiple threads at the same time. For fonts which cannot be measured with such a
+ * table, the widths of short strings are cached per font instead.
+ * <p>
+ * A style can have fallback fonts, which are used for characters the font of the style cannot show. The characters
+ * each font can show are determined once per font and stored in a bit set. Texts are divided into runs of characters
+ * using the same font in a single pass, and each run is measured and shown separately (see
+ * {@link #showText(PDPageContentStream, String)}). Characters which no font can show are shown with the font of the
+ * style as a question mark, so that the rest of the text is not affected. Fallbacks can only cover the characters of
+ * their encoding: the WinAnsiEncoding for the standard fonts and fonts loaded by PDFBox and the built-in encodings for
+ * {@link PDType1Font#SYMBOL} and {@link PDType1Font#ZAPF_DINGBATS}. These two fonts are replaced by fonts using their
+ * built-in encodings when they are used by a style, so that, for example, Greek letters and mathematical symbols can
+ * be shown using Symbol as a fallback.
+ * <p>
+ * A style can also apply the kerning pairs of its fonts (see {@link #withKerning(boolean)}), which are loaded once per
+ * font into a primitive hash table. Kerned texts are measured including the adjustments and each run is shown with a
+ * single {@code TJ} operator, whose array contains the adjustments between the strings of the run.
+ * <p>
  * This class is immutable.
  *
  * @author Green Lightning
  */
 public class HCPStyle {
 
+	private static final PDFont[] NO_FALLBACKS = new PDFont[0];
+
 	private final PDFont font;
 	private final float size;
 	private final Color color;
+	private final HCPFontMetrics metrics;
+	private final PDFont[] fallbacks;
+	private final HCPFontMetrics[] fallbackMetrics;
+	private final boolean kerning;
 
 	/**
 	 * Constructs a style with black color and the specified font and size.
@@ -44,15 +78,26 @@ public class HCPStyle {
 	 * @throws IllegalArgumentException if size {@literal < 1}
 	 */
 	public HCPStyle(PDFont font, float size, Color color) {
-		this.font = Objects.requireNonNull(font, "Font must not be null.");
+		this(font, size, color, NO_FALLBACKS, false);
+	}
+
+	private HCPStyle(PDFont font, float size, Color color, PDFont[] fallbacks, boolean kerning) {
+		this.font = HCPSymbolFonts.replace(Objects.requireNonNull(font, "Font must not be null."));
 		if (size < 1)
 			throw new IllegalArgumentException("Size must be greater or equal to one, but was " + size + ".");
 		this.size = size;
 		this.color = Objects.requireNonNull(color, "Color must not be null.");
+		this.metrics = HCPFontMetrics.getInstance(this.font);
+		this.fallbacks = fallbacks;
+		this.fallbackMetrics = new HCPFontMetrics[fallbacks.length];
+		for (int index = 0; index < fallbacks.length; index++)
+			fallbackMetrics[index] = HCPFontMetrics.getInstance(fallbacks[index]);
+		this.kerning = kerning;
 	}
 
 	/**
-	 * Returns the font of this style.
+	 * Returns the font of this style. For {@link PDType1Font#SYMBOL} and {@link PDType1Font#ZAPF_DINGBATS} this is a
+	 * font using their built-in encoding (see the description of this class).
 	 * 
 	 * @return the font of this style
 	 */
@@ -78,6 +123,24 @@ public class HCPStyle {
 		return color;
 	}
 
+	/**
+	 * Returns the fallback fonts of this style in the order in which they are tried.
+	 * 
+	 * @return an unmodifiable list of the fallback fonts; may be empty
+	 */
+	public List<PDFont> getFallbacks() {
+		return Collections.unmodifiableList(Arrays.asList(fallbacks));
+	}
+
+	/**
+	 * Returns whether this style applies the kerning pairs of its fonts.
+	 * 
+	 * @return {@code true} if texts are kerned
+	 */
+	public boolean isKerning() {
+		return kerning;
+	}
+
 	/**
 	 * Returns an {@link HCPStyle} instance that uses the specified font, but has all other properties in common
 	 * with this instance. This method may return {@code this} instance if it already uses the specified font.
@@ -87,7 +150,8 @@ public class HCPStyle {
 	 * @throws NullPointerException if font is {@code null}
 	 */
 	public HCPStyle withFont(PDFont font) {
-		return this.font.equals(font) ? this : new HCPStyle(font, size, color);
+		return this.font.equals(HCPSymbolFonts.replace(font)) ? this : new HCPStyle(font, size, color, fallbacks,
+			kerning);
 	}
 
 	/**
@@ -99,7 +163,7 @@ public class HCPStyle {
 	 * @throws IllegalArgumentException if size {@literal < 1}
 	 */
 	public HCPStyle withSize(float size) {
-		return this.size == size ? this : new HCPStyle(font, size, color);
+		return this.size == size ? this : new HCPStyle(font, size, color, fallbacks, kerning);
 	}
 
 	/**
@@ -111,7 +175,38 @@ public class HCPStyle {
 	 * @throws NullPointerException if color is {@code null}
 	 */
 	public HCPStyle withColor(Color color) {
-		return this.color.equals(color) ? this : new HCPStyle(font, size, color);
+		return this.color.equals(color) ? this : new HCPStyle(font, size, color, fallbacks, kerning);
+	}
+
+	/**
+	 * Returns an {@link HCPStyle} instance that uses the specified fallback fonts, but has all other properties in
+	 * common with this instance. The fallback fonts are tried in the specified order for characters which the font of
+	 * the style cannot show.
+	 * 
+	 * @param fallbacks not {@code null}; must not contain {@code null}
+	 * @return an {@link HCPStyle} instance that uses the specified fallback fonts
+	 * @throws NullPointerException if fallbacks is or contains {@code null}
+	 */
+	public HCPStyle withFallbacks(PDFont... fallbacks) {
+		PDFont[] replaced = new PDFont[fallbacks.length];
+		for (int index = 0; index < fallbacks.length; index++)
+			replaced[index] = HCPSymbolFonts.replace(Objects.requireNonNull(fallbacks[index],
+				"Fallbacks must not contain null."));
+		if (Arrays.equals(this.fallbacks, replaced))
+			return this;
+		return new HCPStyle(font, size, color, replaced.length == 0 ? NO_FALLBACKS : replaced, kerning);
+	}
+
+	/**
+	 * Returns an {@link HCPStyle} instance that applies or ignores the kerning pairs of its fonts, but has all other
+	 * properties in common with this instance. This method may return {@code this} instance if it already has the
+	 * specified kerning setting. Kerning is disabled by default.
+	 * 
+	 * @param kerning whether texts should be kerned
+	 * @return an {@link HCPStyle} instance with the specified kerning setting
+	 */
+	public HCPStyle withKerning(boolean kerning) {
+		return this.kerning == kerning ? this : new HCPStyle(font, size, color, fallbacks, kerning);
 	}
 
 	/**
@@ -126,6 +221,119 @@ public class HCPStyle {
 		content.setFont(font, size);
 	}
 
+	/**
+	 * Shows the specified text using this style. The font of this style must be the current font of the stream (see
+	 * {@link #apply(PDPageContentStream)}). If the text contains characters which are shown with fallback fonts, the
+	 * font is changed for these characters and the font of this style is restored afterwards. If this style applies
+	 * kerning, each run of characters is shown with a single {@code TJ} operator.
+	 * 
+	 * @param content the stream to write to; not {@code null}
+	 * @param text not {@code null}
+	 * @throws IOException if an IO error occurs while writing to the stream
+	 */
+	public void showText(PDPageContentStream content, String text) throws IOException {
+		showText(content, text, size);
+	}
+
+	// Used by text elements which paint text at a different size than the style.
+	void showText(PDPageContentStream content, String text, float size) throws IOException {
+		if (fallbacks.length == 0) {
+			showRun(content, metrics, text);
+			return;
+		}
+		int[] current = { 0 };
+		forEachRun(text, (index, run) -> {
+			if (index != current[0])
+				content.setFont(getFont(index), size);
+			showRun(content, getMetrics(index), run);
+			current[0] = index;
+		});
+		if (current[0] != 0)
+			content.setFont(font, size);
+	}
+
+	// Shows a run encoded for its font, including the kerning adjustments if there are any.
+	private void showRun(PDPageContentStream content, HCPFontMetrics metrics, String run) throws IOException {
+		// Encoding does not change the length, so the indices of the run also apply to the codes.
+		String codes = metrics.encode(run);
+		ByteArrayOutputStream array = null;
+		int start = 0;
+		for (int index = 1; kerning && index < run.length(); index++) {
+			float adjustment = metrics.getKerning(run.charAt(index - 1), run.charAt(index));
+			if (adjustment == 0)
+				continue;
+			if (array == null) {
+				array = new ByteArrayOutputStream();
+				array.write('[');
+			}
+			new COSString(codes.substring(start, index)).writePDF(array);
+			// Positive numbers in a TJ array move the next glyph to the left.
+			array.write(formatNumber(-adjustment).getBytes(StandardCharsets.ISO_8859_1));
+			start = index;
+		}
+		if (array == null) {
+			content.drawString(codes);
+			return;
+		}
+		new COSString(codes.substring(start)).writePDF(array);
+		array.write("] TJ\n".getBytes(StandardCharsets.ISO_8859_1));
+		content.appendRawCommands(array.toByteArray());
+	}
+
+	// Sets the word spacing (Tw), which is added to the width of every space shown afterwards. The word spacing is part
+	// of the graphics state and must be reset to zero after painting justified text.
+	static void setWordSpacing(PDPageContentStream content, float spacing) throws IOException {
+		content.appendRawCommands(formatNumber(spacing) + " Tw\n");
+	}
+
+	private static String formatNumber(float value) {
+		int rounded = Math.round(value);
+		if (rounded == value)
+			return Integer.toString(rounded);
+		return new BigDecimal(value).setScale(3, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+	}
+
+	// Divides the text into runs of characters which are shown with the same font.
+	private void forEachRun(String text, RunConsumer consumer) throws IOException {
+		StringBuilder run = new StringBuilder();
+		int runFont = 0;
+		for (int index = 0; index < text.length(); index++) {
+			char c = text.charAt(index);
+			int font = selectFont(c);
+			if (font != runFont && run.length() > 0) {
+				consumer.accept(runFont, run.toString());
+				run.setLength(0);
+			}
+			runFont = font;
+			run.append(c);
+		}
+		if (run.length() > 0)
+			consumer.accept(runFont, run.toString());
+	}
+
+	@FunctionalInterface
+	private static interface RunConsumer {
+		void accept(int font, String run) throws IOException;
+	}
+
+	// Returns 0 for the font of this style and i + 1 for the fallback i.
+	private int selectFont(char c) {
+		if (metrics.covers(c))
+			return 0;
+		for (int index = 0; index < fallbacks.length; index++)
+			if (fallbackMetrics[index].covers(c))
+				return index + 1;
+		return 0;
+	}
+
+	private PDFont getFont(int index) {
+		return index == 0 ? font : fallbacks[index - 1];
+	}
+
+	private HCPFontMetrics getMetrics(int index) {
+		return index == 0 ? metrics : fallbackMetrics[index - 1];
+	}
+
 	/**
 	 * Calculates the ascent of this style in default user space units.
 	 * 
@@ -133,7 +341,7 @@ public class HCPStyle {
 	 * @see HCPUnits Default User Space
 	 */
 	public float getAscent() {
-		return font.getFontDescriptor().getAscent() * size / 1000;
+		return metrics.getAscent() * size / 1000;
 	}
 
 	/**
@@ -143,7 +351,7 @@ public class HCPStyle {
 	 * @see HCPUnits Default User Space
 	 */
 	public float getDescent() {
-		return font.getFontDescriptor().getDescent() * size / 1000;
+		return metrics.getDescent() * size / 1000;
 	}
 
 	/**
@@ -156,7 +364,39 @@ public class HCPStyle {
 	 * @see HCPUnits Default User Space
 	 */
 	public float getStringWidth(String text) throws IOException {
-		return font.getStringWidth(text) * size / 1000;
+		if (fallbacks.length == 0) {
+			float width = metrics.getStringWidth(text);
+			return (kerning ? width + metrics.getKerning(text) : width) * size / 1000;
+		}
+		float[] width = { 0 };
+		forEachRun(text, (index, run) -> {
+			HCPFontMetrics metrics = getMetrics(index);
+			width[0] += metrics.getStringWidth(run);
+			if (kerning)
+				width[0] += metrics.getKerning(run);
+		});
+		return width[0] * size / 1000;
+	}
+
+	// Returns the advance width of the specified character in glyph space units, for text elements which need the
+	// widths of individual characters.
+	float getAdvance(char c) throws IOException {
+		if (fallbacks.length == 0)
+			return metrics.getAdvance(c);
+		return getMetrics(selectFont(c)).getAdvance(c);
+	}
+
+	// Returns the kerning adjustment between two adjacent characters in glyph space units, for text elements which
+	// measure characters individually. Characters shown with different fonts are not kerned.
+	float getKerning(char first, char second) {
+		if (!kerning)
+			return 0;
+		if (fallbacks.length == 0)
+			return metrics.getKerning(first, second);
+		int font = selectFont(first);
+		if (font != selectFont(second))
+			return 0;
+		return getMetrics(font).getKerning(first, second);
 	}
 
 	/**
@@ -166,7 +406,30 @@ public class HCPStyle {
 	 * @throws IOException if there is an error calculating the height
 	 */
 	public float getHeight() throws IOException {
-		return font.getFontBoundingBox().getHeight() * size / 1000;
+		return metrics.getHeight() * size / 1000;
+	}
+
+	/**
+	 * Returns the number of times the width of a string has been found in the width cache of the font of this style.
+	 * The cache and its counts are shared by all styles using the same font. Fonts which are measured with a table of
+	 * advance widths (see the description of this class) are not cached and always return 0. Together with
+	 * {@link #getWidthCacheMissCount()} this allows monitoring how effective the cache is for the texts of a document.
+	 *
+	 * @return the number of hits since the font has first been used
+	 */
+	public long getWidthCacheHitCount() {
+		return metrics.getWidthCacheHitCount();
+	}
+
+	/**
+	 * Returns the number of times the width of a string has not been found in the width cache of the font of this
+	 * style and has been measured (see {@link #getWidthCacheHitCount()}). Strings which are too long to be cached are
+	 * not counted.
+	 *
+	 * @return the number of misses since the font has first been used
+	 */
+	public long getWidthCacheMissCount() {
+		return metrics.getWidthCacheMissCount();
 	}
 
 	@Override
@@ -182,6 +445,10 @@ public class HCPStyle {
 			return false;
 		if (!font.equals(style.getFont()))
 			return false;
+		if (!Arrays.equals(fallbacks, style.fallbacks))
+			return false;
+		if (kerning != style.kerning)
+			return false;
 		return true;
 	}
 
@@ -191,6 +458,8 @@ public class HCPStyle {
 		result = 31 * result + Float.floatToIntBits(size);
 		result = 31 * result + color.hashCode();
 		result = 31 * result + font.hashCode();
+		result = 31 * result + Arrays.hashCode(fallbacks);
+		result = 31 * result + (kerning ? 1 : 0);
 		return result;
 	}
 
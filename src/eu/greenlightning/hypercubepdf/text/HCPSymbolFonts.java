@@ -0,0 +1,112 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * The standard symbolic fonts Symbol and ZapfDingbats with their built-in encodings.
+ * <p>
+ * PDFBox creates {@link PDType1Font#SYMBOL} and {@link PDType1Font#ZAPF_DINGBATS} with the WinAnsiEncoding, which does
+ * not describe the glyphs of these fonts, and it does not map the glyph names of their built-in encodings to the
+ * characters they show. This class provides fonts without an {@code /Encoding} entry instead, so that viewers and
+ * PDFBox use the built-in encodings, together with the character shown by each code, taken from the Unicode mappings
+ * of the two encodings. Codes of glyphs which only have private-use characters are not mapped.
+ *
+ * @author Green Lightning
+ */
+final class HCPSymbolFonts {
+
+	private static final PDType1Font SYMBOL = create("Symbol");
+	private static final PDType1Font ZAPF_DINGBATS = create("ZapfDingbats");
+
+	private static final char[] SYMBOL_CHARACTERS = new char[256];
+	private static final char[] ZAPF_DINGBATS_CHARACTERS = new char[256];
+
+	static {
+		char[] symbol = SYMBOL_CHARACTERS;
+		map(symbol, 0x20, " !\u2200#\u2203%&\u220B()\u2217+,\u2212."
+			+ "/0123456789:;<=>?");
+		map(symbol, 0x40, "\u2245\u0391\u0392\u03A7\u0394\u0395\u03A6\u0393\u0397\u0399\u03D1\u039A\u039B\u039C\u039D"
+			+ "\u039F\u03A0\u0398\u03A1\u03A3\u03A4\u03A5\u03C2\u03A9\u039E\u03A8\u0396[\u2234]\u22A5_");
+		map(symbol, 0x61, "\u03B1\u03B2\u03C7\u03B4\u03B5\u03C6\u03B3\u03B7\u03B9\u03D5\u03BA\u03BB\u03BC\u03BD\u03BF"
+			+ "\u03C0\u03B8\u03C1\u03C3\u03C4\u03C5\u03D6\u03C9\u03BE\u03C8\u03B6{|}\u223C");
+		map(symbol, 0xA0, "\u20AC\u03D2\u2032\u2264\u2044\u221E\u0192\u2663\u2666\u2665\u2660\u2194\u2190\u2191\u2192"
+			+ "\u2193\u00B0\u00B1\u2033\u2265\u00D7\u221D\u2202\u2022\u00F7\u2260\u2261\u2248\u2026");
+		map(symbol, 0xBF, "\u21B5\u2135\u2111\u211C\u2118\u2297\u2295\u2205\u2229\u222A\u2283\u2287\u2284\u2282\u2286"
+			+ "\u2208\u2209\u2220\u2207");
+		map(symbol, 0xD5, "\u220F\u221A\u22C5\u00AC\u2227\u2228\u21D4\u21D0\u21D1\u21D2\u21D3\u25CA\u2329");
+		map(symbol, 0xE5, "\u2211");
+		map(symbol, 0xF1, "\u232A\u222B\u2320");
+		map(symbol, 0xF5, "\u2321");
+
+		char[] dingbats = ZAPF_DINGBATS_CHARACTERS;
+		map(dingbats, 0x20, " \u2701\u2702\u2703\u2704\u260E\u2706\u2707\u2708\u2709\u261B\u261E");
+		mapRange(dingbats, 0x2C, 0x7E, 0x270C);
+		map(dingbats, 0x48, "\u2605");
+		map(dingbats, 0x6C, "\u25CF");
+		map(dingbats, 0x6E, "\u25A0");
+		map(dingbats, 0x73, "\u25B2\u25BC\u25C6");
+		map(dingbats, 0x77, "\u25D7");
+		mapRange(dingbats, 0x80, 0x8D, 0x2768);
+		mapRange(dingbats, 0xA1, 0xA7, 0x2761);
+		map(dingbats, 0xA8, "\u2663\u2666\u2665\u2660");
+		mapRange(dingbats, 0xAC, 0xB5, 0x2460);
+		mapRange(dingbats, 0xB6, 0xD4, 0x2776);
+		map(dingbats, 0xD5, "\u2192\u2194\u2195");
+		mapRange(dingbats, 0xD8, 0xEF, 0x2798);
+		mapRange(dingbats, 0xF1, 0xFE, 0x27B1);
+	}
+
+	// Hide the constructor.
+	private HCPSymbolFonts() {}
+
+	private static PDType1Font create(String baseFont) {
+		COSDictionary dictionary = new COSDictionary();
+		dictionary.setItem(COSName.TYPE, COSName.FONT);
+		dictionary.setItem(COSName.SUBTYPE, COSName.TYPE1);
+		dictionary.setName(COSName.BASE_FONT, baseFont);
+		return new PDType1Font(dictionary);
+	}
+
+	private static void map(char[] characters, int firstCode, String mapped) {
+		mapped.getChars(0, mapped.length(), characters, firstCode);
+	}
+
+	private static void mapRange(char[] characters, int firstCode, int lastCode, int firstCharacter) {
+		for (int code = firstCode; code <= lastCode; code++)
+			characters[code] = (char) (firstCharacter + code - firstCode);
+	}
+
+	/**
+	 * Returns the font which should be used instead of the specified font. This is a font using its built-in encoding
+	 * for {@link PDType1Font#SYMBOL} and {@link PDType1Font#ZAPF_DINGBATS} and the specified font otherwise.
+	 *
+	 * @param font not {@code null}
+	 * @return the font to use
+	 */
+	static PDFont replace(PDFont font) {
+		if (font == PDType1Font.SYMBOL)
+			return SYMBOL;
+		if (font == PDType1Font.ZAPF_DINGBATS)
+			return ZAPF_DINGBATS;
+		return font;
+	}
+
+	/**
+	 * Returns the characters shown by the codes of the specified font if it is one of the fonts returned by
+	 * {@link #replace(PDFont)} for a symbolic font.
+	 *
+	 * @param font not {@code null}
+	 * @return an array of the character of each code, 0 for unmapped codes; {@code null} for other fonts
+	 */
+	static char[] getCharacters(PDFont font) {
+		if (font == SYMBOL)
+			return SYMBOL_CHARACTERS;
+		if (font == ZAPF_DINGBATS)
+			return ZAPF_DINGBATS_CHARACTERS;
+		return null;
+	}
+
+}
@@ -12,6 +12,10 @@ import eu.greenlightning.hypercubepdf.HCPElement;
 /**
  * Base class for text elements. The text is always painted in the center of the element.
  * <p>
+ * The text is laid out only once, when it is first measured or painted, and the resulting {@link HCPTextLayout} is
+ * kept by the element. By default the text is laid out as a single line and the size of the element is the size of
+ * the layout.
+ * <p>
  * This class is immutable.
  *
  * @author Green Lightning
@@ -30,6 +34,9 @@ public abstract class HCPText implements HCPElement {
 	 */
 	protected final HCPStyle style;
 
+	// Created lazily, because measuring can fail with an IOException.
+	private volatile HCPTextLayout layout;
+
 	/**
 	 * Creates a new {@link HCPText} instance using the specified text and style.
 	 * 
@@ -77,10 +84,51 @@ public abstract class HCPText implements HCPElement {
 	 */
 	protected abstract HCPText createInstance(String text, HCPStyle style);
 
+	/**
+	 * Returns the layout of the text of this element, creating it the first time this method is called.
+	 * 
+	 * @return the layout of the text; not {@code null}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	protected final HCPTextLayout getLayout() throws IOException {
+		HCPTextLayout layout = this.layout;
+		if (layout == null)
+			this.layout = layout = createLayout();
+		return layout;
+	}
+
+	/**
+	 * Creates the layout of the text of this element. This method is called at most once per element unless multiple
+	 * threads measure the element for the first time at the same time. The default implementation lays out the text as
+	 * a single line.
+	 * 
+	 * @return the layout of the text; not {@code null}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	protected HCPTextLayout createLayout() throws IOException {
+		return HCPTextLayout.createSingleLine(text, style);
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getLayout().getWidth();
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return getLayout().getHeight();
+	}
+
 	@Override
 	public final void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
-		float x = shape.getLowerLeftX() + (shape.getWidth() - getWidth()) / 2;
-		float y = shape.getLowerLeftY() + (shape.getHeight() - getHeight()) / 2;
+		paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
+	}
+
+	@Override
+	public final void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		float x = lowerLeftX + (upperRightX - lowerLeftX - getWidth()) / 2;
+		float y = lowerLeftY + (upperRightY - lowerLeftY - getHeight()) / 2;
 		paintDebug(content, x, y);
 		paintText(content, x, y);
 	}
@@ -0,0 +1,219 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+
+/**
+ * The lines of a text together with their widths and the positions of their baselines, calculated once and then used
+ * for both measuring and painting a text element.
+ * <p>
+ * The lines are stacked from top to bottom with the specified line spacing. The box of the layout is as wide as the
+ * widest line and reaches from the top of the first line to the bottom of the last line. The baseline of each line is
+ * given as its distance from the bottom of the box, so that a line is painted at
+ * {@code lowerLeftY + getBaseline(line)}.
+ * <p>
+ * The line spacing is measured in 'line heights', i.&nbsp;e. 1 means each line is directly below the other and 2 means
+ * that between two consecutive lines is a gap with the height of one line.
+ * <p>
+ * Lines which are followed by another line of the same paragraph can be stretched to a larger width by justified text
+ * elements (see {@link HCPHorizontalAlignment#JUSTIFY}). In a layout created by this class, only the last line ends a
+ * paragraph.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public final class HCPTextLayout {
+
+	/**
+	 * Creates the layout of a text consisting of a single line. Line breaks in the text are not treated specially.
+	 *
+	 * @param text not {@code null}
+	 * @param style not {@code null}
+	 * @return the layout of the text
+	 * @throws NullPointerException if text or style is {@code null}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	public static HCPTextLayout createSingleLine(String text, HCPStyle style) throws IOException {
+		Objects.requireNonNull(text, "Text must not be null.");
+		Objects.requireNonNull(style, "Style must not be null.");
+		return new HCPTextLayout(new String[] { text }, new float[] { style.getStringWidth(text) }, new boolean[1], 1,
+			style, 1);
+	}
+
+	/**
+	 * Creates the layout of a text which starts a new line at each line break ({@code '\n'}).
+	 *
+	 * @param text not {@code null}
+	 * @param style not {@code null}
+	 * @param lineSpacing must be {@literal >= 1}
+	 * @return the layout of the text
+	 * @throws NullPointerException if text or style is {@code null}
+	 * @throws IllegalArgumentException if lineSpacing is {@literal < 1}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	public static HCPTextLayout create(String text, HCPStyle style, float lineSpacing) throws IOException {
+		Objects.requireNonNull(text, "Text must not be null.");
+		Objects.requireNonNull(style, "Style must not be null.");
+		if (lineSpacing < 1)
+			throw new IllegalArgumentException("Line spacing must be equal to or greater than one, but was "
+				+ lineSpacing + ".");
+		int count = 1;
+		for (int index = 0; index < text.length(); index++)
+			if (text.charAt(index) == '\n')
+				count++;
+		String[] lines = new String[count];
+		float[] widths = new float[count];
+		boolean[] stretchable = new boolean[count];
+		int start = 0;
+		for (int line = 0; line < count; line++) {
+			int end = text.indexOf('\n', start);
+			if (end < 0)
+				end = text.length();
+			lines[line] = text.substring(start, end);
+			widths[line] = style.getStringWidth(lines[line]);
+			stretchable[line] = line < count - 1;
+			start = end + 1;
+		}
+		return new HCPTextLayout(lines, widths, stretchable, count, style, lineSpacing);
+	}
+
+	private final String[] lines;
+	private final float[] widths;
+	private final boolean[] stretchable;
+	private final float[] baselines;
+	private final float width, height;
+	private final HCPStyle style;
+	private final float lineSpacing, lineHeight;
+
+	// Takes ownership of the arrays, which may be longer than count. stretchable[i] is whether line i is followed by
+	// another line of the same paragraph.
+	HCPTextLayout(String[] lines, float[] widths, boolean[] stretchable, int count, HCPStyle style, float lineSpacing)
+		throws IOException {
+		this.lines = lines.length == count ? lines : Arrays.copyOf(lines, count);
+		this.widths = widths.length == count ? widths : Arrays.copyOf(widths, count);
+		this.stretchable = stretchable.length == count ? stretchable : Arrays.copyOf(stretchable, count);
+		this.style = style;
+		this.lineSpacing = lineSpacing;
+		this.lineHeight = style.getHeight();
+		this.height = ((count - 1) * lineSpacing + 1) * lineHeight;
+		this.baselines = new float[count];
+		float width = 0;
+		for (int line = 0; line < count; line++) {
+			width = Math.max(width, this.widths[line]);
+			baselines[line] = height - lineHeight - line * lineSpacing * lineHeight - style.getDescent();
+		}
+		this.width = width;
+	}
+
+	/**
+	 * Returns the number of lines.
+	 *
+	 * @return the number of lines
+	 */
+	public int getLineCount() {
+		return lines.length;
+	}
+
+	/**
+	 * Returns the text of the specified line.
+	 *
+	 * @param line the index of the line
+	 * @return the text of the line
+	 * @throws IndexOutOfBoundsException if line is {@literal < 0} or {@literal >=} {@link #getLineCount()}
+	 */
+	public String getLine(int line) {
+		return lines[line];
+	}
+
+	/**
+	 * Returns the width of the specified line.
+	 *
+	 * @param line the index of the line
+	 * @return the width of the line
+	 * @throws IndexOutOfBoundsException if line is {@literal < 0} or {@literal >=} {@link #getLineCount()}
+	 */
+	public float getLineWidth(int line) {
+		return widths[line];
+	}
+
+	/**
+	 * Returns the number of lines from the top which fit into the specified height. The result may be greater than
+	 * {@link #getLineCount()}.
+	 *
+	 * @param height the available height
+	 * @return the number of fitting lines
+	 */
+	int getFittingLineCount(float height) {
+		// The tolerance allows for rounding errors in the coordinates of the shape which the layout is painted in.
+		float lines = (height - lineHeight) / (lineSpacing * lineHeight) + 1e-3f;
+		return lines < 0 ? 0 : 1 + (int) lines;
+	}
+
+	/**
+	 * Returns the layout of the first lines of this layout. Each line keeps whether it is followed by another line of
+	 * the same paragraph.
+	 *
+	 * @param count the number of lines; must be {@literal >= 1} and {@literal <=} {@link #getLineCount()}
+	 * @return the layout of the first lines
+	 * @throws IOException if there is an error getting the height information
+	 */
+	HCPTextLayout getFirstLines(int count) throws IOException {
+		return count == lines.length ? this : new HCPTextLayout(Arrays.copyOf(lines, count), Arrays.copyOf(widths,
+			count), Arrays.copyOf(stretchable, count), count, style, lineSpacing);
+	}
+
+	/**
+	 * Returns the additional width of each space which stretches the specified line to the specified width. Returns
+	 * zero if the line ends a paragraph, contains no spaces or is not narrower than the width.
+	 *
+	 * @param line the index of the line
+	 * @param width the width of the stretched line
+	 * @return the word spacing in default user space units
+	 * @throws IndexOutOfBoundsException if line is {@literal < 0} or {@literal >=} {@link #getLineCount()}
+	 */
+	float getWordSpacing(int line, float width) {
+		float extra = width - widths[line];
+		if (!stretchable[line] || extra <= 0)
+			return 0;
+		String text = lines[line];
+		int spaces = 0;
+		for (int index = 0; index < text.length(); index++)
+			if (text.charAt(index) == ' ')
+				spaces++;
+		return spaces == 0 ? 0 : extra / spaces;
+	}
+
+	/**
+	 * Returns the distance between the bottom of the box and the baseline of the specified line.
+	 *
+	 * @param line the index of the line
+	 * @return the offset of the baseline of the line
+	 * @throws IndexOutOfBoundsException if line is {@literal < 0} or {@literal >=} {@link #getLineCount()}
+	 */
+	public float getBaseline(int line) {
+		return baselines[line];
+	}
+
+	/**
+	 * Returns the width of the box, which is the width of the widest line.
+	 *
+	 * @return the width of the box
+	 */
+	public float getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the box from the top of the first line to the bottom of the last line.
+	 *
+	 * @return the height of the box
+	 */
+	public float getHeight() {
+		return height;
+	}
+
+}
@@ -0,0 +1,229 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.fontbox.ttf.CMAPEncodingEntry;
+import org.apache.fontbox.ttf.TrueTypeFont;
+
+/**
+ * Creates subsets of TrueType fonts which contain the outlines of only some of the glyphs.
+ * <p>
+ * The glyph ids of the font are kept, so that the character maps and horizontal metrics remain valid and do not have
+ * to be rebuilt. Only the outlines of the glyphs which are not used are removed (leaving them empty), together with
+ * all tables which are not needed for painting a TrueType font in a PDF file, for example the tables used for advanced
+ * typography. The glyph names in the 'post' table are removed as well.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Green Lightning
+ */
+final class HCPTrueTypeSubsetter {
+
+	// The tables which are kept in the subset, sorted by tag as required by the table directory.
+	private static final String[] KEPT_TABLES = { "OS/2", "cmap", "cvt ", "fpgm", "glyf", "head", "hhea", "hmtx",
+		"loca", "maxp", "name", "post", "prep" };
+
+	private static final int ARG_1_AND_2_ARE_WORDS = 0x0001;
+	private static final int WE_HAVE_A_SCALE = 0x0008;
+	private static final int MORE_COMPONENTS = 0x0020;
+	private static final int WE_HAVE_AN_X_AND_Y_SCALE = 0x0040;
+	private static final int WE_HAVE_A_TWO_BY_TWO = 0x0080;
+
+	// Hide the constructor.
+	private HCPTrueTypeSubsetter() {}
+
+	/**
+	 * Returns a subset of the specified font, which contains the glyphs of the specified characters.
+	 *
+	 * @param data the font file; not {@code null}
+	 * @param ttf the parsed font file; not {@code null}
+	 * @param characters the Unicode characters to keep; not {@code null}
+	 * @return the font file of the subset
+	 * @throws IOException if the font file is malformed
+	 */
+	static byte[] subset(byte[] data, TrueTypeFont ttf, BitSet characters) throws IOException {
+		try {
+			Map<String, ByteBuffer> tables = readTables(ByteBuffer.wrap(data));
+			ByteBuffer head = getTable(tables, "head"), maxp = getTable(tables, "maxp");
+			ByteBuffer loca = getTable(tables, "loca"), glyf = getTable(tables, "glyf");
+			boolean longOffsets = head.getShort(50) != 0;
+			int glyphCount = maxp.getShort(4) & 0xFFFF;
+			int[] offsets = new int[glyphCount + 1];
+			for (int glyph = 0; glyph <= glyphCount; glyph++)
+				offsets[glyph] = longOffsets ? loca.getInt(4 * glyph) : 2 * (loca.getShort(2 * glyph) & 0xFFFF);
+
+			BitSet glyphs = new BitSet(glyphCount);
+			glyphs.set(0); // The missing glyph is always required.
+			for (CMAPEncodingEntry cmap : ttf.getCMAP().getCmaps()) {
+				boolean symbol = cmap.getPlatformId() == 3 && cmap.getPlatformEncodingId() == 0;
+				for (int c = characters.nextSetBit(0); c >= 0; c = characters.nextSetBit(c + 1))
+					addGlyph(glyphs, cmap.getGlyphId(symbol && c < 0x100 ? 0xF000 + c : c), glyphCount);
+			}
+			addComponents(glyphs, glyf, offsets);
+
+			tables.put("glyf", ByteBuffer.wrap(subsetGlyphs(glyphs, glyf, offsets)));
+			tables.put("loca", ByteBuffer.wrap(writeOffsets(offsets, longOffsets)));
+			if (tables.containsKey("post"))
+				tables.put("post", getPostFormat3(tables.get("post")));
+			return writeFont(tables);
+		} catch (RuntimeException e) {
+			throw new IOException("The font file is malformed.", e);
+		}
+	}
+
+	private static Map<String, ByteBuffer> readTables(ByteBuffer font) {
+		int tableCount = font.getShort(4) & 0xFFFF;
+		Map<String, ByteBuffer> tables = new TreeMap<>();
+		for (int index = 0; index < tableCount; index++) {
+			int record = 12 + 16 * index;
+			char[] tag = new char[4];
+			for (int c = 0; c < 4; c++)
+				tag[c] = (char) (font.get(record + c) & 0xFF);
+			int offset = font.getInt(record + 8), length = font.getInt(record + 12);
+			ByteBuffer table = font.duplicate();
+			table.position(offset).limit(offset + length);
+			tables.put(new String(tag), table.slice());
+		}
+		tables.keySet().retainAll(Arrays.asList(KEPT_TABLES));
+		return tables;
+	}
+
+	private static ByteBuffer getTable(Map<String, ByteBuffer> tables, String tag) throws IOException {
+		ByteBuffer table = tables.get(tag);
+		if (table == null)
+			throw new IOException("The font has no '" + tag + "' table.");
+		return table;
+	}
+
+	private static void addGlyph(BitSet glyphs, int glyph, int glyphCount) {
+		if (glyph > 0 && glyph < glyphCount)
+			glyphs.set(glyph);
+	}
+
+	// Adds the components of composite glyphs, which can be composite glyphs themselves.
+	private static void addComponents(BitSet glyphs, ByteBuffer glyf, int[] offsets) {
+		int glyphCount = offsets.length - 1;
+		BitSet pending = (BitSet) glyphs.clone();
+		for (int glyph = pending.nextSetBit(0); glyph >= 0; glyph = pending.nextSetBit(0)) {
+			pending.clear(glyph);
+			int offset = offsets[glyph];
+			if (offsets[glyph + 1] == offset || glyf.getShort(offset) >= 0)
+				continue; // Empty or simple glyph.
+			int position = offset + 10;
+			int flags;
+			do {
+				flags = glyf.getShort(position) & 0xFFFF;
+				int component = glyf.getShort(position + 2) & 0xFFFF;
+				if (component < glyphCount && !glyphs.get(component)) {
+					glyphs.set(component);
+					pending.set(component);
+				}
+				position += 4 + ((flags & ARG_1_AND_2_ARE_WORDS) != 0 ? 4 : 2);
+				if ((flags & WE_HAVE_A_SCALE) != 0)
+					position += 2;
+				else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0)
+					position += 4;
+				else if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0)
+					position += 8;
+			} while ((flags & MORE_COMPONENTS) != 0);
+		}
+	}
+
+	// Copies the kept glyphs and replaces the offsets with the offsets in the subset.
+	private static byte[] subsetGlyphs(BitSet glyphs, ByteBuffer glyf, int[] offsets) {
+		int size = 0;
+		for (int glyph = glyphs.nextSetBit(0); glyph >= 0; glyph = glyphs.nextSetBit(glyph + 1))
+			size += align(offsets[glyph + 1] - offsets[glyph]);
+		byte[] result = new byte[size];
+		int position = 0;
+		for (int glyph = 0; glyph < offsets.length - 1; glyph++) {
+			int start = offsets[glyph], length = offsets[glyph + 1] - start;
+			offsets[glyph] = position;
+			if (glyphs.get(glyph) && length > 0) {
+				ByteBuffer source = glyf.duplicate();
+				source.position(start);
+				source.get(result, position, length);
+				position += align(length);
+			}
+		}
+		offsets[offsets.length - 1] = position;
+		return result;
+	}
+
+	private static byte[] writeOffsets(int[] offsets, boolean longOffsets) {
+		ByteBuffer loca = ByteBuffer.allocate(offsets.length * (longOffsets ? 4 : 2));
+		for (int offset : offsets) {
+			if (longOffsets)
+				loca.putInt(offset);
+			else
+				loca.putShort((short) (offset / 2));
+		}
+		return loca.array();
+	}
+
+	private static ByteBuffer getPostFormat3(ByteBuffer post) {
+		if (post.limit() < 32)
+			return post;
+		ByteBuffer result = ByteBuffer.allocate(32);
+		ByteBuffer header = post.duplicate();
+		header.limit(32);
+		result.put(header);
+		result.putInt(0, 0x00030000);
+		result.rewind();
+		return result;
+	}
+
+	private static byte[] writeFont(Map<String, ByteBuffer> tables) {
+		int tableCount = tables.size();
+		int size = 12 + 16 * tableCount;
+		for (ByteBuffer table : tables.values())
+			size += align(table.limit());
+		ByteBuffer font = ByteBuffer.allocate(size);
+		int searchRange = Integer.highestOneBit(tableCount);
+		font.putInt(0x00010000);
+		font.putShort((short) tableCount);
+		font.putShort((short) (16 * searchRange));
+		font.putShort((short) Integer.numberOfTrailingZeros(searchRange));
+		font.putShort((short) (16 * (tableCount - searchRange)));
+		int offset = 12 + 16 * tableCount, headOffset = -1;
+		for (Map.Entry<String, ByteBuffer> entry : tables.entrySet()) {
+			ByteBuffer table = entry.getValue().duplicate();
+			table.rewind();
+			int length = table.limit();
+			if (entry.getKey().equals("head"))
+				headOffset = offset;
+			for (int c = 0; c < 4; c++)
+				font.put((byte) entry.getKey().charAt(c));
+			font.putInt(0); // The checksum is calculated below.
+			font.putInt(offset);
+			font.putInt(length);
+			int record = font.position();
+			font.position(offset);
+			font.put(table);
+			font.putInt(record - 12, getChecksum(font, offset, length, entry.getKey().equals("head")));
+			font.position(record);
+			offset += align(length);
+		}
+		font.putInt(headOffset + 8, 0);
+		font.putInt(headOffset + 8, 0xB1B0AFBA - getChecksum(font, 0, size, false));
+		return font.array();
+	}
+
+	private static int getChecksum(ByteBuffer font, int offset, int length, boolean head) {
+		int sum = 0;
+		for (int position = offset; position < offset + align(length); position += 4)
+			if (!head || position != offset + 8) // Skip the checksum adjustment of the 'head' table.
+				sum += font.getInt(position);
+		return sum;
+	}
+
+	private static int align(int length) {
+		return (length + 3) & ~3;
+	}
+
+}
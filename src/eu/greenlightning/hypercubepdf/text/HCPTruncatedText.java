@@ -0,0 +1,165 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+
+import eu.greenlightning.hypercubepdf.HCPElement;
+import eu.greenlightning.hypercubepdf.HCPMeasureContext;
+import eu.greenlightning.hypercubepdf.align.HCPHorizontalAlignment;
+
+/**
+ * A text element which paints a single line of text and shortens it if it does not fit into the width it is painted
+ * with. A shortened text ends with an ellipsis (by default three periods), which is appended after the longest prefix
+ * of the text that fits together with the ellipsis. Spaces at the end of the prefix are removed. If not even the
+ * ellipsis fits, nothing is painted.
+ * <p>
+ * The cumulative widths of the characters are calculated once, so that the cut point is found by a binary search
+ * instead of measuring ever shorter substrings.
+ * <p>
+ * The preferred width of the element is the width of the complete text and its minimum width is the width of the
+ * ellipsis. The text is centered vertically and aligned horizontally using an {@link HCPHorizontalAlignment}.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+public class HCPTruncatedText implements HCPElement {
+
+	private static final String DEFAULT_ELLIPSIS = "...";
+	private static final HCPHorizontalAlignment DEFAULT_ALIGNMENT = HCPHorizontalAlignment.LEFT;
+
+	private final String text;
+	private final HCPStyle style;
+	private final String ellipsis;
+	private final HCPHorizontalAlignment alignment;
+
+	// Measured lazily, because measuring can fail with an IOException.
+	private volatile HCPWidthIndex index;
+
+	/**
+	 * Creates an {@link HCPTruncatedText} instance with the specified text and style, which uses three periods as the
+	 * ellipsis and aligns the text on the left.
+	 *
+	 * @param text not {@code null}; line breaks are ignored
+	 * @param style not {@code null}
+	 * @throws NullPointerException if text or style is {@code null}
+	 */
+	public HCPTruncatedText(String text, HCPStyle style) {
+		this(text, style, DEFAULT_ELLIPSIS, DEFAULT_ALIGNMENT);
+	}
+
+	/**
+	 * Creates an {@link HCPTruncatedText} instance with the specified text, style, ellipsis and alignment.
+	 *
+	 * @param text not {@code null}; line breaks are ignored
+	 * @param style not {@code null}
+	 * @param ellipsis appended to shortened texts; not {@code null}
+	 * @param alignment not {@code null}
+	 * @throws NullPointerException if text, style, ellipsis or alignment is {@code null}
+	 */
+	public HCPTruncatedText(String text, HCPStyle style, String ellipsis, HCPHorizontalAlignment alignment) {
+		this.text = Objects.requireNonNull(text, "Text must not be null.");
+		this.style = Objects.requireNonNull(style, "Style must not be null.");
+		this.ellipsis = Objects.requireNonNull(ellipsis, "Ellipsis must not be null.");
+		this.alignment = Objects.requireNonNull(alignment, "Alignment must not be null.");
+	}
+
+	/**
+	 * Returns an {@link HCPTruncatedText} instance that paints the specified text, but has all other properties in
+	 * common with this instance. This method may return {@code this} instance if it already uses the specified text.
+	 *
+	 * @param text not {@code null}
+	 * @return an {@link HCPTruncatedText} instance that paints the specified text
+	 * @throws NullPointerException if text is {@code null}
+	 */
+	public HCPTruncatedText withText(String text) {
+		return this.text.equals(text) ? this : new HCPTruncatedText(text, style, ellipsis, alignment);
+	}
+
+	/**
+	 * Returns an {@link HCPTruncatedText} instance that uses the specified style, but has all other properties in
+	 * common with this instance. This method may return {@code this} instance if it already uses the specified style.
+	 *
+	 * @param style not {@code null}
+	 * @return an {@link HCPTruncatedText} instance that uses the specified style
+	 * @throws NullPointerException if style is {@code null}
+	 */
+	public HCPTruncatedText withStyle(HCPStyle style) {
+		return this.style.equals(style) ? this : new HCPTruncatedText(text, style, ellipsis, alignment);
+	}
+
+	/**
+	 * Returns the text which is painted if the element has the specified width, i.&nbsp;e. either the complete text,
+	 * a prefix of the text followed by the ellipsis or the empty string.
+	 *
+	 * @param width the available width
+	 * @return the text to paint; not {@code null}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	public String getTruncatedText(float width) throws IOException {
+		HCPWidthIndex index = getIndex();
+		if (index.getWidth() <= width)
+			return text;
+		float remaining = width - style.getStringWidth(ellipsis);
+		if (remaining < 0)
+			return "";
+		int length = index.getFittingLength(remaining);
+		while (length > 0 && text.charAt(length - 1) == ' ')
+			length--;
+		return text.substring(0, length) + ellipsis;
+	}
+
+	private HCPWidthIndex getIndex() throws IOException {
+		HCPWidthIndex index = this.index;
+		if (index == null)
+			this.index = index = new HCPWidthIndex(text, style);
+		return index;
+	}
+
+	@Override
+	public float getWidth() throws IOException {
+		return getIndex().getWidth();
+	}
+
+	@Override
+	public float getMinWidth(HCPMeasureContext context) throws IOException {
+		return Math.min(style.getStringWidth(ellipsis), getWidth());
+	}
+
+	@Override
+	public float getHeight() throws IOException {
+		return style.getHeight();
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, PDRectangle shape) throws IOException {
+		paint(content, shape.getLowerLeftX(), shape.getLowerLeftY(), shape.getUpperRightX(), shape.getUpperRightY());
+	}
+
+	@Override
+	public void paint(PDPageContentStream content, float lowerLeftX, float lowerLeftY, float upperRightX,
+		float upperRightY) throws IOException {
+		String text = getTruncatedText(upperRightX - lowerLeftX);
+		if (text.isEmpty())
+			return;
+		float width = getIndex().getWidth(0, text.length() - (text == this.text ? 0 : ellipsis.length()));
+		if (text != this.text)
+			width += style.getStringWidth(ellipsis);
+		float x = alignment.align(width, lowerLeftX, upperRightX);
+		float y = lowerLeftY + (upperRightY - lowerLeftY - style.getHeight()) / 2;
+		content.beginText();
+		style.apply(content);
+		content.setTextTranslation(x, y - style.getDescent());
+		style.showText(content, text);
+		content.endText();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
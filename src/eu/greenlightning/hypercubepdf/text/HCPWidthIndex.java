@@ -0,0 +1,91 @@
+package eu.greenlightning.hypercubepdf.text;
+
+import java.io.IOException;
+
+/**
+ * The cumulative advance widths of the characters of a string, which allow to determine the width of any substring in
+ * constant time and the number of characters which fit into a given width by binary search.
+ * <p>
+ * For styles without fallback fonts the widths are summed in the same order as by
+ * {@link HCPStyle#getStringWidth(String)}, so that the width of the complete string is equal to the width returned by
+ * the style. The kerning adjustment between two characters is added to the width of the second character, so that the
+ * width of a substring includes the adjustments between its characters.
+ * <p>
+ * This class is immutable.
+ *
+ * @author Green Lightning
+ */
+final class HCPWidthIndex {
+
+	private final String text;
+	private final float scale;
+	// prefixes[i] is the width of the first i characters in glyph space units.
+	private final float[] prefixes;
+
+	/**
+	 * Measures the specified text.
+	 *
+	 * @param text not {@code null}
+	 * @param style not {@code null}
+	 * @throws IOException if there is an error getting the width information
+	 */
+	HCPWidthIndex(String text, HCPStyle style) throws IOException {
+		this.text = text;
+		this.scale = style.getSize() / 1000;
+		this.prefixes = new float[text.length() + 1];
+		float width = 0;
+		for (int index = 0; index < text.length(); index++) {
+			char c = text.charAt(index);
+			// The second character of a surrogate pair does not have a width of its own.
+			if (!Character.isLowSurrogate(c) || index == 0 || !Character.isHighSurrogate(text.charAt(index - 1))) {
+				if (index > 0)
+					width += style.getKerning(text.charAt(index - 1), c);
+				width += style.getAdvance(c);
+			}
+			prefixes[index + 1] = width;
+		}
+	}
+
+	/**
+	 * Returns the width of the complete text.
+	 *
+	 * @return the width in default user space units
+	 */
+	float getWidth() {
+		return prefixes[text.length()] * scale;
+	}
+
+	/**
+	 * Returns the width of the specified substring.
+	 *
+	 * @param start the index of the first character, inclusive
+	 * @param end the index of the last character, exclusive
+	 * @return the width in default user space units
+	 */
+	float getWidth(int start, int end) {
+		return (prefixes[end] - prefixes[start]) * scale;
+	}
+
+	/**
+	 * Returns the largest number of characters from the start of the text whose width is less than or equal to the
+	 * specified width. Surrogate pairs are never split.
+	 *
+	 * @param width the available width in default user space units
+	 * @return the number of characters which fit
+	 */
+	int getFittingLength(float width) {
+		int low = 0, high = text.length();
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (prefixes[middle] * scale <= width)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		if (low > 0 && low < text.length() && Character.isHighSurrogate(text.charAt(low - 1))
+			&& Character.isLowSurrogate(text.charAt(low)))
+			low--;
+		return low;
+	}
+
+}